@@ -0,0 +1,91 @@
+package nl.saxion.ptbc.classes;
+
+/**
+ * The headings in which the Frog would drive into an obstacle of a radar sweep.
+ * <p>
+ * The headings are divided into bins of a tenth of a degree, stored as a bitmap. The bitmap is built
+ * in one pass over the distances and bearings of a {@link RadarSweep}: every obstacle within the safe
+ * distance blocks the bins of the cone around the heading that points at it. After that, checking a
+ * heading is a single bit lookup, no matter how many obstacles the sweep has.
+ * <p>
+ * A bin is blocked when it overlaps a cone, so a heading may be reported blocked up to a tenth of a
+ * degree outside a cone, never the other way around.
+ */
+public final class BlockedBearings {
+    private static final int BINS_PER_DEGREE = 10;
+    private static final int BINS = 360 * BINS_PER_DEGREE;
+
+    private final long[] bits = new long[(BINS + 63) / 64];
+    private boolean empty = true;
+
+    private BlockedBearings() {
+    }
+
+    /**
+     * Builds the bitmap of a sweep.
+     *
+     * @param sweep        the sweep, with the positions of the obstacles relative to the radar
+     * @param safeDistance obstacles further away than this are ignored
+     * @param coneWidth    half the width in degrees of the cone around a heading that must be free
+     * @return the blocked headings
+     */
+    public static BlockedBearings of(RadarSweep sweep, double safeDistance, double coneWidth) {
+        BlockedBearings blocked = new BlockedBearings();
+        for (int i = 0; i < sweep.size(); i++) {
+            if (sweep.getDistance(i) > safeDistance) continue;
+
+            // heading 0 points along the Z axis of the radar, bearing 0 along its X axis
+            double heading = sweep.getBearing(i) - 90;
+            blocked.block(heading - coneWidth, heading + coneWidth);
+        }
+        return blocked;
+    }
+
+    /**
+     * Checks whether driving in a heading (in degrees, relative to the Frog) hits an obstacle.
+     */
+    public boolean isBlocked(double heading) {
+        int bin = Math.floorMod((long) Math.floor(heading * BINS_PER_DEGREE), BINS);
+        return (bits[bin >>> 6] & (1L << bin)) != 0;
+    }
+
+    // True if no heading is blocked
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    // Sets the bins from one heading up to and including another, wrapping around at 360 degrees
+    private void block(double fromHeading, double toHeading) {
+        empty = false;
+        long from = (long) Math.floor(fromHeading * BINS_PER_DEGREE);
+        long to = (long) Math.floor(toHeading * BINS_PER_DEGREE);
+        if (to - from + 1 >= BINS) {
+            setBins(0, BINS - 1);
+            return;
+        }
+        int first = Math.floorMod(from, BINS);
+        int last = Math.floorMod(to, BINS);
+        if (first <= last) {
+            setBins(first, last);
+        } else {
+            setBins(first, BINS - 1);
+            setBins(0, last);
+        }
+    }
+
+    private void setBins(int first, int last) {
+        int firstWord = first >>> 6;
+        int lastWord = last >>> 6;
+        long firstMask = -1L << first;
+        long lastMask = -1L >>> (63 - (last & 63));
+        if (firstWord == lastWord) {
+            bits[firstWord] |= firstMask & lastMask;
+            return;
+        }
+        bits[firstWord] |= firstMask;
+        for (int word = firstWord + 1; word < lastWord; word++) {
+            bits[word] = -1L;
+        }
+        bits[lastWord] |= lastMask;
+    }
+}
@@ -3,19 +3,47 @@ package nl.saxion.ptbc.CSVLoader;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
 import javafx.stage.FileChooser;
 import javafx.stage.Window;
+import nl.saxion.ptbc.classes.Task;
+import nl.saxion.ptbc.classes.Tasks;
+import nl.saxion.ptbc.database.ObstacleDatabaseHandler;
+import nl.saxion.ptbc.metrics.FxQueue;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Controller class for managing CSV file uploads, imports, and viewing imported files.
  * Handles user interactions with the UI components and file operations.
+ * <p>
+ * Importing a file runs as a background {@link Task}: the {@link ObstacleCsvReader} streams the
+ * obstacles from the file in batches, every batch is stored in the obstacle database in one
+ * transaction and then handed to the viewer on the JavaFX Application Thread. At most
+ * {@code MAX_PENDING_BATCHES} batches wait for the map, so a slow UI slows down the import instead
+ * of filling the memory. The progress bar follows the bytes read and the Cancel button stops the import
+ * after the current batch; the batches before it stay imported.
  */
 public class CSVLoaderController {
+    private static final int IMPORT_BATCH_SIZE = 10_000;
+    private static final int MAX_PENDING_BATCHES = 4;
+
     private File file;
     private ArrayList<File> files = new ArrayList<>();
+    private ObstacleCsvReader.BatchHandler obstacleHandler;
+    private Runnable importFinishedHandler;
+    private Task importTask;
+    private final Semaphore pendingBatches = new Semaphore(MAX_PENDING_BATCHES);
+    // whether a progress update is already waiting for the JavaFX thread
+    private final AtomicBoolean progressPending = new AtomicBoolean();
+    private volatile double progress;
 
     @FXML
     private Button uploadButton;
@@ -24,7 +52,11 @@ public class CSVLoaderController {
     @FXML
     private Button importButton;
     @FXML
+    private Button cancelButton;
+    @FXML
     private Label fileNameLabel;
+    @FXML
+    private ProgressBar progressBar;
 
     /**
      * Initializes the controller by setting up button actions and event handlers.
@@ -32,27 +64,24 @@ public class CSVLoaderController {
      */
     @FXML
     public void initialize() {
-        try {
-            uploadButton.setOnAction(event -> {
+        uploadButton.setOnAction(event -> {
+            try {
                 file = uploadFile(uploadButton.getScene().getWindow());
                 fileNameLabel.setText("Selected File: " + file.getName());
-            });
-        } catch (CSVLoaderException c) {
-            System.err.println(c.getMessage());
-        }
+            } catch (CSVLoaderException c) {
+                System.err.println(c.getMessage());
+            }
+        });
 
-        try {
-            importButton.setOnAction(event -> {
-                if (file.getName().endsWith(".csv")) {
-                    files.add(file);
-                    System.out.println("File added: " + file.getName());
-                    fileNameLabel.setText("File imported: " + file.getName());
-                    file = null;
-                }
-            });
-        } catch (CSVLoaderException c) {
-            System.err.println(c.getMessage());
-        }
+        importButton.setOnAction(event -> {
+            if (file != null && file.getName().endsWith(".csv")) {
+                startImport(file);
+                file = null;
+            }
+        });
+
+        cancelButton.setOnAction(event -> cancelImport());
+        cancelButton.setDisable(true);
 
         viewButton.setOnAction(event -> {
             if (files.isEmpty()) {
@@ -63,6 +92,108 @@ public class CSVLoaderController {
         });
     }
 
+    /**
+     * Sets where imported obstacles go besides the database. The handler is called on the JavaFX
+     * Application Thread.
+     */
+    public void setObstacleHandler(ObstacleCsvReader.BatchHandler obstacleHandler) {
+        this.obstacleHandler = obstacleHandler;
+    }
+
+    /**
+     * Sets what to do when an import ended, also when it failed or was cancelled. The handler is called
+     * on the JavaFX Application Thread.
+     */
+    public void setImportFinishedHandler(Runnable importFinishedHandler) {
+        this.importFinishedHandler = importFinishedHandler;
+    }
+
+    /**
+     * Stops the running import, if any. Obstacles of batches that were already stored stay imported.
+     */
+    public void cancelImport() {
+        if (importTask != null) {
+            importTask.cancel();
+        }
+    }
+
+    private void startImport(File csvFile) {
+        importButton.setDisable(true);
+        uploadButton.setDisable(true);
+        cancelButton.setDisable(false);
+        progressBar.setProgress(0);
+        fileNameLabel.setText("Importing: " + csvFile.getName());
+        importTask = Tasks.start("CSV import " + csvFile.getName(), () -> runImport(csvFile));
+    }
+
+    // Runs on the import task; whatever happens, the buttons are enabled again afterwards
+    private void runImport(File csvFile) {
+        String result = "Import failed: " + csvFile.getName();
+        try {
+            ObstacleCsvReader.Result read = ObstacleCsvReader.read(csvFile.toPath(), IMPORT_BATCH_SIZE,
+                    this::importBatch, this::updateProgress);
+            result = "File imported: " + csvFile.getName() + " (" + read.obstacles() + " obstacles"
+                    + (read.skippedLines() > 0 ? ", " + read.skippedLines() + " invalid lines skipped)" : ")");
+            System.out.println(result);
+            FxQueue.runLater(() -> files.add(csvFile));
+        } catch (InterruptedException | ClosedByInterruptException e) {
+            result = "Import cancelled: " + csvFile.getName();
+        } catch (IOException | CSVLoaderException e) {
+            System.err.println("Failed to import " + csvFile + ": " + e.getMessage());
+            result = "Import failed: " + e.getMessage();
+        } finally {
+            String message = result;
+            FxQueue.runLater(() -> importFinished(message));
+        }
+    }
+
+    // Stores a batch and hands a copy of it to the viewer, runs on the import task
+    private void importBatch(double[] xs, double[] zs, int count) throws InterruptedException {
+        try {
+            ObstacleDatabaseHandler.insertObstacles(xs, zs, count);
+        } catch (SQLException e) {
+            throw new CSVLoaderException("Could not store the obstacles: " + e.getMessage(), e);
+        }
+        ObstacleCsvReader.BatchHandler handler = obstacleHandler;
+        if (handler == null) {
+            return;
+        }
+        double[] batchXs = Arrays.copyOf(xs, count);
+        double[] batchZs = Arrays.copyOf(zs, count);
+        pendingBatches.acquire();
+        FxQueue.runLater(() -> {
+            try {
+                handler.handle(batchXs, batchZs, count);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                pendingBatches.release();
+            }
+        });
+    }
+
+    // Runs on the import task; updates that come in while one waits for the JavaFX thread are merged into it
+    private void updateProgress(long bytesRead, long size) {
+        progress = size > 0 ? (double) bytesRead / size : 1.0;
+        if (progressPending.compareAndSet(false, true)) {
+            FxQueue.runLater(() -> {
+                progressPending.set(false);
+                progressBar.setProgress(progress);
+            });
+        }
+    }
+
+    private void importFinished(String message) {
+        importTask = null;
+        fileNameLabel.setText(message);
+        importButton.setDisable(false);
+        uploadButton.setDisable(false);
+        cancelButton.setDisable(true);
+        if (importFinishedHandler != null) {
+            importFinishedHandler.run();
+        }
+    }
+
     /**
      * Opens a file chooser dialog for the user to select a file.
      *
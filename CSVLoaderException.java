@@ -1,7 +1,13 @@
 package nl.saxion.ptbc.CSVLoader;
 
 public class CSVLoaderException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
     public CSVLoaderException(String message) {
         super(message);
     }
+
+    public CSVLoaderException(String message, Throwable cause) {
+        super(message, cause);
+    }
 }
@@ -0,0 +1,214 @@
+package nl.saxion.ptbc.classes;
+
+import nl.saxion.ptbc.SaSaCommunicator;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The single way out of the Pilot: every message for the Frog and Ground Control goes through here.
+ * <p>
+ * Any thread may hand in messages; one dispatcher {@link Task} passes them on to the {@link SaSaCommunicator}.
+ * <ul>
+ *     <li>{@code DRIVE} commands skip the queue. Only the latest one is kept, a DRIVE command that was
+ *     not sent yet is replaced by the next one, because the Frog would overrule it right away.</li>
+ *     <li>Other messages are sent in the order they were handed in, through a bounded queue. When the
+ *     queue is full, messages are dropped instead of blocking the caller.</li>
+ *     <li>New obstacles for Ground Control are collected with {@link #addObstacle}, obstacles that are
+ *     gone again with {@link #removeObstacle}. After {@link #flushObstacles()} the dispatcher sends them
+ *     as {@link ObstacleFrame}s. They never go through the queue and are never dropped: while the
+ *     frames of earlier sweeps are not sent yet, the changes of the next sweeps are collected, and
+ *     only the last change of every position is kept.</li>
+ * </ul>
+ */
+public final class CommandDispatcher implements AutoCloseable {
+    private static final int QUEUE_CAPACITY = 1024;
+    // keeps a single line of the SaSa protocol at a reasonable length
+    private static final int MAX_OBSTACLES_PER_MESSAGE = 500;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final double ADDED = 1;
+    private static final double REMOVED = -1;
+
+    private final SaSaCommunicator sasa;
+    private final BlockingQueue<String> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final AtomicReference<String> pendingDrive = new AtomicReference<>();
+    private final Task worker;
+    // the thread of the worker task, to wake it up
+    private volatile Thread workerThread;
+    private volatile boolean closing = false;
+    // counted from every thread that hands in messages
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    // obstacle changes that are not sent yet, by position in centimeters: {x, z, ADDED or REMOVED}, guarded by this
+    private final LinkedHashMap<Long, double[]> obstacleChanges = new LinkedHashMap<>();
+    // set by flushObstacles, the changes collected so far are ready to be sent
+    private volatile boolean obstaclesFlushed = false;
+
+    // the frames the worker is sending, only used by the worker
+    private final Points addedObstacles = new Points();
+    private final Points removedObstacles = new Points();
+
+    public CommandDispatcher(SaSaCommunicator sasa) {
+        this.sasa = sasa;
+        worker = Tasks.start("CommandDispatcher", this::run);
+    }
+
+    /**
+     * Hands in a message to send. Never blocks.
+     *
+     * @param message the message, {@code DRIVE} commands replace a DRIVE command that was not sent yet
+     * @return {@code false} if the message was dropped because the queue is full or the dispatcher is closed
+     */
+    public boolean send(String message) {
+        if (closing) {
+            return false;
+        }
+        if (message.startsWith("DRIVE ")) {
+            if (pendingDrive.getAndSet(message) != null) {
+                coalesced.incrementAndGet();
+            }
+        } else if (!queue.offer(message)) {
+            if (dropped.getAndIncrement() == 0) {
+                System.err.println("Command queue is full, messages are being dropped");
+            }
+            return false;
+        }
+        LockSupport.unpark(workerThread);
+        return true;
+    }
+
+    /**
+     * Adds an obstacle to the {@link ObstacleFrame} of the current sweep.
+     *
+     * @param x the absolute X coordinate of the obstacle
+     * @param z the absolute Z coordinate of the obstacle
+     */
+    public synchronized void addObstacle(double x, double z) {
+        obstacleChanges.put(key(x, z), new double[]{x, z, ADDED});
+    }
+
+    /**
+     * Adds an obstacle that is gone again to the {@link ObstacleFrame#CLEARED_KEYWORD} frame of the current sweep.
+     *
+     * @param x the absolute X coordinate of the obstacle
+     * @param z the absolute Z coordinate of the obstacle
+     */
+    public synchronized void removeObstacle(double x, double z) {
+        obstacleChanges.put(key(x, z), new double[]{x, z, REMOVED});
+    }
+
+    /**
+     * Lets the dispatcher send the obstacles added and removed since the last flush, at most
+     * {@code MAX_OBSTACLES_PER_MESSAGE} per message. Never blocks.
+     */
+    public void flushObstacles() {
+        obstaclesFlushed = true;
+        LockSupport.unpark(workerThread);
+    }
+
+    /**
+     * Sends everything that was handed in and stops the dispatcher thread.
+     */
+    @Override
+    public void close() {
+        flushObstacles();
+        closing = true;
+        LockSupport.unpark(workerThread);
+        try {
+            worker.await(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (dropped.get() > 0 || coalesced.get() > 0) {
+            System.out.println("Command dispatcher: " + coalesced.get() + " DRIVE commands replaced, "
+                    + dropped.get() + " messages dropped");
+        }
+    }
+
+    // Coordinates of one kind of obstacle frame, sent one message at a time
+    private static final class Points {
+        private double[] xs = new double[64];
+        private double[] zs = new double[64];
+        private int count;
+        private int sent;
+
+        void add(double x, double z) {
+            if (count == xs.length) {
+                xs = Arrays.copyOf(xs, count * 2);
+                zs = Arrays.copyOf(zs, count * 2);
+            }
+            xs[count] = x;
+            zs[count] = z;
+            count++;
+        }
+
+        boolean isEmpty() {
+            return sent == count;
+        }
+
+        // Encodes the next message, the points are cleared once all of them are sent
+        String nextMessage(String keyword) {
+            int last = Math.min(count, sent + MAX_OBSTACLES_PER_MESSAGE);
+            String message = ObstacleFrame.encode(keyword, xs, zs, sent, last);
+            sent = last;
+            if (sent == count) {
+                sent = 0;
+                count = 0;
+            }
+            return message;
+        }
+    }
+
+    // Moves the flushed changes to the frames, the removals and additions of a position are coalesced
+    private synchronized void takeObstacleChanges() {
+        obstaclesFlushed = false;
+        for (double[] change : obstacleChanges.values()) {
+            (change[2] == ADDED ? addedObstacles : removedObstacles).add(change[0], change[1]);
+        }
+        obstacleChanges.clear();
+    }
+
+    // The position in centimeters, like the obstacles in the database
+    private static long key(double x, double z) {
+        return (Math.round(x * 100) << 32) | (Math.round(z * 100) & 0xFFFFFFFFL);
+    }
+
+    private void run() {
+        workerThread = Thread.currentThread();
+        while (true) {
+            String drive = pendingDrive.getAndSet(null);
+            if (drive != null) {
+                sasa.send(drive);
+                continue;
+            }
+            String message = queue.poll();
+            if (message != null) {
+                sasa.send(message);
+                continue;
+            }
+            if (obstaclesFlushed && removedObstacles.isEmpty() && addedObstacles.isEmpty()) {
+                takeObstacleChanges();
+            }
+            // one message per round, so a DRIVE command never waits for a whole burst of frames
+            if (!removedObstacles.isEmpty()) {
+                sasa.send(removedObstacles.nextMessage(ObstacleFrame.CLEARED_KEYWORD));
+                continue;
+            }
+            if (!addedObstacles.isEmpty()) {
+                sasa.send(addedObstacles.nextMessage(ObstacleFrame.KEYWORD));
+                continue;
+            }
+            if (closing && !obstaclesFlushed) {
+                return;
+            }
+            LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package nl.saxion.ptbc.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A named count of events, e.g. the number of messages received.
+ * <p>
+ * Counting does not allocate and may be done from any thread.
+ */
+public final class Counter {
+    private final String name;
+    private final AtomicLong value = new AtomicLong();
+
+    Counter(String name) {
+        this.name = name;
+    }
+
+    public void increment() {
+        value.incrementAndGet();
+    }
+
+    public void add(long delta) {
+        value.addAndGet(delta);
+    }
+
+    //Getters
+    public String getName() {
+        return name;
+    }
+
+    public long get() {
+        return value.get();
+    }
+}
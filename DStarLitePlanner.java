@@ -0,0 +1,329 @@
+package nl.saxion.ptbc.classes;
+
+import java.util.Arrays;
+
+/**
+ * Incremental shortest path search (D* Lite, Koenig and Likhachev) over the cells of an {@link OccupancyGrid}.
+ * <p>
+ * The search runs backwards from the goal, so the costs of the cells stay valid while the Frog moves.
+ * When cells become blocked or free, only the cells whose cost depends on them are repaired,
+ * instead of searching the whole grid again. Cells are 8-connected; a diagonal step costs &radic;2 and is not
+ * allowed past the corner of a blocked cell. Entering a blocked cell is impossible, leaving one is
+ * not, so a Frog that is already too close to a rock can still drive away from it.
+ * <p>
+ * All state is kept in primitive arrays indexed by cell, the open list is an indexed binary heap.
+ * This class is not thread-safe, see {@link PathPlanner} for the thread-safe wrapper.
+ */
+public class DStarLitePlanner {
+    private static final double INFINITY = Double.POSITIVE_INFINITY;
+    // keys of cells on an optimal path tie with the key of the start, so keys are rounded to make
+    // sums of the same costs in a different order compare equal
+    private static final double KEY_SCALE = 1e6;
+    private static final double SQRT2 = Math.sqrt(2);
+    private static final int[] DX = {1, -1, 0, 0, 1, 1, -1, -1};
+    private static final int[] DZ = {0, 0, 1, -1, 1, -1, 1, -1};
+
+    private final OccupancyGrid grid;
+    private final int width, height;
+    private final double[] g;
+    private final double[] rhs;
+
+    // indexed binary heap of the inconsistent cells, ordered by key (k1, k2)
+    private final int[] heapPosition;
+    private int[] heapCells = new int[1024];
+    private double[] heapK1 = new double[1024];
+    private double[] heapK2 = new double[1024];
+    private int heapSize;
+
+    private int start = -1, goal = -1;
+    private double km;
+    private long expanded;
+
+    public DStarLitePlanner(OccupancyGrid grid) {
+        this.grid = grid;
+        this.width = grid.getWidth();
+        this.height = grid.getHeight();
+        this.g = new double[grid.getCellCount()];
+        this.rhs = new double[grid.getCellCount()];
+        this.heapPosition = new int[grid.getCellCount()];
+    }
+
+    /**
+     * Starts a new search to {@code goal}, forgetting everything of the previous goal.
+     *
+     * @param start the cell the Frog is in
+     * @param goal  the cell to drive to
+     */
+    public void setGoal(int start, int goal) {
+        Arrays.fill(g, INFINITY);
+        Arrays.fill(rhs, INFINITY);
+        Arrays.fill(heapPosition, -1);
+        heapSize = 0;
+        km = 0;
+
+        this.start = start;
+        this.goal = goal;
+        rhs[goal] = 0;
+        push(goal, roundKey(heuristic(start, goal)), 0);
+    }
+
+    /**
+     * Moves the start of the search to the cell the Frog is in now.
+     */
+    public void moveStart(int cell) {
+        if (cell != start && goal >= 0) {
+            // keys already in the heap were computed for the old start, km keeps them lower bounds
+            km += heuristic(start, cell);
+        }
+        start = cell;
+    }
+
+    /**
+     * Repairs the costs after a cell became blocked or free. Must be followed by {@link #computeShortestPath()}.
+     */
+    public void cellChanged(int cell) {
+        if (goal < 0) {
+            return;
+        }
+        // the cell itself and every cell with an edge into it or past its corner
+        updateCell(cell);
+        int cx = cell % width;
+        int cz = cell / width;
+        for (int d = 0; d < 8; d++) {
+            int nx = cx + DX[d];
+            int nz = cz + DZ[d];
+            if (nx >= 0 && nx < width && nz >= 0 && nz < height) {
+                updateCell(nz * width + nx);
+            }
+        }
+    }
+
+    /**
+     * Expands cells until the cost of the start cell is final.
+     *
+     * @return {@code true} if the goal can be reached from the start
+     */
+    public boolean computeShortestPath() {
+        if (goal < 0) {
+            return false;
+        }
+        while (heapSize > 0) {
+            double startK2 = roundKey(Math.min(g[start], rhs[start]));
+            double startK1 = roundKey(Math.min(g[start], rhs[start]) + km);
+            if (compareKeys(heapK1[0], heapK2[0], startK1, startK2) > 0 && rhs[start] == g[start]) {
+                break;
+            }
+
+            double oldK1 = heapK1[0];
+            double oldK2 = heapK2[0];
+            int cell = heapCells[0];
+            double newK2 = roundKey(Math.min(g[cell], rhs[cell]));
+            double newK1 = roundKey(Math.min(g[cell], rhs[cell]) + heuristic(start, cell) + km);
+            expanded++;
+
+            if (compareKeys(oldK1, oldK2, newK1, newK2) < 0) {
+                update(cell, newK1, newK2);
+            } else if (g[cell] > rhs[cell]) {
+                g[cell] = rhs[cell];
+                remove(cell);
+                updateNeighbours(cell);
+            } else {
+                g[cell] = INFINITY;
+                updateCell(cell);
+                updateNeighbours(cell);
+            }
+        }
+        return g[start] != INFINITY;
+    }
+
+    /**
+     * Returns the neighbour to drive to from {@code cell} on the shortest path, or -1 if there is none.
+     */
+    public int nextCell(int cell) {
+        int cx = cell % width;
+        int cz = cell / width;
+        int best = -1;
+        double bestCost = INFINITY;
+        for (int d = 0; d < 8; d++) {
+            int nx = cx + DX[d];
+            int nz = cz + DZ[d];
+            if (nx < 0 || nx >= width || nz < 0 || nz >= height) continue;
+            int neighbour = nz * width + nx;
+            double cost = cost(cx, cz, d) + g[neighbour];
+            if (cost < bestCost) {
+                bestCost = cost;
+                best = neighbour;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the remaining path cost from a cell to the goal in cells, infinite if unreachable.
+     */
+    public double getCost(int cell) {
+        return g[cell];
+    }
+
+    //Getters
+    public int getStart() {
+        return start;
+    }
+
+    public int getGoal() {
+        return goal;
+    }
+
+    public OccupancyGrid getGrid() {
+        return grid;
+    }
+
+    // Number of cells expanded since the planner was created, to measure the effort of (re)planning
+    public long getExpandedCount() {
+        return expanded;
+    }
+
+    // Recomputes rhs of a cell from its neighbours and puts it in the heap if it is inconsistent
+    private void updateCell(int cell) {
+        if (cell != goal) {
+            int cx = cell % width;
+            int cz = cell / width;
+            double best = INFINITY;
+            for (int d = 0; d < 8; d++) {
+                int nx = cx + DX[d];
+                int nz = cz + DZ[d];
+                if (nx < 0 || nx >= width || nz < 0 || nz >= height) continue;
+                double cost = cost(cx, cz, d) + g[nz * width + nx];
+                if (cost < best) best = cost;
+            }
+            rhs[cell] = best;
+        }
+
+        if (g[cell] != rhs[cell]) {
+            double k2 = roundKey(Math.min(g[cell], rhs[cell]));
+            double k1 = roundKey(Math.min(g[cell], rhs[cell]) + heuristic(start, cell) + km);
+            if (heapPosition[cell] >= 0) {
+                update(cell, k1, k2);
+            } else {
+                push(cell, k1, k2);
+            }
+        } else if (heapPosition[cell] >= 0) {
+            remove(cell);
+        }
+    }
+
+    private void updateNeighbours(int cell) {
+        int cx = cell % width;
+        int cz = cell / width;
+        for (int d = 0; d < 8; d++) {
+            int nx = cx + DX[d];
+            int nz = cz + DZ[d];
+            if (nx >= 0 && nx < width && nz >= 0 && nz < height) {
+                updateCell(nz * width + nx);
+            }
+        }
+    }
+
+    // Cost of the step from (cx, cz) in direction d, the caller checks the bounds of the target cell
+    private double cost(int cx, int cz, int d) {
+        int nx = cx + DX[d];
+        int nz = cz + DZ[d];
+        if (grid.isBlocked(nx, nz)) {
+            return INFINITY;
+        }
+        if (d < 4) {
+            return 1;
+        }
+        if (grid.isBlocked(nx, cz) || grid.isBlocked(cx, nz)) {
+            return INFINITY;
+        }
+        return SQRT2;
+    }
+
+    // Octile distance, the exact cost on an empty grid
+    private double heuristic(int from, int to) {
+        int dx = Math.abs(from % width - to % width);
+        int dz = Math.abs(from / width - to / width);
+        return Math.max(dx, dz) + (SQRT2 - 1) * Math.min(dx, dz);
+    }
+
+    private static double roundKey(double key) {
+        return Math.rint(key * KEY_SCALE) / KEY_SCALE;
+    }
+
+    private static int compareKeys(double a1, double a2, double b1, double b2) {
+        if (a1 != b1) return a1 < b1 ? -1 : 1;
+        return Double.compare(a2, b2);
+    }
+
+    private void push(int cell, double k1, double k2) {
+        if (heapSize == heapCells.length) {
+            int capacity = heapSize * 2;
+            heapCells = Arrays.copyOf(heapCells, capacity);
+            heapK1 = Arrays.copyOf(heapK1, capacity);
+            heapK2 = Arrays.copyOf(heapK2, capacity);
+        }
+        int i = heapSize++;
+        set(i, cell, k1, k2);
+        siftUp(i);
+    }
+
+    private void update(int cell, double k1, double k2) {
+        int i = heapPosition[cell];
+        int order = compareKeys(k1, k2, heapK1[i], heapK2[i]);
+        heapK1[i] = k1;
+        heapK2[i] = k2;
+        if (order < 0) siftUp(i);
+        else siftDown(i);
+    }
+
+    private void remove(int cell) {
+        int i = heapPosition[cell];
+        heapPosition[cell] = -1;
+        int last = --heapSize;
+        if (i != last) {
+            int order = compareKeys(heapK1[last], heapK2[last], heapK1[i], heapK2[i]);
+            set(i, heapCells[last], heapK1[last], heapK2[last]);
+            if (order < 0) siftUp(i);
+            else siftDown(i);
+        }
+    }
+
+    private void siftUp(int i) {
+        int cell = heapCells[i];
+        double k1 = heapK1[i];
+        double k2 = heapK2[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (compareKeys(k1, k2, heapK1[parent], heapK2[parent]) >= 0) break;
+            set(i, heapCells[parent], heapK1[parent], heapK2[parent]);
+            i = parent;
+        }
+        set(i, cell, k1, k2);
+    }
+
+    private void siftDown(int i) {
+        int cell = heapCells[i];
+        double k1 = heapK1[i];
+        double k2 = heapK2[i];
+        int half = heapSize >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < heapSize && compareKeys(heapK1[right], heapK2[right], heapK1[child], heapK2[child]) < 0) {
+                child = right;
+            }
+            if (compareKeys(k1, k2, heapK1[child], heapK2[child]) <= 0) break;
+            set(i, heapCells[child], heapK1[child], heapK2[child]);
+            i = child;
+        }
+        set(i, cell, k1, k2);
+    }
+
+    private void set(int i, int cell, double k1, double k2) {
+        heapCells[i] = cell;
+        heapK1[i] = k1;
+        heapK2[i] = k2;
+        heapPosition[cell] = i;
+    }
+}
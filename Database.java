@@ -0,0 +1,160 @@
+package nl.saxion.ptbc.database;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared access to the {@code sasa.db} SQLite database for all DAOs.
+ * <p>
+ * Instead of opening a connection for every operation, the database keeps one long-lived writer
+ * connection and a small pool of reader connections open. The database runs in WAL journal mode,
+ * so readers are never blocked by the writer. The schema is created once, when the database is
+ * first opened.
+ * <p>
+ * Work is passed in as a {@link SqlWork}:
+ * <ul>
+ *     <li>{@link #read(SqlWork)} borrows one of the reader connections.</li>
+ *     <li>{@link #write(SqlWork)} runs on the single writer connection inside a transaction, which
+ *     is committed when the work returns and rolled back when it throws.</li>
+ * </ul>
+ */
+public final class Database {
+
+    // Path to the SQLite database file, can be changed with -Dsasa.db.url=... e.g. for the benchmarks
+    private static final String DB_URL = System.getProperty("sasa.db.url", "jdbc:sqlite:sasa.db");
+    private static final int READER_POOL_SIZE = 3;
+    // how long closing waits for borrowed reader connections to come back
+    private static final long CLOSE_TIMEOUT_MILLIS = 2000;
+
+    private static Database instance;
+
+    private final SqlSession writer;
+    private final BlockingQueue<SqlSession> readers;
+    private final List<SqlSession> allReaders = new ArrayList<>();
+    private volatile boolean closed = false;
+
+    private Database(String url, int readerPoolSize) throws SQLException {
+        Connection writerConnection = open(url);
+        DatabaseSchema.create(writerConnection);
+        this.writer = new SqlSession(writerConnection);
+
+        this.readers = new ArrayBlockingQueue<>(readerPoolSize);
+        for (int i = 0; i < readerPoolSize; i++) {
+            SqlSession reader = new SqlSession(open(url));
+            allReaders.add(reader);
+            readers.add(reader);
+        }
+    }
+
+    /**
+     * Returns the shared database, opening it and creating the schema on first use.
+     *
+     * @return the shared database
+     * @throws SQLException if the database cannot be opened
+     */
+    public static synchronized Database get() throws SQLException {
+        if (instance == null) {
+            instance = new Database(DB_URL, READER_POOL_SIZE);
+        }
+        return instance;
+    }
+
+    /**
+     * Closes all connections of the shared database. A later call to {@link #get()} opens it again.
+     */
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            instance.close();
+            instance = null;
+        }
+    }
+
+    /**
+     * Runs read-only work on one of the pooled reader connections.
+     *
+     * @param work the work to run
+     * @return the result of the work
+     * @throws SQLException if the work fails or the database was closed
+     */
+    public <T> T read(SqlWork<T> work) throws SQLException {
+        SqlSession reader;
+        try {
+            reader = readers.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        if (closed) {
+            readers.add(reader);
+            throw new SQLException("The database is closed");
+        }
+        try {
+            return work.execute(reader);
+        } finally {
+            readers.add(reader);
+        }
+    }
+
+    /**
+     * Runs work in a transaction on the single writer connection.
+     *
+     * @param work the work to run
+     * @return the result of the work
+     * @throws SQLException if the work fails; the transaction is rolled back in that case
+     */
+    public <T> T write(SqlWork<T> work) throws SQLException {
+        synchronized (writer) {
+            Connection connection = writer.getConnection();
+            connection.setAutoCommit(false);
+            try {
+                T result = work.execute(writer);
+                connection.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    // Waits for the borrowed reader connections to be returned before closing them
+    private void close() {
+        closed = true;
+        synchronized (writer) {
+            writer.close();
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CLOSE_TIMEOUT_MILLIS);
+        try {
+            for (int i = 0; i < allReaders.size(); i++) {
+                if (readers.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS) == null) {
+                    System.err.println("Closing the database while a reader connection is still in use");
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (SqlSession reader : allReaders) {
+            reader.close();
+        }
+    }
+
+    private static Connection open(String url) throws SQLException {
+        Connection connection = DriverManager.getConnection(url);
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("PRAGMA journal_mode=WAL");
+            stmt.execute("PRAGMA synchronous=NORMAL");
+            stmt.execute("PRAGMA busy_timeout=5000");
+        }
+        return connection;
+    }
+}
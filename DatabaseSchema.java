@@ -0,0 +1,97 @@
+package nl.saxion.ptbc.database;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Creates the tables of {@code sasa.db}. Called once by the {@link Database} when it is opened.
+ * <p>
+ * Tables:
+ * <ul>
+ *     <li>{@code Obstacles} - the (x, z) coordinates of all discovered obstacles, unique on (x, z) quantized to 0.01.</li>
+ *     <li>{@code missions} - one row per recorded mission (session) with its start time and number of commands.</li>
+ *     <li>{@code mission_logs} - recorded drive commands with their timestamp, mission and offset from the start of the mission.</li>
+ *     <li>{@code sent_mission} - mission log entries that Ground Control sent to the Pilot, with the mission they belong to.</li>
+ *     <li>{@code occupancy_tiles} - tiles of the occupancy map that did not fit in memory, see {@link OccupancyTileStore}.</li>
+ * </ul>
+ */
+final class DatabaseSchema {
+
+    private DatabaseSchema() {
+    }
+
+    static void create(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS Obstacles (x REAL, z REAL, qx INTEGER, qz INTEGER)");
+            if (!hasColumn(stmt, "Obstacles", "qx")) {
+                migrateObstacles(stmt);
+            }
+            // duplicates are rejected by the database, see ObstacleDatabaseHandler.insertObstacles
+            stmt.execute("CREATE UNIQUE INDEX IF NOT EXISTS idx_obstacles_quantized ON Obstacles (qx, qz)");
+
+            stmt.execute("CREATE TABLE IF NOT EXISTS missions ("
+                    + "id INTEGER PRIMARY KEY AUTOINCREMENT,"
+                    + "started_at TEXT,"
+                    + "command_count INTEGER"
+                    + ")");
+
+            stmt.execute("CREATE TABLE IF NOT EXISTS mission_logs ("
+                    + "id INTEGER PRIMARY KEY AUTOINCREMENT,"
+                    + "timestamp TIMESTAMP DEFAULT CURRENT_TIMESTAMP,"
+                    + "command TEXT,"
+                    + "mission_id INTEGER,"
+                    + "offset_ms INTEGER"
+                    + ")");
+            if (!hasColumn(stmt, "mission_logs", "mission_id")) {
+                stmt.execute("ALTER TABLE mission_logs ADD COLUMN mission_id INTEGER");
+                stmt.execute("ALTER TABLE mission_logs ADD COLUMN offset_ms INTEGER");
+            }
+
+            // a whole mission is loaded for a replay in the order it was recorded
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_mission_logs_mission ON mission_logs (mission_id, offset_ms)");
+
+            // the mission log is paged and filtered by (timestamp, id)
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_mission_logs_timestamp ON mission_logs (timestamp, id)");
+
+            stmt.execute("CREATE TABLE IF NOT EXISTS sent_mission ("
+                    + "id INTEGER PRIMARY KEY AUTOINCREMENT,"
+                    + "command TEXT,"
+                    + "timestamp TEXT,"
+                    + "mission_id INTEGER"
+                    + ")");
+            if (!hasColumn(stmt, "sent_mission", "mission_id")) {
+                stmt.execute("ALTER TABLE sent_mission ADD COLUMN mission_id INTEGER");
+            }
+
+            stmt.execute("CREATE TABLE IF NOT EXISTS occupancy_tiles ("
+                    + "tile_x INTEGER,"
+                    + "tile_z INTEGER,"
+                    + "log_odds BLOB,"
+                    + "PRIMARY KEY (tile_x, tile_z)"
+                    + ")");
+        }
+        System.out.println("Database schema ensured.");
+    }
+
+    // Adds the quantized columns to an Obstacles table of an older version and removes its duplicates
+    private static void migrateObstacles(Statement stmt) throws SQLException {
+        stmt.execute("ALTER TABLE Obstacles ADD COLUMN qx INTEGER");
+        stmt.execute("ALTER TABLE Obstacles ADD COLUMN qz INTEGER");
+        stmt.execute("UPDATE Obstacles SET qx = CAST(ROUND(x * 100) AS INTEGER), qz = CAST(ROUND(z * 100) AS INTEGER)");
+        stmt.execute("DELETE FROM Obstacles WHERE rowid NOT IN (SELECT MIN(rowid) FROM Obstacles GROUP BY qx, qz)");
+        System.out.println("Obstacles table migrated to quantized coordinates.");
+    }
+
+    private static boolean hasColumn(Statement stmt, String table, String column) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next()) {
+                if (column.equalsIgnoreCase(rs.getString("name"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,51 @@
+package nl.saxion.ptbc.flightRecorder;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+
+/**
+ * The binary layout of the flight recorder files, shared by the {@link FlightRecorder} and the
+ * {@link FlightRecordingReader}. All numbers are little endian.
+ * <pre>
+ * segment: magic (int) | version (short) | reserved (short) | sequence (long) | records...
+ * record:  size (int, of the whole record) | type (byte) | timestamp (long, epoch nanoseconds) | payload
+ *
+ * START:       no payload, written when a recorder is opened
+ * STATUS:      x, y, z, angle, energy, solar (6 floats)
+ * RADAR_SWEEP: radarX, radarZ, radarAngle (3 floats) | count (int) | count times x, z (2 floats)
+ * </pre>
+ * A record size of 0 marks the end of the records in a segment. The sequence numbers of the segments
+ * give their order in the ring; a segment with another magic number was never written.
+ */
+final class FlightRecordFormat {
+    static final int MAGIC = 0x43455246; // "FREC"
+    static final short VERSION = 1;
+    static final int SEGMENT_HEADER_SIZE = 16;
+    static final int SEQUENCE_OFFSET = 8;
+
+    static final int RECORD_HEADER_SIZE = 13;
+    static final int TYPE_OFFSET = 4;
+    static final int TIMESTAMP_OFFSET = 5;
+    // room that is always kept free behind a record for the end marker
+    static final int END_MARKER_SIZE = 4;
+
+    static final byte START = 1;
+    static final byte STATUS = 2;
+    static final byte RADAR_SWEEP = 3;
+
+    static final int STATUS_SIZE = RECORD_HEADER_SIZE + 6 * Float.BYTES;
+    static final int RADAR_SWEEP_HEADER_SIZE = RECORD_HEADER_SIZE + 3 * Float.BYTES + Integer.BYTES;
+    static final int BLIP_SIZE = 2 * Float.BYTES;
+
+    private FlightRecordFormat() {
+    }
+
+    static Path segmentPath(Path directory, int slot) {
+        return directory.resolve("segment-" + slot + ".rec");
+    }
+
+    static ByteBuffer order(ByteBuffer buffer) {
+        return buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
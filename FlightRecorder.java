@@ -0,0 +1,193 @@
+package nl.saxion.ptbc.flightRecorder;
+
+import nl.saxion.ptbc.classes.RadarSweep;
+
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static nl.saxion.ptbc.flightRecorder.FlightRecordFormat.*;
+
+/**
+ * Records every status message and radar sweep of a mission in a ring of memory-mapped segment files.
+ * <p>
+ * The recorder writes straight into the mapped memory of the current segment, so recording is a few
+ * stores without system calls, locks or allocation; the operating system writes the pages to disk,
+ * also when the Pilot crashes. When a segment is full the recorder continues in the next one, and
+ * after the last one it overwrites the oldest, so the files never take more than
+ * {@code segmentSize * segments} bytes. A new recorder continues after the newest segment of the
+ * previous mission.
+ * <p>
+ * A recorder has a single writer: all {@code record} methods must be called from the same thread,
+ * in the Pilot the communicator thread. Recordings are read with {@link FlightRecordingReader}.
+ */
+public class FlightRecorder implements AutoCloseable {
+    public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+    public static final int DEFAULT_SEGMENTS = 8;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int segments;
+    // turns System.nanoTime() into epoch nanoseconds
+    private final long epochOffsetNanos;
+
+    private MappedByteBuffer buffer;
+    private int slot;
+    private long sequence;
+    private int position;
+    private long dropped;
+    private volatile boolean closed = false;
+
+    /**
+     * Opens a recorder with {@link #DEFAULT_SEGMENTS} segments of {@link #DEFAULT_SEGMENT_SIZE} bytes.
+     *
+     * @param directory the directory of the segment files, created if needed
+     * @throws IOException if the segment files cannot be created
+     */
+    public static FlightRecorder open(Path directory) throws IOException {
+        return new FlightRecorder(directory, DEFAULT_SEGMENT_SIZE, DEFAULT_SEGMENTS);
+    }
+
+    /**
+     * Opens a recorder.
+     *
+     * @param directory   the directory of the segment files, created if needed
+     * @param segmentSize the size of one segment file in bytes
+     * @param segments    the number of segment files in the ring
+     * @throws IOException if the segment files cannot be created
+     */
+    public FlightRecorder(Path directory, int segmentSize, int segments) throws IOException {
+        if (segmentSize <= SEGMENT_HEADER_SIZE + RECORD_HEADER_SIZE + END_MARKER_SIZE || segments < 1) {
+            throw new IllegalArgumentException("Segments too small or too few: " + segments + " x " + segmentSize);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.segments = segments;
+        this.epochOffsetNanos = System.currentTimeMillis() * 1_000_000 - System.nanoTime();
+        Files.createDirectories(directory);
+
+        // continue after the newest segment that is already there
+        FlightRecordingReader.Segment newest = null;
+        for (FlightRecordingReader.Segment segment : FlightRecordingReader.findSegments(directory)) {
+            if (segment.slot() < segments && (newest == null || segment.sequence() > newest.sequence())) {
+                newest = segment;
+            }
+        }
+        slot = newest == null ? segments - 1 : newest.slot();
+        sequence = newest == null ? 0 : newest.sequence();
+        nextSegment();
+        startRecord(START, RECORD_HEADER_SIZE);
+        publish(RECORD_HEADER_SIZE);
+    }
+
+    /**
+     * Records a {@code FROG STATUS} message.
+     */
+    public void recordStatus(double x, double y, double z, double angle, double energy, double solar) {
+        if (closed || !startRecord(STATUS, STATUS_SIZE)) {
+            return;
+        }
+        int p = position + RECORD_HEADER_SIZE;
+        buffer.putFloat(p, (float) x);
+        buffer.putFloat(p + 4, (float) y);
+        buffer.putFloat(p + 8, (float) z);
+        buffer.putFloat(p + 12, (float) angle);
+        buffer.putFloat(p + 16, (float) energy);
+        buffer.putFloat(p + 20, (float) solar);
+        publish(STATUS_SIZE);
+    }
+
+    /**
+     * Records a complete radar sweep, with the blips relative to the radar.
+     */
+    public void recordRadarSweep(RadarSweep sweep) {
+        int count = sweep.size();
+        int size = RADAR_SWEEP_HEADER_SIZE + count * BLIP_SIZE;
+        if (closed || !startRecord(RADAR_SWEEP, size)) {
+            return;
+        }
+        int p = position + RECORD_HEADER_SIZE;
+        buffer.putFloat(p, (float) sweep.getRadarX());
+        buffer.putFloat(p + 4, (float) sweep.getRadarZ());
+        buffer.putFloat(p + 8, (float) sweep.getRadarAngle());
+        buffer.putInt(p + 12, count);
+        p += 16;
+        for (int i = 0; i < count; i++) {
+            buffer.putFloat(p, (float) sweep.getX(i));
+            buffer.putFloat(p + 4, (float) sweep.getZ(i));
+            p += BLIP_SIZE;
+        }
+        publish(size);
+    }
+
+    /**
+     * Returns the number of records that were too large for a segment and were not recorded.
+     */
+    public long getDroppedCount() {
+        return dropped;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Stops recording and writes the current segment to disk.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        buffer.force();
+    }
+
+    // Makes room for a record and writes its type and timestamp, false if it can never fit
+    private boolean startRecord(byte type, int size) {
+        if (position + size + END_MARKER_SIZE > segmentSize) {
+            if (SEGMENT_HEADER_SIZE + size + END_MARKER_SIZE > segmentSize) {
+                dropped++;
+                return false;
+            }
+            try {
+                nextSegment();
+            } catch (IOException e) {
+                System.err.println("Flight recorder stopped, cannot map the next segment: " + e.getMessage());
+                closed = true;
+                return false;
+            }
+        }
+        buffer.put(position + TYPE_OFFSET, type);
+        buffer.putLong(position + TIMESTAMP_OFFSET, epochOffsetNanos + System.nanoTime());
+        return true;
+    }
+
+    // Ends the records after this one, then makes the record visible by writing its size
+    private void publish(int size) {
+        buffer.putInt(position + size, 0);
+        VarHandle.storeStoreFence();
+        buffer.putInt(position, size);
+        position += size;
+    }
+
+    private void nextSegment() throws IOException {
+        int nextSlot = (slot + 1) % segments;
+        try (FileChannel channel = FileChannel.open(segmentPath(directory, nextSlot),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            buffer = (MappedByteBuffer) order(channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+        }
+        slot = nextSlot;
+        sequence++;
+        // an overwritten segment is only valid again once its header and the end marker are written
+        buffer.putInt(0, 0);
+        buffer.putInt(SEGMENT_HEADER_SIZE, 0);
+        buffer.putShort(4, VERSION);
+        buffer.putShort(6, (short) 0);
+        buffer.putLong(SEQUENCE_OFFSET, sequence);
+        VarHandle.storeStoreFence();
+        buffer.putInt(0, MAGIC);
+        position = SEGMENT_HEADER_SIZE;
+    }
+}
@@ -0,0 +1,227 @@
+package nl.saxion.ptbc.flightRecorder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static nl.saxion.ptbc.flightRecorder.FlightRecordFormat.*;
+
+/**
+ * Reads what a {@link FlightRecorder} wrote, oldest record first, for analysis after a mission or to
+ * replay it.
+ * <p>
+ * {@link #forEach} hands every record to a {@link Listener}. {@link #replay} turns the records back
+ * into the messages of the Frog, so a recorded mission can be fed into {@code PilotApp.receive} or
+ * sent through a {@code SaSaServer}, in real time or faster.
+ * <p>
+ * A recording can be read while it is still being written; records that are written after a
+ * segment was read are not seen.
+ */
+public class FlightRecordingReader {
+
+    /**
+     * Receives the records of a recording. Every method has an empty default implementation.
+     * The timestamps are in nanoseconds since the epoch.
+     */
+    public interface Listener {
+        /**
+         * A recorder was opened, i.e. a new mission starts.
+         */
+        default void onStart(long timestamp) {
+        }
+
+        default void onStatus(long timestamp, double x, double y, double z, double angle, double energy, double solar) {
+        }
+
+        /**
+         * A complete radar sweep, the blips relative to the radar like in the {@code FROG RADAR BLIP} messages.
+         */
+        default void onRadarSweep(long timestamp, double radarX, double radarZ, double radarAngle, double[] xs, double[] zs) {
+        }
+    }
+
+    // A segment file in the ring and its sequence number
+    record Segment(int slot, long sequence, Path path) {
+    }
+
+    private final List<Segment> segments;
+
+    private FlightRecordingReader(List<Segment> segments) {
+        this.segments = segments;
+    }
+
+    /**
+     * Opens the recording in a directory.
+     *
+     * @param directory the directory the recorder wrote to
+     * @throws IOException if the directory cannot be read
+     */
+    public static FlightRecordingReader open(Path directory) throws IOException {
+        List<Segment> segments = findSegments(directory);
+        segments.sort(Comparator.comparingLong(Segment::sequence));
+        return new FlightRecordingReader(segments);
+    }
+
+    /**
+     * Returns the number of segments that contain records.
+     */
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Reads all records, oldest first.
+     *
+     * @param listener receives the records
+     * @throws IOException if a segment cannot be read
+     */
+    public void forEach(Listener listener) throws IOException {
+        for (Segment segment : segments) {
+            ByteBuffer buffer = map(segment.path());
+            if (buffer == null || buffer.getLong(SEQUENCE_OFFSET) != segment.sequence()) {
+                continue; // overwritten since it was found
+            }
+            int position = SEGMENT_HEADER_SIZE;
+            while (position + RECORD_HEADER_SIZE <= buffer.limit()) {
+                int size = buffer.getInt(position);
+                if (size < RECORD_HEADER_SIZE || position + size > buffer.limit()) {
+                    break;
+                }
+                long timestamp = buffer.getLong(position + TIMESTAMP_OFFSET);
+                int p = position + RECORD_HEADER_SIZE;
+                switch (buffer.get(position + TYPE_OFFSET)) {
+                    case START -> listener.onStart(timestamp);
+                    case STATUS -> listener.onStatus(timestamp,
+                            buffer.getFloat(p), buffer.getFloat(p + 4), buffer.getFloat(p + 8),
+                            buffer.getFloat(p + 12), buffer.getFloat(p + 16), buffer.getFloat(p + 20));
+                    case RADAR_SWEEP -> {
+                        int count = buffer.getInt(p + 12);
+                        if (count < 0 || RADAR_SWEEP_HEADER_SIZE + (long) count * BLIP_SIZE > size) {
+                            break;
+                        }
+                        double[] xs = new double[count];
+                        double[] zs = new double[count];
+                        for (int i = 0; i < count; i++) {
+                            xs[i] = buffer.getFloat(p + 16 + i * BLIP_SIZE);
+                            zs[i] = buffer.getFloat(p + 20 + i * BLIP_SIZE);
+                        }
+                        listener.onRadarSweep(timestamp,
+                                buffer.getFloat(p), buffer.getFloat(p + 4), buffer.getFloat(p + 8), xs, zs);
+                    }
+                    default -> {
+                        // a newer record type, skipped by its size
+                    }
+                }
+                position += size;
+            }
+        }
+    }
+
+    /**
+     * Sends the recording as the messages of the Frog: {@code FROG STATUS}, {@code FROG RADAR START}
+     * and one {@code FROG RADAR BLIP} per blip, with the original time between them divided by
+     * {@code speed}. The time between two missions of the recording is skipped.
+     *
+     * @param receiver receives the messages, e.g. {@code PilotApp::receive}
+     * @param speed    how much faster than real time, 0 to send without waiting
+     * @throws IOException          if a segment cannot be read
+     * @throws InterruptedException if the replay is interrupted while waiting
+     */
+    public void replay(Consumer<String> receiver, double speed) throws IOException, InterruptedException {
+        try {
+            forEach(new Listener() {
+                private long firstTimestamp;
+                private long startNanos;
+
+                @Override
+                public void onStart(long timestamp) {
+                    firstTimestamp = 0;
+                }
+
+                @Override
+                public void onStatus(long timestamp, double x, double y, double z, double angle, double energy, double solar) {
+                    waitFor(timestamp);
+                    receiver.accept(String.format(Locale.ROOT, "FROG STATUS %.2f %.2f %.2f %.2f %.2f %.2f",
+                            x, y, z, angle, energy, solar));
+                }
+
+                @Override
+                public void onRadarSweep(long timestamp, double radarX, double radarZ, double radarAngle, double[] xs, double[] zs) {
+                    waitFor(timestamp);
+                    receiver.accept(String.format(Locale.ROOT, "FROG RADAR START %.2f 0.00 %.2f %.2f",
+                            radarX, radarZ, radarAngle));
+                    for (int i = 0; i < xs.length; i++) {
+                        receiver.accept(String.format(Locale.ROOT, "FROG RADAR BLIP %.2f 0.25 %.2f", xs[i], zs[i]));
+                    }
+                }
+
+                private void waitFor(long timestamp) {
+                    if (speed <= 0) {
+                        return;
+                    }
+                    if (firstTimestamp == 0) {
+                        firstTimestamp = timestamp;
+                        startNanos = System.nanoTime();
+                        return;
+                    }
+                    long dueNanos = startNanos + (long) ((timestamp - firstTimestamp) / speed);
+                    long waitNanos = dueNanos - System.nanoTime();
+                    if (waitNanos > 0) {
+                        try {
+                            TimeUnit.NANOSECONDS.sleep(waitNanos);
+                        } catch (InterruptedException e) {
+                            throw new ReplayInterrupted(e);
+                        }
+                    }
+                }
+            });
+        } catch (ReplayInterrupted e) {
+            throw (InterruptedException) e.getCause();
+        }
+    }
+
+    // Carries an InterruptedException out of the listener
+    private static final class ReplayInterrupted extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        ReplayInterrupted(InterruptedException cause) {
+            super(cause);
+        }
+    }
+
+    // Finds the segments of a directory that have a valid header, in no particular order
+    static List<Segment> findSegments(Path directory) throws IOException {
+        List<Segment> found = new ArrayList<>();
+        for (int slot = 0; ; slot++) {
+            Path path = segmentPath(directory, slot);
+            if (!Files.exists(path)) {
+                return found;
+            }
+            ByteBuffer buffer = map(path);
+            if (buffer != null && buffer.getInt(0) == MAGIC && buffer.getShort(4) == VERSION) {
+                found.add(new Segment(slot, buffer.getLong(SEQUENCE_OFFSET), path));
+            }
+        }
+    }
+
+    private static ByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < SEGMENT_HEADER_SIZE) {
+                return null;
+            }
+            return order(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+}
@@ -1,74 +1,109 @@
 package nl.saxion.ptbc.classes;
 
-import javafx.application.Platform;
-import nl.saxion.ptbc.SaSaCommunicator;
+import nl.saxion.ptbc.metrics.FxQueue;
+import nl.saxion.ptbc.metrics.Metrics;
 import nl.saxion.ptbc.missionLog.MissionStatus;
 
 import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 public class Frog {
-    private double x, y, z, angle, energy, solar, radarX, radarZ, radarAngle;
-    private boolean arrived, activateMissionAutoDrive = false;
+    // Written by the communicator thread only, read by the autoDrive thread and the UI
+    private volatile FrogTelemetry telemetry = FrogTelemetry.INITIAL;
+    private volatile boolean arrived, activateMissionAutoDrive = false;
     private static final double arrivalDistance = 3.0;
-    private SaSaCommunicator sasa;
+    private CommandDispatcher sasa;
     private static ArrayList<Location> autoDriveMissions = new ArrayList<>();
 
+    // An autoDrive DRIVE command lasts 1 second, so an unchanged command is repeated after this interval
+    private static final long DRIVE_REFRESH_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+    // The running control loop, replaced by every call of autoDrive
+    private Task driveTask;
+    private volatile Thread driveThread;
+
+    // Obstacles closer than this are avoided, in a cone of this many degrees to either side of the heading
+    private static final double SAFE_DISTANCE = 10.0;
+    private static final double CONE_WIDTH = 10.0;
+    private RadarSweep blockedBearingsSweep;
+    private BlockedBearings blockedBearings;
+    // Plans the route around the known obstacles, without it the Frog steers straight to the destination
+    private PathPlanner pathPlanner;
+
     public Frog() {
     }
 
     public Frog(double x, double y, double z, double angle, double energy, double solar) {
-        this.x = x;
-        this.y = y;
-        this.z = z;
-        this.angle = angle;
-        this.energy = energy;
-        this.solar = solar;
+        this.telemetry = FrogTelemetry.INITIAL.withStatus(x, y, z, angle, energy, solar);
+    }
+
+    public void addCommunicatorToFrog(CommandDispatcher commandDispatcher) {
+        this.sasa = commandDispatcher;
     }
 
-    public void addCommunicatorToFrog(SaSaCommunicator saSaCommunicator) {
-        this.sasa = saSaCommunicator;
+    public void addPathPlannerToFrog(PathPlanner pathPlanner) {
+        this.pathPlanner = pathPlanner;
     }
 
+    /**
+     * Publishes a new status of the Frog. Must only be called from the communicator thread.
+     */
     public void update(double x, double y, double z, double angle, double energy, double solar) {
-        this.x = x;
-        this.y = y;
-        this.z = z;
-        this.angle = angle;
-        this.energy = energy;
-        this.solar = solar;
+        telemetry = telemetry.withStatus(x, y, z, angle, energy, solar);
+        signalInputsChanged();
     }
 
+    /**
+     * Publishes the radar position of a new sweep. Must only be called from the communicator thread.
+     */
     public void updateRadar(double x, double z, double angle) {
-        this.radarX = x;
-        this.radarZ = z;
-        this.radarAngle = angle;
+        telemetry = telemetry.withRadar(x, z, angle);
+    }
+    /**
+     * Tells the autoDrive control loop that a radar sweep is complete and the obstacles can be re-evaluated.
+     */
+    public void radarSweepComplete() {
+        signalInputsChanged();
+    }
+
+    // Wakes up the control loop, which is parked until its inputs change
+    private void signalInputsChanged() {
+        Thread thread = driveThread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
     }
+
     //Getters
 
 
+    public FrogTelemetry getTelemetry() {
+        return telemetry;
+    }
+
     public double getX() {
-        return x;
+        return telemetry.x();
     }
 
     public double getY() {
-        return y;
+        return telemetry.y();
     }
 
     public double getZ() {
-        return z;
+        return telemetry.z();
     }
 
     public double getRadarX() {
-        return radarX;
+        return telemetry.radarX();
     }
 
     public double getRadarZ() {
-        return radarZ;
+        return telemetry.radarZ();
     }
 
     public double getRadarAngle() {
-        return radarAngle;
+        return telemetry.radarAngle();
     }
 
     //Getters
@@ -76,75 +111,146 @@ public class Frog {
         return autoDriveMissions;
     }
 
-    public void autoDrive(LinkedList<Location> destinations, ArrayList<Obstacle> notConvertedObstacles) {
+    /**
+     * Drives the Frog to the given destinations one after another.
+     * <p>
+     * A Frog has at most one control loop: a new call cancels the running one, and the new loop only
+     * starts once the old one has stopped, so two loops never send DRIVE commands at the same time.
+     * <p>
+     * The control loop runs as a {@link Task} on a virtual thread that is parked until a new {@code FROG STATUS}
+     * or a completed radar sweep arrives. Every round reads one {@link FrogTelemetry} snapshot, and
+     * the heading is only recomputed when the sequence of the status or of the sweep changed.
+     * A DRIVE command is only sent when it differs from the previous one, or when the previous one
+     * is about to expire.
+     * <p>
+     * With a {@link PathPlanner} the Frog steers towards the next waypoint of the planned route
+     * around the known obstacles; the radar scan is only used to avoid obstacles that are not on the map yet.
+     *
+     * @param destinations the destinations to drive to, in order
+     * @param radar        the buffer that publishes the complete radar sweeps
+     */
+    public synchronized void autoDrive(LinkedList<Location> destinations, RadarSweepBuffer radar) {
+        Task previous = driveTask;
+        if (previous != null) {
+            previous.cancel();
+        }
         //for autoDrive missionLog (Elham)
         arrived = false;
         //when auto drive reached destination -> arrived = true
-        new Thread(() -> {
-            int index = 1;
-
-            System.out.println("🚀 Starting autoDrive with " + destinations.size() + " destinations");
+        driveTask = Tasks.start("AutoDrive", () -> {
+            if (previous != null) {
+                try {
+                    previous.await();
+                } catch (InterruptedException e) {
+                    return; // replaced again before it started
+                }
+            }
+            driveThread = Thread.currentThread();
+            drive(destinations, radar);
+        });
+    }
 
-            while (!destinations.isEmpty()) {
-                Location destination = destinations.getFirst();
+    /**
+     * Stops the control loop of the autoDrive, if it is running.
+     */
+    public synchronized void cancelAutoDrive() {
+        if (driveTask != null) {
+            driveTask.cancel();
+        }
+    }
 
-                int currentIndex = index++;
-                Platform.runLater(() -> MissionStatus.logDestination(currentIndex, destination));
+    // The control loop, runs on the AutoDrive task until all destinations are reached or it is cancelled
+    private void drive(LinkedList<Location> destinations, RadarSweepBuffer radar) {
+        int index = 1;
+        String lastCommand = null;
+        long lastSentAt = 0;
+
+        System.out.println("🚀 Starting autoDrive with " + destinations.size() + " destinations");
+
+        while (!destinations.isEmpty()) {
+            Location destination = destinations.getFirst();
+
+            int currentIndex = index++;
+            FxQueue.runLater(() -> MissionStatus.logDestination(currentIndex, destination));
+            // sequences of the last status and sweep the heading was computed for
+            long seenStatus = -1;
+            long seenSweep = -1;
+            if (pathPlanner != null) {
+                FrogTelemetry current = telemetry;
+                pathPlanner.setDestination(destination, current.x(), current.z());
+            }
 
-                while (true) {
-                    if (!activateMissionAutoDrive) {
-                        if (!Map.getAutodriveMarkers().containsKey(destination)) {
-                            System.out.println("⛔ Destination was manually removed: " + destination);
-                            destinations.remove(destination);
-                            break;
-                        }
+            while (true) {
+                if (Thread.currentThread().isInterrupted()) {
+                    System.out.println("AutoDrive cancelled.");
+                    return;
+                }
+                if (!activateMissionAutoDrive) {
+                    if (!Map.getAutodriveMarkers().containsKey(destination)) {
+                        System.out.println("⛔ Destination was manually removed: " + destination);
+                        destinations.remove(destination);
+                        break;
                     }
+                }
 
-                    double dx = destination.getX() - x;
-                    double dz = destination.getZ() - z;
-                    double distance = Math.sqrt(dx * dx + dz * dz);
-
-                    if (distance < arrivalDistance) {
-                        Location reached = destinations.removeFirst();
-                        Map.getAutodriveMarkers().remove(reached);
-                        Platform.runLater(Map::drawAutoDriveMap);
-                        Platform.runLater(() -> MissionStatus.logArrived(reached));
-                        sasa.send("DRIVE 0 0 0");
-                        arrived = true;
-                        break;
+                FrogTelemetry current = telemetry;
+                RadarSweep snapshot = radar.getLatest();
+                if (current.sequence() == seenStatus && snapshot.getSequence() == seenSweep) {
+                    // nothing new, only repeat the current command before it expires
+                    if (lastCommand != null && System.nanoTime() - lastSentAt >= DRIVE_REFRESH_NANOS) {
+                        sasa.send(lastCommand);
+                        lastSentAt = System.nanoTime();
                     }
+                    LockSupport.parkNanos(this, DRIVE_REFRESH_NANOS);
+                    continue;
+                }
+                seenStatus = current.sequence();
+                seenSweep = snapshot.getSequence();
+
+                double dx = destination.getX() - current.x();
+                double dz = destination.getZ() - current.z();
+                double distance = Math.sqrt(dx * dx + dz * dz);
+
+                if (distance < arrivalDistance) {
+                    Location reached = destinations.removeFirst();
+                    Map.getAutodriveMarkers().remove(reached);
+                    FxQueue.runLater(Map::drawAutoDriveMap);
+                    FxQueue.runLater(() -> MissionStatus.logArrived(reached));
+                    sasa.send("DRIVE 0 0 0");
+                    lastCommand = null;
+                    arrived = true;
+                    break;
+                }
 
-                    double head = 0;
-                    ArrayList<Obstacle> snapshot = new ArrayList<>(notConvertedObstacles);
+                double head = 0;
 
-                    boolean nearObstacle = scan(snapshot);
-                    double targetAngle = angleToPoint(destination);
-                    double angleDiff = normalizeAngle(targetAngle - angle);
+                boolean nearObstacle = scan(snapshot);
+                Location waypoint = pathPlanner == null ? null : pathPlanner.nextWaypoint(current.x(), current.z());
+                double targetAngle = angleToPoint(current, waypoint == null ? destination : waypoint);
+                double angleDiff = normalizeAngle(targetAngle - current.angle());
 
-                    if (!nearObstacle) {
-                        if (angleDiff >= 20) head = 5;
-                        else if (angleDiff <= -20) head = -5;
-                    }
+                if (!nearObstacle) {
+                    if (angleDiff >= 20) head = 5;
+                    else if (angleDiff <= -20) head = -5;
+                }
 
-                    head = scanObstaclesAhead(head, snapshot);
-                    String command = String.format("DRIVE 0.4 %.2f 1.0", head);
+                head = scanObstaclesAhead(head, snapshot);
+                String command = String.format("DRIVE 0.4 %.2f 1.0", head);
+                if (!command.equals(lastCommand) || System.nanoTime() - lastSentAt >= DRIVE_REFRESH_NANOS) {
                     sasa.send(command);
-                    System.out.println("AutoDrive: " + command);
-
-                    try {
-                        Thread.sleep(50);
-                    } catch (InterruptedException e) {
-                        System.out.println("AutoDrive thread interrupted.");
-                        return;
+                    lastCommand = command;
+                    lastSentAt = System.nanoTime();
+                    Metrics.DRIVE_COMMANDS.increment();
+                    if (current.sequence() > 0) {
+                        Metrics.STATUS_TO_DRIVE.record(lastSentAt - current.receivedAt());
                     }
                 }
             }
+        }
 
-            Platform.runLater(MissionStatus::finishedMission);
-            activateMissionAutoDrive = false;
-            sasa.send("DRIVE 0 0 0");
-
-        }).start();
+        FxQueue.runLater(MissionStatus::finishedMission);
+        activateMissionAutoDrive = false;
+        sasa.send("DRIVE 0 0 0");
     }
 
     /**
@@ -156,23 +262,33 @@ public class Frog {
      * The frog's progress is monitored until it reaches the destination, at which point
      * the location is removed from the mission log.</p>
      */
-    public void autoDriveMissionLog(ArrayList<Obstacle> notConvertedObstacles) {
+    public void autoDriveMissionLog(RadarSweepBuffer radar) {
         LinkedList<Location> missionQueue = new LinkedList<>(autoDriveMissions);
         MissionStatus.startMission();
         MissionStatus.setMissions(new ArrayList<>(autoDriveMissions));
-        autoDrive(missionQueue, notConvertedObstacles);
+        autoDrive(missionQueue, radar);
         activateMissionAutoDrive = true;
     }
 
-    public double scanObstaclesAhead(double angle, ArrayList<Obstacle> snapshot) {
+    /**
+     * Finds the heading closest to {@code angle} that is free of obstacles of the sweep.
+     * <p>
+     * The blocked headings are computed once per sweep into a {@link BlockedBearings} bitmap, after
+     * which every candidate heading (up to 30 degrees to either side, in steps of 5) is a single lookup.
+     *
+     * @param angle    the preferred heading relative to the Frog
+     * @param snapshot the latest complete radar sweep
+     * @return the closest free heading, or {@code angle} if there is none
+     */
+    public double scanObstaclesAhead(double angle, RadarSweep snapshot) {
 
-        final double safeDistance = 10.0;
         final double angleStep = 5.0;
         final double angleLimit = 30.0;
-        final double coneWidth = 10.0;
+
+        BlockedBearings blocked = blockedBearings(snapshot);
 
         // checking if the current angle is safe
-        if (!isObstacleInPath(angle, snapshot, safeDistance, coneWidth)) {
+        if (!blocked.isBlocked(angle)) {
             return angle;
         }
 
@@ -181,11 +297,11 @@ public class Frog {
             double leftAngle = normalizeAngle(angle - prediction);
             double rightAngle = normalizeAngle(angle + prediction);
 
-            if (!isObstacleInPath(leftAngle, snapshot, safeDistance, coneWidth)) {
+            if (!blocked.isBlocked(leftAngle)) {
                 return leftAngle;
             }
 
-            if (!isObstacleInPath(rightAngle, snapshot, safeDistance, coneWidth)) {
+            if (!blocked.isBlocked(rightAngle)) {
                 return rightAngle;
             }
         }
@@ -196,43 +312,28 @@ public class Frog {
 
     }
 
-    private boolean isObstacleInPath(double angle, ArrayList<Obstacle> obstacles, double safeDistance, double coneWidth) {
-        for (Obstacle o : obstacles) {
-            double x = o.getLocation().getX();
-            double z = o.getLocation().getZ();
-            double distance = Math.sqrt(x * x + z * z);
-
-            if (distance > safeDistance) continue;
-
-            double obstacleAngle = normalizeAngle(Math.toDegrees(Math.atan2(z, x)));
-            double diff = normalizeAngle(obstacleAngle - angle - 90);
-
-            if (Math.abs(diff) <= coneWidth) {
-                System.err.println("🔴 Obstacle detected at " + distance + " meters, angle: " + diff);
-                return true;
-            }
+    // Only used by the autoDrive thread, rebuilt when a new sweep is published
+    private BlockedBearings blockedBearings(RadarSweep snapshot) {
+        if (snapshot != blockedBearingsSweep) {
+            blockedBearings = BlockedBearings.of(snapshot, SAFE_DISTANCE, CONE_WIDTH);
+            blockedBearingsSweep = snapshot;
         }
-        return false;
+        return blockedBearings;
     }
 
 
-    public boolean scan(ArrayList<Obstacle> snapshot) {
-        for (Obstacle o : snapshot) {
-            double oXDistance = o.getLocation().getX();
-            double oZDistance = o.getLocation().getZ();
-            double oDistance = Math.sqrt(oXDistance * oXDistance + oZDistance * oZDistance);
-
-            if (oDistance < 10) {
-                return true;
-            }
-        }
-        return false;
+    public boolean scan(RadarSweep snapshot) {
+        return snapshot.getMinDistance() < SAFE_DISTANCE;
     }
 
     public double angleToPoint(Location destination) {
+        return angleToPoint(telemetry, destination);
+    }
+
+    private double angleToPoint(FrogTelemetry from, Location destination) {
 
-        double dx = destination.getX() - x;
-        double dz = destination.getZ() - z;
+        double dx = destination.getX() - from.x();
+        double dz = destination.getZ() - from.z();
 
         double angle = Math.toDegrees(Math.atan2(dx, dz));
         return normalizeAngle(angle);
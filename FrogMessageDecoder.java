@@ -0,0 +1,325 @@
+package nl.saxion.ptbc.pilot;
+
+/**
+ * The {@code FrogMessageDecoder} turns a single line of the SaSa text protocol into a typed event.
+ * <p>
+ * The line is tokenized exactly once into start/end offsets, the message type is chosen by comparing
+ * the first tokens in place, and numbers are parsed straight from the characters of the line.
+ * No arrays, substrings or event objects are allocated for well-formed messages: every call fills
+ * one of the reusable event objects held by the decoder.
+ * <p>
+ * Because the events are reused, a decoder must only be used from one thread (the communicator
+ * thread in the {@link PilotApp}), and the values of an event must be copied before handing them
+ * to another thread, e.g. through {@code Platform.runLater}.
+ */
+public class FrogMessageDecoder {
+
+    /**
+     * The kinds of messages the decoder recognises.
+     */
+    public enum MessageType {
+        STATUS,
+        RADAR_START,
+        RADAR_BLIP,
+        GO_TO,
+        PILOT_DRIVE,
+        OTHER,
+        MALFORMED
+    }
+
+    private static final int MAX_TOKENS = 16;
+    private static final int MAX_FAST_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final int[] tokenStart = new int[MAX_TOKENS];
+    private final int[] tokenEnd = new int[MAX_TOKENS];
+    private int tokenCount;
+    private CharSequence line;
+
+    private final StatusEvent statusEvent = new StatusEvent();
+    private final RadarStartEvent radarStartEvent = new RadarStartEvent();
+    private final RadarBlipEvent radarBlipEvent = new RadarBlipEvent();
+    private final GoToEvent goToEvent = new GoToEvent();
+
+    /**
+     * Decodes one message and fills the matching event.
+     * <p>
+     * Supported formats:
+     * <ul>
+     *   <li>{@code FROG STATUS <x> <y> <z> <angle> <energy> <solar>}</li>
+     *   <li>{@code FROG RADAR START <x> <y> <z> <angle>}</li>
+     *   <li>{@code FROG RADAR BLIP <x> <y> <z>}</li>
+     *   <li>{@code GROUND_CONTROL GO TO <x> <z>} (a comma is accepted as decimal separator)</li>
+     *   <li>{@code PILOT DRIVE ...}</li>
+     * </ul>
+     * Messages with fewer than three tokens, or a known message with missing or invalid numbers,
+     * are reported as {@link MessageType#MALFORMED}.
+     *
+     * @param message the raw line received from the SaSa server
+     * @return the type of the message; the matching event getter holds the decoded values
+     */
+    public MessageType decode(CharSequence message) {
+        this.line = message;
+        tokenize();
+
+        if (tokenCount < 3) {
+            return MessageType.MALFORMED;
+        }
+
+        try {
+            if (tokenEquals(0, "FROG")) {
+                if (tokenEquals(1, "STATUS")) {
+                    return decodeStatus();
+                }
+                if (tokenEquals(1, "RADAR")) {
+                    if (tokenEquals(2, "BLIP")) {
+                        return decodeRadarBlip();
+                    }
+                    if (tokenEquals(2, "START")) {
+                        return decodeRadarStart();
+                    }
+                }
+                return MessageType.OTHER;
+            }
+            if (tokenEquals(0, "GROUND_CONTROL") && tokenEquals(1, "GO") && tokenEquals(2, "TO")) {
+                return decodeGoTo();
+            }
+            if (tokenEquals(0, "PILOT") && tokenEquals(1, "DRIVE")) {
+                return MessageType.PILOT_DRIVE;
+            }
+        } catch (NumberFormatException e) {
+            return MessageType.MALFORMED;
+        }
+        return MessageType.OTHER;
+    }
+
+    private MessageType decodeStatus() {
+        if (tokenCount < 8) return MessageType.MALFORMED;
+        statusEvent.x = parseDouble(2, false);
+        statusEvent.y = parseDouble(3, false);
+        statusEvent.z = parseDouble(4, false);
+        statusEvent.angle = parseDouble(5, false);
+        statusEvent.energy = parseDouble(6, false);
+        statusEvent.solar = parseDouble(7, false);
+        return MessageType.STATUS;
+    }
+
+    private MessageType decodeRadarStart() {
+        if (tokenCount < 7) return MessageType.MALFORMED;
+        radarStartEvent.x = parseDouble(3, false);
+        radarStartEvent.y = parseDouble(4, false);
+        radarStartEvent.z = parseDouble(5, false);
+        radarStartEvent.angle = parseDouble(6, false);
+        return MessageType.RADAR_START;
+    }
+
+    private MessageType decodeRadarBlip() {
+        if (tokenCount < 6) return MessageType.MALFORMED;
+        radarBlipEvent.x = parseDouble(3, false);
+        radarBlipEvent.y = parseDouble(4, false);
+        radarBlipEvent.z = parseDouble(5, false);
+        return MessageType.RADAR_BLIP;
+    }
+
+    private MessageType decodeGoTo() {
+        if (tokenCount < 5) return MessageType.MALFORMED;
+        // typed in by hand on Ground Control, where the locale may use a comma
+        goToEvent.x = parseDouble(3, true);
+        goToEvent.z = parseDouble(4, true);
+        return MessageType.GO_TO;
+    }
+
+    // Stores the start and end offset of every space separated token, runs of spaces are skipped
+    private void tokenize() {
+        tokenCount = 0;
+        int length = line.length();
+        int i = 0;
+        while (i < length && tokenCount < MAX_TOKENS) {
+            while (i < length && line.charAt(i) == ' ') i++;
+            if (i == length) break;
+            tokenStart[tokenCount] = i;
+            while (i < length && line.charAt(i) != ' ') i++;
+            tokenEnd[tokenCount] = i;
+            tokenCount++;
+        }
+    }
+
+    private boolean tokenEquals(int token, String expected) {
+        int start = tokenStart[token];
+        int length = tokenEnd[token] - start;
+        if (length != expected.length()) return false;
+        for (int i = 0; i < length; i++) {
+            if (line.charAt(start + i) != expected.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Parses a decimal number directly from the characters of a token.
+     * <p>
+     * Plain decimals with at most 15 significant digits are converted with a single exact division,
+     * which gives the same result as {@link Double#parseDouble(String)}. Anything else (exponents,
+     * very long mantissas, NaN) falls back to {@code Double.parseDouble}.
+     *
+     * @param commaDecimal whether a comma is accepted as decimal separator instead of a point
+     */
+    private double parseDouble(int token, boolean commaDecimal) {
+        int start = tokenStart[token];
+        int end = tokenEnd[token];
+        int i = start;
+
+        boolean negative = false;
+        char c = line.charAt(i);
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int significantDigits = 0;
+        int fractionDigits = 0;
+        boolean seenDigit = false;
+        boolean seenPoint = false;
+
+        for (; i < end; i++) {
+            c = line.charAt(i);
+            if (c >= '0' && c <= '9') {
+                seenDigit = true;
+                if (mantissa != 0 || c != '0') {
+                    if (++significantDigits > MAX_FAST_DIGITS) {
+                        return parseDoubleSlow(start, end, commaDecimal);
+                    }
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if (seenPoint) fractionDigits++;
+            } else if ((c == '.' || (c == ',' && commaDecimal)) && !seenPoint) {
+                seenPoint = true;
+            } else {
+                return parseDoubleSlow(start, end, commaDecimal);
+            }
+        }
+
+        if (!seenDigit) {
+            throw new NumberFormatException("Not a number: " + line.subSequence(start, end));
+        }
+        if (fractionDigits >= POWERS_OF_TEN.length) {
+            return parseDoubleSlow(start, end, commaDecimal);
+        }
+
+        double value = fractionDigits == 0 ? mantissa : mantissa / POWERS_OF_TEN[fractionDigits];
+        return negative ? -value : value;
+    }
+
+    private double parseDoubleSlow(int start, int end, boolean commaDecimal) {
+        String number = line.subSequence(start, end).toString();
+        return Double.parseDouble(commaDecimal ? number.replace(',', '.') : number);
+    }
+
+    //Getters
+    public StatusEvent getStatusEvent() {
+        return statusEvent;
+    }
+
+    public RadarStartEvent getRadarStartEvent() {
+        return radarStartEvent;
+    }
+
+    public RadarBlipEvent getRadarBlipEvent() {
+        return radarBlipEvent;
+    }
+
+    public GoToEvent getGoToEvent() {
+        return goToEvent;
+    }
+
+    /**
+     * Position, heading and power of the Frog from a {@code FROG STATUS} message.
+     */
+    public static final class StatusEvent {
+        private double x, y, z, angle, energy, solar;
+
+        public double getX() {
+            return x;
+        }
+
+        public double getY() {
+            return y;
+        }
+
+        public double getZ() {
+            return z;
+        }
+
+        public double getAngle() {
+            return angle;
+        }
+
+        public double getEnergy() {
+            return energy;
+        }
+
+        public double getSolar() {
+            return solar;
+        }
+    }
+
+    /**
+     * Radar origin and heading from a {@code FROG RADAR START} message.
+     */
+    public static final class RadarStartEvent {
+        private double x, y, z, angle;
+
+        public double getX() {
+            return x;
+        }
+
+        public double getY() {
+            return y;
+        }
+
+        public double getZ() {
+            return z;
+        }
+
+        public double getAngle() {
+            return angle;
+        }
+    }
+
+    /**
+     * Obstacle position relative to the radar from a {@code FROG RADAR BLIP} message.
+     */
+    public static final class RadarBlipEvent {
+        private double x, y, z;
+
+        public double getX() {
+            return x;
+        }
+
+        public double getY() {
+            return y;
+        }
+
+        public double getZ() {
+            return z;
+        }
+    }
+
+    /**
+     * Destination from a {@code GROUND_CONTROL GO TO} message.
+     */
+    public static final class GoToEvent {
+        private double x, z;
+
+        public double getX() {
+            return x;
+        }
+
+        public double getZ() {
+            return z;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package nl.saxion.ptbc.frog;
+
+import nl.saxion.ptbc.SaSaCommunicator;
+import nl.saxion.ptbc.classes.Task;
+import nl.saxion.ptbc.classes.Tasks;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs a {@link SimulatedFrog} behind a {@link SaSaServer}, so the Pilot and Ground Control can be
+ * started and load tested without TheFrog.exe, e.g. on Linux.
+ * <p>
+ * The simulation runs as one {@link Task}. Status messages and radar sweeps are sent at fixed rates in
+ * simulated time, and simulated time runs {@code timeScale} times as fast as the clock, so a time
+ * scale of 10 sends ten times as many messages per second as the same rates would in real time.
+ * <p>
+ * Standalone, for a soak test:
+ * {@code java nl.saxion.ptbc.frog.FrogSimulator --time-scale 50 --status-rate 10 --radar-rate 2 --rays 720}
+ * <p>
+ * Options, with their defaults: {@code --port 50000}, {@code --status-rate 10} and {@code --radar-rate 2}
+ * (per simulated second), {@code --rays 360}, {@code --range 50}, {@code --rocks 20000},
+ * {@code --field-size 2000}, {@code --seed 42}, {@code --time-scale 1}.
+ */
+public final class FrogSimulator implements AutoCloseable {
+    private static final double PHYSICS_RATE = 50;
+    private static final long REPORT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final SaSaServer server;
+    private final SimulatedFrog frog;
+    private final Settings settings;
+    private final Queue<String> incoming = new ConcurrentLinkedQueue<>();
+    private final Task simulation;
+    private volatile Thread simulationThread;
+    private volatile boolean closing = false;
+
+    /**
+     * The settings of a simulation, see the class comment for their meaning.
+     */
+    public record Settings(int port, double statusRate, double radarRate, int rays, double range,
+                           int rocks, double fieldSize, long seed, double timeScale) {
+
+        public static final Settings DEFAULT = new Settings(SaSaCommunicator.DEFAULT_PORT,
+                10, 2, 360, 50, 20_000, 2_000, 42, 1);
+
+        /**
+         * Reads the settings from {@code --name value} pairs, using the defaults for missing ones.
+         *
+         * @throws IllegalArgumentException for an unknown option or a missing value
+         */
+        public static Settings parse(String[] args) {
+            int port = DEFAULT.port;
+            double statusRate = DEFAULT.statusRate;
+            double radarRate = DEFAULT.radarRate;
+            int rays = DEFAULT.rays;
+            double range = DEFAULT.range;
+            int rocks = DEFAULT.rocks;
+            double fieldSize = DEFAULT.fieldSize;
+            long seed = DEFAULT.seed;
+            double timeScale = DEFAULT.timeScale;
+
+            for (int i = 0; i < args.length; i += 2) {
+                if (i + 1 == args.length) {
+                    throw new IllegalArgumentException("Missing value for " + args[i]);
+                }
+                String value = args[i + 1];
+                switch (args[i]) {
+                    case "--port" -> port = Integer.parseInt(value);
+                    case "--status-rate" -> statusRate = Double.parseDouble(value);
+                    case "--radar-rate" -> radarRate = Double.parseDouble(value);
+                    case "--rays" -> rays = Integer.parseInt(value);
+                    case "--range" -> range = Double.parseDouble(value);
+                    case "--rocks" -> rocks = Integer.parseInt(value);
+                    case "--field-size" -> fieldSize = Double.parseDouble(value);
+                    case "--seed" -> seed = Long.parseLong(value);
+                    case "--time-scale" -> timeScale = Double.parseDouble(value);
+                    default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            }
+            if (statusRate <= 0 || radarRate <= 0 || rays <= 0 || timeScale <= 0) {
+                throw new IllegalArgumentException("Rates, rays and time scale must be positive");
+            }
+            return new Settings(port, statusRate, radarRate, rays, range, rocks, fieldSize, seed, timeScale);
+        }
+    }
+
+    /**
+     * Generates the field, opens the server and starts the simulation.
+     *
+     * @throws IOException if the port of the server cannot be opened
+     */
+    public FrogSimulator(Settings settings) throws IOException {
+        this.settings = settings;
+        ObstacleField field = new ObstacleField(settings.fieldSize(), settings.rocks(), settings.seed());
+        this.server = new SaSaServer(settings.port());
+        this.frog = new SimulatedFrog(field, message -> server.broadcast("FROG " + message),
+                settings.rays(), settings.range());
+        server.addLocalListener(line -> {
+            // the messages of the Frog itself come back as well
+            if (!line.startsWith("FROG ")) {
+                incoming.add(line);
+                LockSupport.unpark(simulationThread);
+            }
+        });
+        simulation = Tasks.start("FrogSimulator", this::run);
+        System.out.println("Simulated Frog started with " + field.getRockCount() + " rocks, " + settings);
+    }
+
+    /**
+     * Stops the simulation and the server.
+     */
+    @Override
+    public void close() {
+        closing = true;
+        LockSupport.unpark(simulationThread);
+        try {
+            simulation.await(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        server.close();
+    }
+
+    //Getters
+    public SaSaServer getServer() {
+        return server;
+    }
+
+    // The next time of every task is kept in simulated nanoseconds since the start
+    private void run() {
+        simulationThread = Thread.currentThread();
+        long physicsInterval = intervalNanos(PHYSICS_RATE);
+        long statusInterval = intervalNanos(settings.statusRate());
+        long radarInterval = intervalNanos(settings.radarRate());
+        long nextPhysics = physicsInterval;
+        long nextStatus = statusInterval;
+        long nextRadar = radarInterval;
+
+        long started = System.nanoTime();
+        long nextReport = started + REPORT_INTERVAL_NANOS;
+        long reportedMessages = 0;
+
+        while (!closing) {
+            String line;
+            while ((line = incoming.poll()) != null) {
+                frog.handle(line);
+            }
+
+            long wallNow = System.nanoTime();
+            long simNow = (long) ((wallNow - started) * settings.timeScale());
+            while (nextPhysics <= simNow) {
+                frog.step(1.0 / PHYSICS_RATE);
+                nextPhysics += physicsInterval;
+            }
+            if (nextStatus <= simNow) {
+                frog.sendStatus();
+                // when the simulation cannot keep up, messages are skipped instead of sent in a burst
+                nextStatus = Math.max(nextStatus + statusInterval, simNow);
+            }
+            if (nextRadar <= simNow) {
+                frog.sendRadarSweep();
+                nextRadar = Math.max(nextRadar + radarInterval, simNow);
+            }
+
+            if (wallNow >= nextReport) {
+                long messages = server.getMessageCount();
+                System.out.printf("Simulated Frog at (%.1f, %.1f), %d clients, %d messages/s, %d dropped%n",
+                        frog.getX(), frog.getZ(), server.getClientCount(),
+                        (messages - reportedMessages) * TimeUnit.SECONDS.toNanos(1) / REPORT_INTERVAL_NANOS,
+                        server.getDroppedCount());
+                reportedMessages = messages;
+                nextReport += REPORT_INTERVAL_NANOS;
+            }
+
+            long nextTask = Math.min(nextPhysics, Math.min(nextStatus, nextRadar));
+            long sleepNanos = (long) ((nextTask - simNow) / settings.timeScale());
+            if (sleepNanos > 0) {
+                LockSupport.parkNanos(this, sleepNanos);
+            }
+        }
+    }
+
+    private static long intervalNanos(double rate) {
+        return Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / rate));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Settings settings;
+        try {
+            settings = Settings.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: FrogSimulator [--port n] [--status-rate hz] [--radar-rate hz] [--rays n] "
+                    + "[--range m] [--rocks n] [--field-size m] [--seed n] [--time-scale x]");
+            System.exit(1);
+            return;
+        }
+        FrogSimulator simulator = new FrogSimulator(settings);
+        Runtime.getRuntime().addShutdownHook(new Thread(simulator::close));
+        simulator.simulation.await();
+    }
+}
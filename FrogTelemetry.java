@@ -0,0 +1,32 @@
+package nl.saxion.ptbc.classes;
+
+/**
+ * An immutable snapshot of everything the Frog reported about itself.
+ * <p>
+ * Position, heading and power come from the last {@code FROG STATUS} message, the radar position and
+ * heading from the last {@code FROG RADAR START}. The {@link Frog} publishes a new snapshot through a
+ * single volatile reference for every message, so a reader always sees values that belong together.
+ *
+ * @param sequence   the number of status messages so far, it only changes when a new status arrives
+ * @param receivedAt the {@link System#nanoTime()} at which the last status arrived
+ */
+public record FrogTelemetry(long sequence, long receivedAt,
+                            double x, double y, double z, double angle, double energy, double solar,
+                            double radarX, double radarZ, double radarAngle) {
+
+    public static final FrogTelemetry INITIAL = new FrogTelemetry(0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0);
+
+    /**
+     * Returns the next snapshot with the values of a new status message.
+     */
+    public FrogTelemetry withStatus(double x, double y, double z, double angle, double energy, double solar) {
+        return new FrogTelemetry(sequence + 1, System.nanoTime(), x, y, z, angle, energy, solar, radarX, radarZ, radarAngle);
+    }
+
+    /**
+     * Returns a snapshot with the radar position of a new radar sweep and the same status.
+     */
+    public FrogTelemetry withRadar(double radarX, double radarZ, double radarAngle) {
+        return new FrogTelemetry(sequence, receivedAt, x, y, z, angle, energy, solar, radarX, radarZ, radarAngle);
+    }
+}
@@ -0,0 +1,31 @@
+package nl.saxion.ptbc.metrics;
+
+import javafx.application.Platform;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands updates to the JavaFX Application Thread like {@link Platform#runLater}, and keeps track
+ * of how many of them are still waiting.
+ * <p>
+ * JavaFX does not tell how long its queue is. A growing depth in {@link Metrics#FX_QUEUE_DEPTH}
+ * means that messages come in faster than the UI can draw them.
+ */
+public final class FxQueue {
+    private static final AtomicInteger pending = new AtomicInteger();
+
+    private FxQueue() {
+    }
+
+    public static void runLater(Runnable update) {
+        Metrics.FX_QUEUE_DEPTH.record(pending.getAndIncrement());
+        Platform.runLater(() -> {
+            pending.decrementAndGet();
+            update.run();
+        });
+    }
+
+    public static int getPending() {
+        return pending.get();
+    }
+}
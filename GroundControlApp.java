@@ -2,11 +2,9 @@ package nl.saxion.ptbc.groundControl;
 
 import javafx.application.Application;
 import javafx.stage.Stage;
-import nl.saxion.ptbc.classes.Map;
+import nl.saxion.ptbc.database.Database;
 import nl.saxion.ptbc.database.ObstacleDatabaseHandler;
 
-import java.util.ArrayList;
-
 public class GroundControlApp extends Application {
 
     /**
@@ -23,22 +21,15 @@ public class GroundControlApp extends Application {
     /**
      * Called when the GroundControl application is shutting down.
      * <p>
-     * This method performs cleanup by saving all currently known obstacles
-     * to the SQLite database and logs the final count of stored obstacles.
-     * <p>
-     * It ensures that no collected obstacle data is lost between sessions.
+     * This method logs the final count of stored obstacles. The Pilot stores the obstacles
+     * while they are found and the CSV import stores the imported ones, so Ground Control
+     * has nothing left to write.
      */
     @Override
     public void stop() {
-        // Save all current known obstacles to DB
-        Map currentMap = GroundControlController.getMap();
-        if (currentMap != null) {
-            int totalSaved = ObstacleDatabaseHandler.saveObstacles(new ArrayList<>(currentMap.getKnownObstacles()));
-            System.out.println("✅ Final save: Obstacles flushed to DB: " + totalSaved);
-        }
-
         // Log how many total unique entries are now in DB
         ObstacleDatabaseHandler.logFinalObstacleCount();
+        Database.shutdown();
     }
 
 }
@@ -6,11 +6,14 @@ import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
+import javafx.scene.image.ImageView;
 import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
 import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Circle;
 import javafx.scene.shape.Polygon;
+import javafx.scene.shape.Rectangle;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import nl.saxion.ptbc.CSVLoader.CSVLoaderController;
@@ -18,16 +21,18 @@ import nl.saxion.ptbc.classes.Frog;
 import nl.saxion.ptbc.classes.Location;
 import nl.saxion.ptbc.classes.Map;
 import nl.saxion.ptbc.classes.Obstacle;
+import nl.saxion.ptbc.classes.ObstacleFrame;
+import nl.saxion.ptbc.classes.Tasks;
+import nl.saxion.ptbc.database.ObstacleDatabaseHandler;
+import nl.saxion.ptbc.metrics.FxQueue;
 import nl.saxion.ptbc.missionLog.MissionLogController;
 import nl.saxion.ptbc.SaSaCommunicator;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 
 /**
  * Controller class for the Ground Control interface.
@@ -41,13 +46,27 @@ public class GroundControlController {
     @FXML
     private Pane mapPane;
 
+    @FXML
+    private ImageView mapImage;
+
     @FXML
     private Label floatingCoordinateLabel;
 
 
-    private Map map = new Map();
-    private static final double scale = 0.5;
-    private List<Obstacle> obstacles = map.getKnownObstacles();
+    // Tiles of the map kept in memory, enough for the viewport and its margin when points are shown
+    private static final int MAP_MAX_TILES = 256;
+    private Map map = new Map(MAP_MAX_TILES);
+    // Pixels per meter when Ground Control starts
+    private static final double INITIAL_SCALE = 0.5;
+    // Every scroll step zooms by this factor
+    private static final double ZOOM_STEP = 1.2;
+    // The map image shows this many meters around the base
+    private static final double MAP_IMAGE_SIZE = 1000.0;
+    // The trail keeps at most this many positions, at least TRAIL_MIN_DISTANCE meters apart
+    private static final int TRAIL_MAX_LENGTH = 5000;
+    private static final double TRAIL_MIN_DISTANCE = 2.0;
+    private static final String OBSTACLE_FRAME_PREFIX = "PILOT " + ObstacleFrame.KEYWORD + " ";
+    private static final String CLEARED_FRAME_PREFIX = "PILOT " + ObstacleFrame.CLEARED_KEYWORD + " ";
     private static GroundControlController instance;
     // Text area to display mission status and navigation information
     public TextArea missionStatusNavigationInfo;
@@ -72,11 +91,27 @@ public class GroundControlController {
 
     private SaSaCommunicator sasa;
     private Polygon frogTriangle;
+    // last known position and heading of the frog
+    private double frogX, frogZ, frogAngle;
+    private MapViewport viewport;
+    private PathTrailLayer trailLayer;
+    private ObstacleLayer obstacleLayer;
+    // The Pilot stores every obstacle it relays, so the map can drop tiles and load them again from the database
+    private ObstacleLoader obstacleLoader;
+    // mouse position of the last drag event, for panning
+    private double dragX, dragY;
 
     @FXML
     protected void initialize() {
         instance = this;
         sasa = new SaSaCommunicator("GROUND_CONTROL", this::receive);
+        // the trail and the obstacles are each painted on one canvas on top of the map image
+        viewport = new MapViewport(mapPane.getPrefWidth(), mapPane.getPrefHeight(), INITIAL_SCALE);
+        obstacleLayer = new ObstacleLayer(viewport, map);
+        obstacleLoader = new ObstacleLoader(viewport, map, obstacleLayer);
+        trailLayer = new PathTrailLayer(viewport, TRAIL_MAX_LENGTH, TRAIL_MIN_DISTANCE);
+        mapPane.getChildren().addAll(obstacleLayer, trailLayer);
+        mapPane.setClip(new Rectangle(mapPane.getPrefWidth(), mapPane.getPrefHeight()));
         frogTriangle = new Polygon();
         frogTriangle.getPoints().addAll(0.0, -6.0, 4.0, 6.0, -4.0, 6.0); // triangle shape
         frogTriangle.setFill(Color.HOTPINK);
@@ -92,14 +127,33 @@ public class GroundControlController {
         mapPane.setOnMouseMoved(this::handleMouseMoved);
         Map save = new Map(mapPane);
 
+        // Drag to pan, scroll to zoom
+        mapPane.setOnMousePressed(event -> {
+            dragX = event.getX();
+            dragY = event.getY();
+        });
+        mapPane.setOnMouseDragged(event -> {
+            viewport.pan(event.getX() - dragX, event.getY() - dragY);
+            dragX = event.getX();
+            dragY = event.getY();
+        });
+        mapPane.setOnScroll(this::handleScroll);
+        viewport.addListener(this::viewportChanged);
+        // FXMLLoader runs this on the loader task, the layer and the loader belong to the JavaFX thread
+        Platform.runLater(() -> {
+            obstacleLayer.start();
+            viewportChanged();
+        });
+
 
     }
 
     /**
      * Handles mouse movement over the {@code mapPane} by converting the cursor's pixel position
-     * to logical coordinates and displaying them in a floating label.
+     * to world coordinates and displaying them in a floating label.
      * <p>
-     * The logical coordinates range from -500 to 500 in both X and Y directions.
+     * The coordinates are computed with the same center and {@code scale} the Frog and the obstacles
+     * are drawn with, so they match the map whatever the size of the pane.
      * The floating label appears near the cursor and updates in real time as the mouse moves within the map area.
      * If the mouse leaves the {@code mapPane}, the label is hidden.
      *
@@ -109,11 +163,10 @@ public class GroundControlController {
         double x = event.getX();
         double y = event.getY();
 
-        // Convert from pixel to logical coordinates
         double width = mapPane.getWidth();
         double height = mapPane.getHeight();
-        double logicalX = (x / width) * 1000 - 500;
-        double logicalY = ((height - y) / height) * 1000 - 500;
+        double logicalX = toWorldX(x);
+        double logicalY = toWorldZ(y);
 
         // show the label when the mouse is inside the mapPane
         if (x >= 0 && x <= width && y >= 0 && y <= height) {
@@ -126,6 +179,38 @@ public class GroundControlController {
         }
     }
 
+    // Zooms around the mouse pointer
+    private void handleScroll(ScrollEvent event) {
+        if (event.getDeltaY() != 0) {
+            viewport.zoom(event.getDeltaY() > 0 ? ZOOM_STEP : 1 / ZOOM_STEP, event.getX(), event.getY());
+        }
+        event.consume();
+    }
+
+    // Moves everything on the map to the new viewport, the obstacles are repainted on the next pulse
+    private void viewportChanged() {
+        obstacleLayer.invalidate();
+        obstacleLoader.viewportChanged();
+        trailLayer.redraw();
+        double scale = viewport.getScale();
+        mapImage.setLayoutX(viewport.toScreenX(-MAP_IMAGE_SIZE / 2));
+        mapImage.setLayoutY(viewport.toScreenY(MAP_IMAGE_SIZE / 2));
+        mapImage.setFitWidth(MAP_IMAGE_SIZE * scale);
+        mapImage.setFitHeight(MAP_IMAGE_SIZE * scale);
+        placeFrog();
+        drawMissionLogOnMap(mapPane);
+        for (java.util.Map.Entry<Location, Circle> marker : Map.getAutodriveMarkers().entrySet()) {
+            marker.getValue().setCenterX(viewport.toScreenX(marker.getKey().getX()));
+            marker.getValue().setCenterY(viewport.toScreenY(marker.getKey().getZ()));
+        }
+    }
+
+    private void placeFrog() {
+        frogTriangle.setLayoutX(viewport.toScreenX(frogX));
+        frogTriangle.setLayoutY(viewport.toScreenY(frogZ));
+        frogTriangle.setRotate(frogAngle);
+    }
+
     /**
      * Handles the action event triggered to load and display the Mission Log window.
      * <p>
@@ -163,55 +248,49 @@ public class GroundControlController {
     /**
      * Event handler that exports collected collision points to a CSV file.
      * <p>
-     * If there are no obstacles (i.e., no collision points), a message is printed to the console and the method returns.
-     * Otherwise, the method builds a CSV string from the X and Z coordinates of each obstacle and prompts the user
-     * to choose a location to save the file using a {@link javafx.stage.FileChooser}.
+     * The method prompts the user to choose a location to save the file using a {@link javafx.stage.FileChooser}.
+     * The map only keeps the obstacles around the viewport in memory, so the X and Z coordinates of every obstacle
+     * are streamed from the database to the file by a background {@link Tasks task}, see
+     * {@link ObstacleDatabaseHandler#exportObstacles}. Obstacles that the Pilot found in the last half
+     * second may not be written yet.
      * Upon successful export, an information alert is shown; if an error occurs during export, an error alert is displayed.
      *
      * @param actionEvent the action event triggered by the export button (typically a button press)
      */
     public void OnExportCollectedCollisionPoints(ActionEvent actionEvent) {
-        if (obstacles == null || obstacles.isEmpty()) {
-            System.out.println("No Collision point to export");
+        //user should choose a path to save the csv
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Export collision points");
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV file", "*.csv"));
+
+        File file = fileChooser.showSaveDialog(mapPane.getScene().getWindow());
+        if (file == null) {
             return;
         }
 
-        try {
-            StringBuilder csvContent = new StringBuilder();
-            csvContent.append("X,Z\n");
-
-            for (Obstacle obstacle : obstacles) {
-                csvContent.append(obstacle.getLocation().getX()).append(",")
-                        .append(obstacle.getLocation().getZ()).append("\n");
-            }
-
-            //user should choose a path to save the csv
-            FileChooser fileChooser = new FileChooser();
-            fileChooser.setTitle("Export collision points");
-            fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV file", "*.csv"));
-
-            File file = fileChooser.showSaveDialog(mapPane.getScene().getWindow());
-
-            if (file != null) {
-                Files.write(file.toPath(), csvContent.toString().getBytes(StandardCharsets.UTF_8));
-
-                //showing successful alert
-                Alert alert = new Alert(Alert.AlertType.INFORMATION);
-                alert.setTitle("Export Successful");
-                alert.setHeaderText(null);
-                alert.setContentText("Collision points were successfully exported.");
-                alert.showAndWait();
+        Tasks.start("ObstacleExport", () -> {
+            try {
+                long exported = ObstacleDatabaseHandler.exportObstacles(file.toPath());
+                FxQueue.runLater(() -> {
+                    //showing successful alert
+                    Alert alert = new Alert(Alert.AlertType.INFORMATION);
+                    alert.setTitle("Export Successful");
+                    alert.setHeaderText(null);
+                    alert.setContentText(exported + " collision points were successfully exported.");
+                    alert.show();
+                });
+            } catch (IOException | SQLException e) {
+                e.printStackTrace();
+                FxQueue.runLater(() -> {
+                    //showing unsuccessful alert
+                    Alert alert = new Alert(Alert.AlertType.ERROR);
+                    alert.setTitle("Export Failed");
+                    alert.setHeaderText("Failed to export collision points.");
+                    alert.setContentText(e.getMessage());
+                    alert.show();
+                });
             }
-        } catch (IOException e) {
-            e.printStackTrace();
-
-            //showing unsuccessful alert
-            Alert alert = new Alert(Alert.AlertType.ERROR);
-            alert.setTitle("Export Failed");
-            alert.setHeaderText("Failed to export collision points.");
-            alert.setContentText(e.getMessage());
-            alert.showAndWait();
-        }
+        });
     }
 
     /**
@@ -229,6 +308,10 @@ public class GroundControlController {
         Stage stage = new Stage();
         FXMLLoader fxmlLoader = new FXMLLoader(CSVLoaderController.class.getResource("CSV-loader.fxml"));
         Scene scene = new Scene(fxmlLoader.load(), 1000, 600);
+        CSVLoaderController loader = fxmlLoader.getController();
+        loader.setObstacleHandler(this::addImportedObstacles);
+        loader.setImportFinishedHandler(this::importFinished);
+        stage.setOnHidden(event -> loader.cancelImport());
         stage.setTitle("View mission log");
         stage.setScene(scene);
         stage.show();
@@ -289,12 +372,11 @@ public class GroundControlController {
      * Adds a red dot marker and sends a formatted "Go_To" command.
      */
     public void OnMapClicked(MouseEvent mouseEvent) {
-        // Get click coordinates relative to the pane
-        double x = (mouseEvent.getX() - mapPane.getPrefWidth() / 2) / scale;
-        double y = (mouseEvent.getY() - mapPane.getPrefHeight() / 2) / scale;
-
-        double realX = x * 2 * scale;
-        double realY = y * -2 * scale;
+        if (!mouseEvent.isStillSincePress()) {
+            return; // the end of a drag
+        }
+        double realX = toWorldX(mouseEvent.getX());
+        double realY = toWorldZ(mouseEvent.getY());
 
 
         Location clickedLocation = new Location(realX, realY);
@@ -326,7 +408,7 @@ public class GroundControlController {
         String command = String.format("GO TO %.2f %.2f", realX, realY);
         System.out.println("Sent to PILOT: " + command);
 
-        updateTarget(String.format("(%.1f, %.1f)", x, y));
+        updateTarget(String.format("(%.1f, %.1f)", realX, realY));
 
         send(command);
     }
@@ -347,20 +429,26 @@ public class GroundControlController {
     /**
      * Receives and processes messages sent from the PilotApp to GroundControl.
      * <p>
-     * This method handles two types of messages:
+     * This method handles three types of messages:
      * <ul>
      *   <li><b>"PILOT SEND STATUS"</b> - Updates the frog's position on the map and
      *   displays the latest energy and solar values in text fields.</li>
      *   <li><b>"PILOT OBSTACLE"</b> - Registers a new obstacle at given coordinates
      *   and visualizes it as a radar point on the map.</li>
+     *   <li><b>"PILOT OBSTACLES"</b> - Registers the new obstacles of a radar sweep at once
+     *   and draws them in a single update of the map, see {@link ObstacleFrame}.</li>
+     *   <li><b>"PILOT CLEARED"</b> - Removes the obstacles that the radar of a sweep found to be
+     *   gone again, in the same format.</li>
      * </ul>
      * <p>
-     * GUI updates are executed on the JavaFX Application Thread using {@code Platform.runLater}.d
+     * GUI updates are executed on the JavaFX Application Thread using {@link FxQueue#runLater}.
      * <p>
      * Expected message formats:
      * <ul>
      *   <li>{@code "PILOT SEND STATUS <x> <z> <energy> <solar>"}</li>
      *   <li>{@code "PILOT OBSTACLE <x> <z>"}</li>
+     *   <li>{@code "PILOT OBSTACLES <count> <x0> <z0> <dx1> <dz1> ..."} (centimeters, delta encoded)</li>
+     *   <li>{@code "PILOT CLEARED <count> <x0> <z0> <dx1> <dz1> ..."}</li>
      * </ul>
      *
      * @param message The string message received from the PilotApp.
@@ -375,40 +463,51 @@ public class GroundControlController {
             double solar = Double.parseDouble(parts1[6]);
             double angle = Double.parseDouble(parts1[7]);
 
-            double mapCenterX = mapPane.getPrefWidth() / 2;
-            double mapCenterZ = mapPane.getPrefHeight() / 2;
-
-            double frogX = mapCenterX + x * scale;
-            double frogZ = mapCenterZ - z * scale;
-
-            Platform.runLater(() -> {
-                frogTriangle.setLayoutX(frogX);
-                frogTriangle.setLayoutY(frogZ);
-                frogTriangle.setRotate(angle);
+            FxQueue.runLater(() -> {
+                frogX = x;
+                frogZ = z;
+                frogAngle = angle;
+                placeFrog();
                 updateLocation(String.format("(%.1f, %.1f)", x, z));
                 updateStatus("Connected");
                 updateBatteryAndSolar(energy, solar);
-                drawFrogPath(mapPane, frogX, frogZ);
-                mapPane.getChildren().remove(frogTriangle);
-                mapPane.getChildren().add(frogTriangle);
-                drawMissionLogOnMap(mapPane, scale);
+                drawFrogPath(x, z);
+                drawMissionLogOnMap(mapPane);
             });
 
         }
-        if (message.startsWith("PILOT OBSTACLE")) {
+        if (message.startsWith(OBSTACLE_FRAME_PREFIX)) {
+            try {
+                double[] points = ObstacleFrame.decode(message, OBSTACLE_FRAME_PREFIX.length());
+                // the map is only changed on the JavaFX thread, which also paints it
+                FxQueue.runLater(() -> {
+                    for (int i = 0; i < points.length; i += 2) {
+                        addPilotObstacle(points[i], points[i + 1]);
+                    }
+                });
+            } catch (NumberFormatException e) {
+                System.err.println("Invalid radar points!!!");
+            }
+        } else if (message.startsWith(CLEARED_FRAME_PREFIX)) {
+            try {
+                double[] points = ObstacleFrame.decode(message, CLEARED_FRAME_PREFIX.length());
+                FxQueue.runLater(() -> {
+                    for (int i = 0; i < points.length; i += 2) {
+                        if (map.removeObstacle(points[i], points[i + 1])) {
+                            obstacleLayer.removeObstacle(points[i], points[i + 1]);
+                        }
+                    }
+                });
+            } catch (NumberFormatException e) {
+                System.err.println("Invalid radar points!!!");
+            }
+        } else if (message.startsWith("PILOT OBSTACLE")) {
             String[] parts2 = message.split(" ");
             try {
                 double x = Double.parseDouble(parts2[2]);
                 double z = Double.parseDouble(parts2[3]);
 
-                Location loc = new Location(x, z);
-                Obstacle ob = new Obstacle(loc);
-                map.updateObstacleMap(ob); // Optional: already checks for near-duplicates
-
-                Platform.runLater(() -> drawRadarPoint(mapPane, loc, scale));
-                // Save only this one obstacle
-                ArrayList<Obstacle> justThisOne = new ArrayList<>();
-                justThisOne.add(ob);
+                FxQueue.runLater(() -> addPilotObstacle(x, z));
             } catch (Exception e) {
                 System.err.println("Invalid radar points!!!");
             }
@@ -419,42 +518,86 @@ public class GroundControlController {
             double x = Double.parseDouble(parts[3]);
             double y = Double.parseDouble(parts[4]);
             String goToText = "Go To : " + x + ", " + y + "\n";
-            Platform.runLater(() -> missionStatusNavigationInfo.appendText(goToText));
+            FxQueue.runLater(() -> missionStatusNavigationInfo.appendText(goToText));
         } else if (
                 message.startsWith("PILOT Destination") ||
                         message.startsWith("PILOT Status: Reached") ||
                         message.startsWith("PILOT Mission log") ||
                         message.startsWith("PILOT All destinations")
         ) {
-            Platform.runLater(() -> missionStatusNavigationInfo.appendText(message + "\n"));
+            FxQueue.runLater(() -> missionStatusNavigationInfo.appendText(message + "\n"));
         }
 
     }
 
-    public void drawRadarPoint(Pane radarGraph, Location radarPointLocation, double scale) {
-        double centerX = radarGraph.getPrefWidth() / 2;
-        double centerZ = radarGraph.getPrefHeight() / 2;
+    // The Pilot has already queued the obstacle for the database, Ground Control only shows it
+    private void addPilotObstacle(double x, double z) {
+        if (map.addObstacle(x, z) != null) {
+            drawRadarPoint(x, z);
+        }
+    }
 
+    /**
+     * Shows a batch of imported obstacles, which are already stored in the database.
+     * Must be called on the JavaFX Application Thread.
+     * <p>
+     * Only the tiles of the map that are in memory get them, the others load them from the database when
+     * they come into view, so an import of millions of obstacles does not fill the memory. Only the
+     * obstacles the map added are drawn and counted in the density snapshot of the layer; the others are
+     * counted when the snapshot is counted again after the import, see {@link #importFinished}.
+     *
+     * @param xs    the absolute X coordinates
+     * @param zs    the absolute Z coordinates
+     * @param count the number of obstacles, from the start of the arrays
+     */
+    public void addImportedObstacles(double[] xs, double[] zs, int count) {
+        for (int i = 0; i < count; i++) {
+            if (map.addStoredObstacle(xs[i], zs[i])) {
+                drawRadarPoint(xs[i], zs[i]);
+            }
+        }
+    }
+
+    /**
+     * Counts the density snapshot again from the database after an import.
+     * Must be called on the JavaFX Application Thread.
+     */
+    public void importFinished() {
+        obstacleLoader.reloadDensity();
+    }
 
-        double pointX = centerX + radarPointLocation.getX() * scale;
-        double pointZ = centerZ + (radarPointLocation.getZ() * scale) * -1;
+    /**
+     * Paints a new obstacle on the obstacle layer of the map, with the next repaint of the layer.
+     * The obstacle must just have been added to the map. Must be called on the JavaFX Application Thread.
+     *
+     * @param x the absolute X coordinate of the obstacle
+     * @param z the absolute Z coordinate of the obstacle
+     */
+    public void drawRadarPoint(double x, double z) {
+        obstacleLayer.addObstacle(x, z);
+    }
+
+    // The world X coordinate of a pixel column of the map pane
+    private double toWorldX(double pixelX) {
+        return viewport.toWorldX(pixelX);
+    }
 
-        Circle point = new Circle(pointX, pointZ, 1, Color.YELLOW);
-        radarGraph.getChildren().add(point);
+    // The world Z coordinate of a pixel row of the map pane, Z points up
+    private double toWorldZ(double pixelY) {
+        return viewport.toWorldZ(pixelY);
     }
 
     /**
-     * Draws a point on the map to represent a position in the frog's movement path.
-     * Each call to this method adds a small green circle at the specified (x, y) coordinates,
-     * visually showing the path the frog has taken over time.
+     * Adds a position to the frog's movement path.
+     * The path is drawn as a single line on the trail layer; positions closer than
+     * {@code TRAIL_MIN_DISTANCE} meters to the previous one are skipped and only the last
+     * {@code TRAIL_MAX_LENGTH} positions are kept.
      *
-     * @param radarGraph the Pane on which the frog's path is being drawn
-     * @param x          the X-coordinate of the frog's position
-     * @param y          the Y-coordinate of the frog's position
+     * @param x the absolute X coordinate of the frog
+     * @param z the absolute Z coordinate of the frog
      */
-    public void drawFrogPath(Pane radarGraph, double x, double y) {
-        Circle frogPosition = new Circle(x, y, 2, Color.LIGHTGREEN);
-        radarGraph.getChildren().add(frogPosition);
+    public void drawFrogPath(double x, double z) {
+        trailLayer.addPoint(x, z);
     }
 
     /**
@@ -462,9 +605,8 @@ public class GroundControlController {
      * and plotting the current mission locations as blue circles.
      *
      * @param mission The pane where the mission log will be drawn.
-     * @param scale   The scale factor to adjust the size and positioning of mission points on the map.
      */
-    public void drawMissionLogOnMap(Pane mission, double scale) {
+    public void drawMissionLogOnMap(Pane mission) {
         //remove the completed missionLog point
         for (Circle point : missionPoints.values()) {
             mission.getChildren().remove(point);
@@ -472,13 +614,11 @@ public class GroundControlController {
         missionPoints.clear();
 
         ArrayList<Location> locations = Frog.getAutoDriveMissionLog();
-        double centerX = mission.getPrefWidth() / 2;
-        double centerZ = mission.getPrefHeight() / 2;
 
         //draws the missions on the map and adds them to the Hashmap
         for (Location location : locations) {
-            double pointX = centerX + location.getX() * scale;
-            double pointZ = centerZ + (location.getZ() * scale) * -1;
+            double pointX = viewport.toScreenX(location.getX());
+            double pointZ = viewport.toScreenY(location.getZ());
 
             Circle point = new Circle(pointX, pointZ, 3, Color.BLUE);
             mission.getChildren().add(point);
@@ -5,6 +5,7 @@ import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
+import nl.saxion.ptbc.classes.Tasks;
 
 import java.net.URL;
 import java.util.Objects;
@@ -23,7 +24,7 @@ public class GroundControlUtils {
      * @throws Exception if loading the FXML or any other setup step fails
      */
     public static void startGroundControl(Stage stage) {
-        new Thread(() -> {
+        Tasks.start("GroundControlLoader", () -> {
             try {
 
                 URL fxmlLocation = GroundControlUtils.class.getResource("/groundControl/ground-control.fxml");
@@ -38,7 +39,7 @@ public class GroundControlUtils {
                 System.err.println("Error starting GroundControl: " + e.getMessage());
                 e.printStackTrace();
             }
-        }).start();
+        });
     }
 
 }
@@ -0,0 +1,145 @@
+package nl.saxion.ptbc.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records the distribution of a value, e.g. a latency in nanoseconds or the size of a radar sweep.
+ * <p>
+ * The buckets are laid out like an HDR histogram: every power of two is split into
+ * {@code SUB_BUCKETS} equal buckets, so every value is counted with a relative error of at most
+ * 1/32 (about 3%), from 0 up to {@link Long#MAX_VALUE}, in a fixed array of counters.
+ * <p>
+ * {@link #record} only increments counters and does not allocate, so it can be called on the hot
+ * paths from any thread. Reading is done with {@link #snapshot()}.
+ */
+public final class Histogram {
+
+    /**
+     * What a histogram records, used to print the values.
+     */
+    public enum Unit {
+        /** Durations in nanoseconds, printed in microseconds. */
+        NANOSECONDS("us", 1_000.0),
+        /** Plain numbers, e.g. a number of blips. */
+        COUNT("", 1.0);
+
+        private final String suffix;
+        private final double divisor;
+
+        Unit(String suffix, double divisor) {
+            this.suffix = suffix;
+            this.divisor = divisor;
+        }
+
+        public String format(double value) {
+            return String.format("%.1f%s", value / divisor, suffix);
+        }
+    }
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // values below 2 * SUB_BUCKETS have a bucket each, every next power of two adds SUB_BUCKETS buckets
+    private static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final String name;
+    private final Unit unit;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    Histogram(String name, Unit unit) {
+        this.name = name;
+        this.unit = unit;
+    }
+
+    /**
+     * Records one value, negative values are recorded as 0.
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(bucketOf(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            // another thread recorded a new maximum at the same time, try again
+        }
+    }
+
+    /**
+     * Records the time since {@code startNanos}, a value of {@link System#nanoTime()}.
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Copies the current counts. The copy is not atomic, values recorded during the copy may be
+     * missing in some of the numbers.
+     */
+    public HistogramSnapshot snapshot() {
+        long total = 0;
+        long[] copy = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = counts.get(i);
+            total += copy[i];
+        }
+        long maximum = max.get();
+        double mean = total == 0 ? 0 : (double) sum.get() / count.get();
+        return new HistogramSnapshot(name, unit, total, mean,
+                percentile(copy, total, 0.50, maximum),
+                percentile(copy, total, 0.90, maximum),
+                percentile(copy, total, 0.99, maximum),
+                maximum);
+    }
+
+    //Getters
+    public String getName() {
+        return name;
+    }
+
+    public Unit getUnit() {
+        return unit;
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    static int bucketOf(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    // The highest value that falls in a bucket
+    static long highestValueOf(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long subBucket = bucket % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    private static long percentile(long[] counts, long total, double fraction, long maximum) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * fraction));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highestValueOf(i), maximum);
+            }
+        }
+        return maximum;
+    }
+}
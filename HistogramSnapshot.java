@@ -0,0 +1,18 @@
+package nl.saxion.ptbc.metrics;
+
+/**
+ * The numbers of a {@link Histogram} at one moment, in the unit the values were recorded in.
+ */
+public record HistogramSnapshot(String name, Histogram.Unit unit, long count, double mean,
+                                long p50, long p90, long p99, long max) {
+
+    @Override
+    public String toString() {
+        return name + ": count=" + count
+                + " mean=" + unit.format(mean)
+                + " p50=" + unit.format(p50)
+                + " p90=" + unit.format(p90)
+                + " p99=" + unit.format(p99)
+                + " max=" + unit.format(max);
+    }
+}
@@ -2,29 +2,90 @@ package nl.saxion.ptbc.classes;
 
 import javafx.scene.layout.Pane;
 import javafx.scene.shape.Circle;
+import nl.saxion.ptbc.metrics.Metrics;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Set;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.Consumer;
 
+/**
+ * The obstacles that are known, and the markers of the autoDrive destinations.
+ * <p>
+ * The obstacles are kept in square tiles of {@code TILE_SIZE} meters, each with its own
+ * {@link SpatialHashGrid}. A map created with a maximum number of tiles keeps only the most recently
+ * used tiles in memory and drops the least recently used one when a new tile does not fit; all its
+ * obstacles are in the database, so it can be loaded again. Such a tile only holds the obstacles that
+ * were added since it was created, until the stored obstacles are handed to {@link #loadTile}; a
+ * viewer asks which tiles it still needs with {@link #requestTiles}. Without a maximum every tile
+ * stays in memory and is complete from the start.
+ * <p>
+ * This class is not thread-safe.
+ */
 public class Map {
-    private ArrayList<Obstacle> knownObstacles;
-    private Set<String> knownObstacleKeys;
+    /**
+     * The width and height of a tile in meters.
+     */
+    public static final double TILE_SIZE = 256.0;
+    private static final double OBSTACLE_CELL_SIZE = 5.0;
+    // the quantization of the SpatialHashGrid, so an obstacle and its duplicates are in the same tile
+    private static final double QUANTUM = 0.01;
+    private static final long TILE_QUANTA = Math.round(TILE_SIZE / QUANTUM);
+
+    /**
+     * Receives the position of a tile, in multiples of {@code TILE_SIZE}.
+     */
+    public interface TileVisitor {
+        void visit(int tileX, int tileZ);
+    }
+
+    // The obstacles in one tile
+    private static final class ObstacleTile {
+        final SpatialHashGrid grid = new SpatialHashGrid(OBSTACLE_CELL_SIZE);
+        // holds all stored obstacles of the tile, not only the ones added since it was created
+        boolean complete;
+        // the stored obstacles were requested and are not loaded yet
+        boolean loading;
+        // quantized positions removed while loading, the load must not bring them back
+        HashSet<Long> removedWhileLoading;
+    }
+
+    private final int maxTiles;
+    // in access order, the first tile is the least recently used one
+    private final LinkedHashMap<Long, ObstacleTile> tiles = new LinkedHashMap<>(64, 0.75f, true);
+    private int obstacleCount;
     private Location baseLocation;
     private static Pane pane;
     private static ArrayList<Location> locationsAutodrive = new ArrayList<>();
     private static HashMap<Location, Circle> autodriveMarkers = new HashMap<>();
 
     //Constructor:
+    /**
+     * Creates an empty map that keeps all its obstacles in memory.
+     */
     public Map() {
-        this.knownObstacles = new ArrayList<>();
-        Location baseLoc = new Location(0, 0);
-        this.knownObstacleKeys = new HashSet<>(); // Initialize the key set
-        this.baseLocation = baseLoc;
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates an empty map that keeps at most {@code maxTiles} tiles in memory. The obstacles of the
+     * other tiles must be in the database.
+     *
+     * @param maxTiles the number of tiles kept in memory, at least 1
+     */
+    public Map(int maxTiles) {
+        if (maxTiles < 1) {
+            throw new IllegalArgumentException("At least one tile must fit: " + maxTiles);
+        }
+        this.maxTiles = maxTiles;
+        this.baseLocation = new Location(0, 0);
     }
 
     public Map(Pane pane) {
+        this();
         Map.pane = pane;
     }
 
@@ -61,25 +122,250 @@ public class Map {
     /**
      * Updates the obstacle map with a new obstacle, ensuring no duplicates are added.
      * <p>
-     * This method generates a unique key based on the X and Z coordinates of the
-     * provided {@code Obstacle}, rounded to two decimal places. If the key does not
-     * already exist in the set of known obstacle keys, the obstacle is added to the
-     * list of known obstacles, and its key is tracked. The total number of unique
-     * obstacles is then printed to the console.
+     * The obstacle is added to the {@link SpatialHashGrid} of its tile, which treats obstacles whose
+     * X and Z coordinates are equal after rounding to two decimal places as duplicates. Only if the
+     * obstacle is new, it is counted in {@link Metrics#UNIQUE_OBSTACLES}.
      * </p>
      *
      * @param newObstacle the {@code Obstacle} to be added to the map.
+     * @return {@code true} if the obstacle was not known yet.
+     */
+    public boolean updateObstacleMap(Obstacle newObstacle) {
+        ObstacleTile tile = tile(newObstacle.getLocation().getX(), newObstacle.getLocation().getZ(), true);
+        return add(tile, newObstacle);
+    }
+
+    /**
+     * Adds an obstacle at an absolute position, unless it is already known.
+     * <p>
+     * Like {@link #updateObstacleMap(Obstacle)}, but a duplicate is detected before an
+     * {@code Obstacle} is created for it, so positions that were seen before cost no allocation.
+     *
+     * @return the new obstacle, or {@code null} if it was already known
+     */
+    public Obstacle addObstacle(double x, double z) {
+        ObstacleTile tile = tile(x, z, true);
+        if (tile.grid.contains(x, z)) {
+            return null;
+        }
+        Obstacle obstacle = new Obstacle(new Location(x, z));
+        return add(tile, obstacle) ? obstacle : null;
+    }
+
+    /**
+     * Adds an obstacle at an absolute position that is already in the database, e.g. an imported one.
+     * It is only added if its tile is in memory; the other tiles get it when they are loaded.
+     *
+     * @return {@code true} if the obstacle was new and its tile is in memory
      */
-    public void updateObstacleMap(Obstacle newObstacle) {
-        String key = String.format("%.2f:%.2f",
-                newObstacle.getLocation().getX(),
-                newObstacle.getLocation().getZ());
+    public boolean addStoredObstacle(double x, double z) {
+        // without a database no tile is loaded later
+        ObstacleTile tile = tile(x, z, maxTiles == Integer.MAX_VALUE);
+        if (tile == null || tile.grid.contains(x, z)) {
+            return false;
+        }
+        return add(tile, new Obstacle(new Location(x, z)));
+    }
 
-        if (!knownObstacleKeys.contains(key)) {
-            knownObstacles.add(newObstacle);
-            knownObstacleKeys.add(key);
-            System.out.println("🧱 Unique obstacles so far: " + knownObstacles.size());
+    /**
+     * Removes the obstacle at an absolute position, e.g. when the radar found that the cell is free.
+     *
+     * @return {@code true} if there was an obstacle at that position
+     */
+    public boolean removeObstacle(double x, double z) {
+        ObstacleTile tile = tile(x, z, false);
+        if (tile == null) {
+            return false;
+        }
+        if (tile.loading) {
+            if (tile.removedWhileLoading == null) {
+                tile.removedWhileLoading = new HashSet<>();
+            }
+            tile.removedWhileLoading.add(quantizedKey(x, z));
+        }
+        if (tile.grid.remove(x, z) == null) {
+            return false;
         }
+        obstacleCount--;
+        return true;
+    }
+
+    /**
+     * Returns all known obstacles within {@code radius} meters of a location,
+     * e.g. all obstacles within 10 meters of the Frog.
+     *
+     * @param center the absolute location to search around
+     * @param radius the search radius in meters
+     * @return the obstacles in range, of the tiles in memory
+     */
+    public List<Obstacle> getObstaclesWithin(Location center, double radius) {
+        double x = center.getX();
+        double z = center.getZ();
+        List<Obstacle> result = new ArrayList<>();
+        forEachTile(x - radius, z - radius, x + radius, z + radius,
+                tile -> tile.grid.forEachWithin(x, z, radius, result::add));
+        return result;
+    }
+
+    /**
+     * Returns all known obstacles inside an axis aligned rectangle of absolute coordinates.
+     *
+     * @return the obstacles with {@code minX <= x <= maxX} and {@code minZ <= z <= maxZ}, of the tiles in memory
+     */
+    public List<Obstacle> getObstaclesInArea(double minX, double minZ, double maxX, double maxZ) {
+        List<Obstacle> result = new ArrayList<>();
+        forEachInArea(minX, minZ, maxX, maxZ, result::add);
+        return result;
+    }
+
+    /**
+     * Visits every obstacle inside an axis aligned rectangle of absolute coordinates, of the tiles in
+     * memory. The tiles of the rectangle become the most recently used ones.
+     */
+    public void forEachInArea(double minX, double minZ, double maxX, double maxZ, Consumer<Obstacle> visitor) {
+        forEachTile(minX, minZ, maxX, maxZ, tile -> tile.grid.forEachInRectangle(minX, minZ, maxX, maxZ, visitor));
+    }
+
+    /**
+     * Visits the tiles of a rectangle whose stored obstacles are not loaded or requested yet, and marks
+     * them as requested. The caller loads them from the database and hands them to {@link #loadTile}.
+     * Nothing is requested if the rectangle has more tiles than fit in memory.
+     */
+    public void requestTiles(double minX, double minZ, double maxX, double maxZ, TileVisitor visitor) {
+        int minTileX = tileIndex(minX);
+        int maxTileX = tileIndex(maxX);
+        int minTileZ = tileIndex(minZ);
+        int maxTileZ = tileIndex(maxZ);
+        if (((long) maxTileX - minTileX + 1) * ((long) maxTileZ - minTileZ + 1) > maxTiles) {
+            return;
+        }
+        for (int tileX = minTileX; tileX <= maxTileX; tileX++) {
+            for (int tileZ = minTileZ; tileZ <= maxTileZ; tileZ++) {
+                ObstacleTile tile = tiles.computeIfAbsent(pack(tileX, tileZ), key -> newTile());
+                if (!tile.complete && !tile.loading) {
+                    tile.loading = true;
+                    visitor.visit(tileX, tileZ);
+                }
+            }
+        }
+        evictTiles();
+    }
+
+    /**
+     * Adds the stored obstacles of a requested tile. Obstacles that were removed since the tile was
+     * requested are skipped. Nothing happens if the tile was dropped from memory in the meantime.
+     *
+     * @param obstacles the obstacles of the tile in the database
+     * @return the number of obstacles that were new
+     */
+    public int loadTile(int tileX, int tileZ, List<Obstacle> obstacles) {
+        ObstacleTile tile = tiles.get(pack(tileX, tileZ));
+        if (tile == null || !tile.loading) {
+            return 0;
+        }
+        int added = 0;
+        for (Obstacle obstacle : obstacles) {
+            double x = obstacle.getLocation().getX();
+            double z = obstacle.getLocation().getZ();
+            if (tile.removedWhileLoading != null && tile.removedWhileLoading.contains(quantizedKey(x, z))) {
+                continue;
+            }
+            if (tile.grid.add(obstacle)) {
+                obstacleCount++;
+                added++;
+            }
+        }
+        tile.complete = true;
+        tile.loading = false;
+        tile.removedWhileLoading = null;
+        return added;
+    }
+
+    /**
+     * Forgets the request of a tile that could not be loaded, so it is requested again.
+     */
+    public void loadFailed(int tileX, int tileZ) {
+        ObstacleTile tile = tiles.get(pack(tileX, tileZ));
+        if (tile != null) {
+            tile.loading = false;
+            tile.removedWhileLoading = null;
+        }
+    }
+
+    /**
+     * Returns the X or Z coordinate where a tile starts, the tile ends {@code TILE_SIZE} meters further.
+     */
+    public static double tileStart(int tile) {
+        return tile * TILE_SIZE;
+    }
+
+    private boolean add(ObstacleTile tile, Obstacle obstacle) {
+        if (!tile.grid.add(obstacle)) {
+            return false;
+        }
+        obstacleCount++;
+        Metrics.UNIQUE_OBSTACLES.increment();
+        return true;
+    }
+
+    private ObstacleTile tile(double x, double z, boolean create) {
+        long key = pack(tileIndex(x), tileIndex(z));
+        ObstacleTile tile = tiles.get(key);
+        if (tile == null && create) {
+            tile = newTile();
+            tiles.put(key, tile);
+            evictTiles();
+        }
+        return tile;
+    }
+
+    private ObstacleTile newTile() {
+        ObstacleTile tile = new ObstacleTile();
+        // without a database every obstacle of the tile is in memory
+        tile.complete = maxTiles == Integer.MAX_VALUE;
+        return tile;
+    }
+
+    // Calls the visitor for the tiles in memory that overlap the rectangle
+    private void forEachTile(double minX, double minZ, double maxX, double maxZ, Consumer<ObstacleTile> visitor) {
+        int minTileX = tileIndex(minX);
+        int maxTileX = tileIndex(maxX);
+        int minTileZ = tileIndex(minZ);
+        int maxTileZ = tileIndex(maxZ);
+        if (((long) maxTileX - minTileX + 1) * ((long) maxTileZ - minTileZ + 1) > tiles.size()) {
+            for (ObstacleTile tile : tiles.values()) {
+                visitor.accept(tile);
+            }
+            return;
+        }
+        for (int tileX = minTileX; tileX <= maxTileX; tileX++) {
+            for (int tileZ = minTileZ; tileZ <= maxTileZ; tileZ++) {
+                ObstacleTile tile = tiles.get(pack(tileX, tileZ));
+                if (tile != null) visitor.accept(tile);
+            }
+        }
+    }
+
+    // Drops the least recently used tiles until the tiles in memory fit again
+    private void evictTiles() {
+        Iterator<ObstacleTile> iterator = tiles.values().iterator();
+        while (tiles.size() > maxTiles) {
+            obstacleCount -= iterator.next().grid.size();
+            iterator.remove();
+        }
+    }
+
+    private static int tileIndex(double coordinate) {
+        long tile = Math.floorDiv(Math.round(coordinate / QUANTUM), TILE_QUANTA);
+        return (int) Math.max(Integer.MIN_VALUE + 1, Math.min(Integer.MAX_VALUE - 1, tile));
+    }
+
+    private static long quantizedKey(double x, double z) {
+        return pack((int) Math.round(x / QUANTUM), (int) Math.round(z / QUANTUM));
+    }
+
+    private static long pack(int x, int z) {
+        return ((long) x << 32) | (z & 0xFFFFFFFFL);
     }
 
     //Getters:
@@ -87,8 +373,11 @@ public class Map {
         return locationsAutodrive;
     }
 
-    public ArrayList<Obstacle> getKnownObstacles() {
-        return knownObstacles;
+    /**
+     * Returns the number of obstacles in the tiles in memory.
+     */
+    public int getObstacleCount() {
+        return obstacleCount;
     }
 
     public static HashMap<Location, Circle> getAutodriveMarkers() {
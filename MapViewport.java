@@ -0,0 +1,127 @@
+package nl.saxion.ptbc.groundControl;
+
+import java.util.ArrayList;
+
+/**
+ * The part of the world that the Ground Control map shows, and the conversion between world
+ * coordinates and the pixels of the map.
+ * <p>
+ * The viewport is described by the world position in the center of the map and the scale in pixels
+ * per meter. X points to the right and Z points up, so the Z axis is flipped on screen. Panning and
+ * zooming notify the listeners, which redraw what depends on the viewport.
+ * <p>
+ * All methods must be called on the JavaFX Application Thread.
+ */
+public class MapViewport {
+    public static final double MIN_SCALE = 0.02;
+    public static final double MAX_SCALE = 20.0;
+
+    private final double width, height;
+    private double centerX, centerZ;
+    private double scale;
+    private final ArrayList<Runnable> listeners = new ArrayList<>();
+
+    /**
+     * Creates a viewport with the origin of the world in the center of the map.
+     *
+     * @param width  the width of the map in pixels
+     * @param height the height of the map in pixels
+     * @param scale  the initial scale in pixels per meter
+     */
+    public MapViewport(double width, double height, double scale) {
+        this.width = width;
+        this.height = height;
+        this.scale = clampScale(scale);
+    }
+
+    /**
+     * Moves the view by a number of pixels, e.g. the distance the mouse was dragged.
+     */
+    public void pan(double deltaX, double deltaY) {
+        if (deltaX == 0 && deltaY == 0) {
+            return;
+        }
+        centerX -= deltaX / scale;
+        centerZ += deltaY / scale;
+        changed();
+    }
+
+    /**
+     * Zooms in ({@code factor > 1}) or out, keeping the world position under the pixel (x, y) in place.
+     */
+    public void zoom(double factor, double x, double y) {
+        double newScale = clampScale(scale * factor);
+        if (newScale == scale) {
+            return;
+        }
+        double worldX = toWorldX(x);
+        double worldZ = toWorldZ(y);
+        scale = newScale;
+        centerX = worldX - (x - width / 2) / scale;
+        centerZ = worldZ + (y - height / 2) / scale;
+        changed();
+    }
+
+    /**
+     * Calls the listener after every pan and zoom.
+     */
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    public double toScreenX(double worldX) {
+        return width / 2 + (worldX - centerX) * scale;
+    }
+
+    public double toScreenY(double worldZ) {
+        return height / 2 - (worldZ - centerZ) * scale;
+    }
+
+    public double toWorldX(double screenX) {
+        return centerX + (screenX - width / 2) / scale;
+    }
+
+    public double toWorldZ(double screenY) {
+        return centerZ + (height / 2 - screenY) / scale;
+    }
+
+    //Getters
+    public double getScale() {
+        return scale;
+    }
+
+    public double getWidth() {
+        return width;
+    }
+
+    public double getHeight() {
+        return height;
+    }
+
+    // The visible part of the world
+    public double getMinX() {
+        return toWorldX(0);
+    }
+
+    public double getMaxX() {
+        return toWorldX(width);
+    }
+
+    public double getMinZ() {
+        return toWorldZ(height);
+    }
+
+    public double getMaxZ() {
+        return toWorldZ(0);
+    }
+
+    private void changed() {
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+
+    private static double clampScale(double scale) {
+        return Math.max(MIN_SCALE, Math.min(MAX_SCALE, scale));
+    }
+}
@@ -0,0 +1,70 @@
+package nl.saxion.ptbc.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The registry of all counters and histograms of the Pilot.
+ * <p>
+ * The metrics of the hot paths are created once as constants, so recording a value is a single
+ * call without lookups or allocation. Their values can be read through the {@link MetricsJmx}
+ * (e.g. with JConsole) and are printed regularly by the {@link MetricsReporter}.
+ */
+public final class Metrics {
+    private static final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    /** Time to decode one message of the Frog. */
+    public static final Histogram MESSAGE_PARSE = histogram("pilot.message.parse", Histogram.Unit.NANOSECONDS);
+    /** Time from receiving a {@code FROG STATUS} to sending the DRIVE command of the autoDrive based on it. */
+    public static final Histogram STATUS_TO_DRIVE = histogram("autodrive.status.to.drive", Histogram.Unit.NANOSECONDS);
+    /** Number of blips in a radar sweep. */
+    public static final Histogram RADAR_SWEEP_SIZE = histogram("pilot.radar.sweep.size", Histogram.Unit.COUNT);
+    /** Number of updates waiting for the JavaFX Application Thread when a new one is handed in. */
+    public static final Histogram FX_QUEUE_DEPTH = histogram("fx.queue.depth", Histogram.Unit.COUNT);
+    /** Time to write one batch of obstacles to the database. */
+    public static final Histogram DB_WRITE = histogram("db.obstacles.write", Histogram.Unit.NANOSECONDS);
+
+    public static final Counter MESSAGES_RECEIVED = counter("pilot.messages.received");
+    public static final Counter MESSAGES_MALFORMED = counter("pilot.messages.malformed");
+    /** New obstacles added to any {@code Map}, the Pilot and Ground Control each keep one. */
+    public static final Counter UNIQUE_OBSTACLES = counter("map.obstacles.unique");
+    public static final Counter DRIVE_COMMANDS = counter("autodrive.drive.commands");
+    public static final Counter OBSTACLES_WRITTEN = counter("db.obstacles.written");
+
+    private Metrics() {
+    }
+
+    /**
+     * Returns the counter with this name, creating it the first time.
+     */
+    public static Counter counter(String name) {
+        return counters.computeIfAbsent(name, Counter::new);
+    }
+
+    /**
+     * Returns the histogram with this name, creating it the first time.
+     */
+    public static Histogram histogram(String name, Histogram.Unit unit) {
+        return histograms.computeIfAbsent(name, key -> new Histogram(key, unit));
+    }
+
+    /**
+     * Returns all counters, sorted by name.
+     */
+    public static List<Counter> getCounters() {
+        List<Counter> list = new ArrayList<>(counters.values());
+        list.sort((a, b) -> a.getName().compareTo(b.getName()));
+        return list;
+    }
+
+    /**
+     * Returns all histograms, sorted by name.
+     */
+    public static List<Histogram> getHistograms() {
+        List<Histogram> list = new ArrayList<>(histograms.values());
+        list.sort((a, b) -> a.getName().compareTo(b.getName()));
+        return list;
+    }
+}
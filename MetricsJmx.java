@@ -0,0 +1,116 @@
+package nl.saxion.ptbc.metrics;
+
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shows all {@link Metrics} as read-only attributes of the MBean {@code nl.saxion.ptbc:type=Metrics}.
+ * <p>
+ * Every counter is one attribute, every histogram has the attributes {@code <name>.count},
+ * {@code .mean}, {@code .p50}, {@code .p90}, {@code .p99} and {@code .max}, in the unit it records.
+ */
+public final class MetricsJmx implements DynamicMBean {
+    public static final String OBJECT_NAME = "nl.saxion.ptbc:type=Metrics";
+    private static final String[] HISTOGRAM_FIELDS = {"count", "mean", "p50", "p90", "p99", "max"};
+
+    /**
+     * Registers the MBean with the platform MBean server, does nothing if it is already registered.
+     */
+    public static void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new MetricsJmx(), name);
+            }
+        } catch (JMException e) {
+            System.err.println("Could not register the metrics MBean: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        for (Counter counter : Metrics.getCounters()) {
+            if (counter.getName().equals(attribute)) {
+                return counter.get();
+            }
+        }
+        for (Histogram histogram : Metrics.getHistograms()) {
+            String prefix = histogram.getName() + ".";
+            if (attribute.startsWith(prefix)) {
+                Object value = field(histogram.snapshot(), attribute.substring(prefix.length()));
+                if (value != null) {
+                    return value;
+                }
+            }
+        }
+        throw new AttributeNotFoundException(attribute);
+    }
+
+    private static Object field(HistogramSnapshot snapshot, String field) {
+        switch (field) {
+            case "count":
+                return snapshot.count();
+            case "mean":
+                return snapshot.mean();
+            case "p50":
+                return snapshot.p50();
+            case "p90":
+                return snapshot.p90();
+            case "p99":
+                return snapshot.p99();
+            case "max":
+                return snapshot.max();
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        AttributeList list = new AttributeList();
+        for (String attribute : attributes) {
+            try {
+                list.add(new Attribute(attribute, getAttribute(attribute)));
+            } catch (AttributeNotFoundException e) {
+                // unknown attributes are left out, as the DynamicMBean contract allows
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws MBeanException {
+        throw new MBeanException(new UnsupportedOperationException(actionName));
+    }
+
+    // Built on every call, so metrics created after the registration show up as well
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> attributes = new ArrayList<>();
+        for (Counter counter : Metrics.getCounters()) {
+            attributes.add(new MBeanAttributeInfo(counter.getName(), "long", "Counter", true, false, false));
+        }
+        for (Histogram histogram : Metrics.getHistograms()) {
+            for (String field : HISTOGRAM_FIELDS) {
+                String type = field.equals("mean") ? "double" : "long";
+                String description = field + " of " + histogram.getName() + " in " + histogram.getUnit();
+                attributes.add(new MBeanAttributeInfo(histogram.getName() + "." + field, type, description, true, false, false));
+            }
+        }
+        return new MBeanInfo(getClass().getName(), "Metrics of the Pilot",
+                attributes.toArray(new MBeanAttributeInfo[0]), null, null, null);
+    }
+}
@@ -0,0 +1,73 @@
+package nl.saxion.ptbc.metrics;
+
+import nl.saxion.ptbc.classes.Task;
+import nl.saxion.ptbc.classes.Tasks;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prints all {@link Metrics} to the console at a fixed interval, and once more when it is closed.
+ * <p>
+ * Metrics that have not recorded anything yet are left out, so the log stays short.
+ */
+public class MetricsReporter implements AutoCloseable {
+    private final long intervalMillis;
+    private final Task worker;
+    private volatile boolean closing = false;
+
+    /**
+     * Registers the {@link MetricsJmx} MBean and starts printing.
+     *
+     * @param interval the time between two reports
+     * @param unit     the unit of {@code interval}
+     */
+    public MetricsReporter(long interval, TimeUnit unit) {
+        this.intervalMillis = unit.toMillis(interval);
+        MetricsJmx.register();
+        worker = Tasks.start("MetricsReporter", this::run);
+    }
+
+    /**
+     * Prints the current values of all metrics that recorded something.
+     */
+    public static void report() {
+        StringBuilder report = new StringBuilder("---- Metrics ----");
+        for (Counter counter : Metrics.getCounters()) {
+            if (counter.get() > 0) {
+                report.append('\n').append(counter.getName()).append(": ").append(counter.get());
+            }
+        }
+        for (Histogram histogram : Metrics.getHistograms()) {
+            if (histogram.getCount() > 0) {
+                report.append('\n').append(histogram.snapshot());
+            }
+        }
+        System.out.println(report);
+    }
+
+    /**
+     * Stops the reporter and prints the final values.
+     */
+    @Override
+    public void close() {
+        closing = true;
+        worker.cancel();
+        try {
+            worker.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        report();
+    }
+
+    private void run() {
+        while (!closing) {
+            try {
+                Thread.sleep(intervalMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+            report();
+        }
+    }
+}
@@ -4,9 +4,16 @@ public class MissionLog {
     private int id;
     private String timeStamp;
     private String mission;
+    // the recorded mission this command belongs to, 0 for commands that were logged before missions existed
+    private int missionId;
 
     public MissionLog(int id, String timeStamp, String mission) {
+        this(id, timeStamp, mission, 0);
+    }
+
+    public MissionLog(int id, String timeStamp, String mission, int missionId) {
         this.id = id;
+        this.missionId = missionId;
         this.mission = mission;
         this.timeStamp = timeStamp;
     }
@@ -22,4 +29,8 @@ public class MissionLog {
     public String getTimeStamp() {
         return timeStamp;
     }
+
+    public int getMissionId() {
+        return missionId;
+    }
 }
\ No newline at end of file
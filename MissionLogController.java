@@ -1,18 +1,30 @@
 package nl.saxion.ptbc.missionLog;
 
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
+import javafx.scene.control.DatePicker;
 import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableRow;
 import javafx.scene.control.TableView;
 import javafx.scene.control.cell.PropertyValueFactory;
+import nl.saxion.ptbc.classes.Tasks;
 
-import java.sql.*;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
 
 public class MissionLogController {
 
+    private static final int PAGE_SIZE = 200;
+    // when a row this close to the end of the loaded entries is shown, the next page is loaded
+    private static final int PREFETCH_ROWS = 50;
+    private static final String FIRST_TIMESTAMP = "";
+    private static final String LAST_TIMESTAMP = "9999-12-31 23:59:59";
+
     private final ObservableList<MissionLog> missionLogList = FXCollections.observableArrayList();
     @FXML
     public Button deleteMissionLog;
@@ -23,60 +35,123 @@ public class MissionLogController {
     @FXML
     private TableColumn<MissionLog, Integer> idColumn;
     @FXML
+    private TableColumn<MissionLog, Integer> missionIdColumn;
+    @FXML
     private TableColumn<MissionLog, String> missionColumn;
 
     @FXML
     private TableColumn<MissionLog, String> timeStampColumn;
 
+    @FXML
+    private DatePicker fromDatePicker;
+    @FXML
+    private DatePicker toDatePicker;
+
+    // keyset of the last loaded entry and the time range, only used on the JavaFX thread
+    private String lastTimestamp = FIRST_TIMESTAMP;
+    private int lastId = -1;
+    private String beforeTimestamp = LAST_TIMESTAMP;
+    private boolean loading = false;
+    private boolean allLoaded = false;
+    // set when a page failed to load, only a reload tries again so scrolling does not hammer the database
+    private boolean loadFailed = false;
+    // incremented on every reload, so pages of an earlier reload are ignored
+    private int generation = 0;
+
     @FXML
     public void initialize() {
         idColumn.setCellValueFactory(new PropertyValueFactory<>("id"));
+        missionIdColumn.setCellValueFactory(new PropertyValueFactory<>("missionId"));
         missionColumn.setCellValueFactory(new PropertyValueFactory<>("mission"));
         timeStampColumn.setCellValueFactory(new PropertyValueFactory<>("timeStamp"));
+        missionTableView.setItems(missionLogList);
+
+        // load the next page as soon as the rows near the end of the loaded entries become visible
+        missionTableView.setRowFactory(table -> new TableRow<>() {
+            @Override
+            protected void updateItem(MissionLog item, boolean empty) {
+                super.updateItem(item, empty);
+                if (!empty && getIndex() >= missionLogList.size() - PREFETCH_ROWS) {
+                    loadNextPage();
+                }
+            }
+        });
         loadMissionLog();
     }
 
     /**
-     * Loads all mission log entries from the {@code mission_logs} table in the SQLite database
-     * and displays them in the {@link #missionTableView}.
+     * Reloads the mission log entries from the {@code mission_logs} table in the SQLite database
+     * into the {@link #missionTableView}, limited to the time range of the date pickers.
      * <p>
      * This method performs the following actions:
      * <ul>
      *     <li>Clears the current observable list of mission logs.</li>
-     *     <li>Connects to the {@code sasa.db} database using JDBC.</li>
-     *     <li>Executes a {@code SELECT *} query on the {@code mission_logs} table.</li>
-     *     <li>Iterates through the result set and creates {@link MissionLog} objects for each row.</li>
-     *     <li>Adds the retrieved logs to the {@code missionLogList} observable list.</li>
-     *     <li>Sets the updated list into the {@code missionTableView} to update the UI.</li>
+     *     <li>Resets the keyset to the start of the selected time range.</li>
+     *     <li>Loads the first page in the background; further pages are loaded while the table is scrolled.</li>
      * </ul>
-     * <p>
-     * If an SQL exception occurs during the database interaction, it is wrapped and thrown as a {@link RuntimeException}.
      */
     @FXML
     public void loadMissionLog() {
+        generation++;
         missionLogList.clear();
 
-        String url = "jdbc:sqlite:sasa.db";
-        String sql = "SELECT * FROM mission_logs";
+        LocalDate from = fromDatePicker == null ? null : fromDatePicker.getValue();
+        LocalDate to = toDatePicker == null ? null : toDatePicker.getValue();
+        lastTimestamp = from == null ? FIRST_TIMESTAMP : from.toString();
+        beforeTimestamp = to == null ? LAST_TIMESTAMP : to.plusDays(1).toString();
+        lastId = -1;
+        loading = false;
+        allLoaded = false;
+        loadFailed = false;
 
-        try {
-            Connection conn = DriverManager.getConnection(url);
-            Statement stmt = conn.createStatement();
-            ResultSet result = stmt.executeQuery(sql);
+        loadNextPage();
+    }
 
-            while (result.next()) {
-                int id = result.getInt("id");
-                String mission = result.getString("command");
-                String timestamp = result.getString("timestamp");
-                missionLogList.add(new MissionLog(id, timestamp, mission));
+    /**
+     * Loads the page after the last loaded entry in a background {@link nl.saxion.ptbc.classes.Task}
+     * and appends it to the table; database reads never run on the JavaFX thread.
+     * Does nothing while a page is being loaded, when all entries have been loaded or when a page
+     * failed to load, so the pages of one reload are loaded one after the other, in order.
+     */
+    private void loadNextPage() {
+        if (loading || allLoaded || loadFailed) {
+            return;
+        }
+        loading = true;
+
+        int requestGeneration = generation;
+        String afterTimestamp = lastTimestamp;
+        int afterId = lastId;
+        String before = beforeTimestamp;
+
+        Tasks.start("MissionLogLoader", () -> {
+            try {
+                List<MissionLog> page = MissionLogDAO.loadMissionLogPage(afterTimestamp, afterId, before, PAGE_SIZE);
+                Platform.runLater(() -> appendPage(requestGeneration, page));
+            } catch (SQLException e) {
+                System.err.println("Failed to load the mission log: " + e.getMessage());
+                Platform.runLater(() -> {
+                    if (requestGeneration == generation) {
+                        loading = false;
+                        loadFailed = true;
+                    }
+                });
             }
+        });
+    }
 
-            missionTableView.setItems(missionLogList);
-
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
+    private void appendPage(int requestGeneration, List<MissionLog> page) {
+        if (requestGeneration != generation) {
+            return;
+        }
+        loading = false;
+        allLoaded = page.size() < PAGE_SIZE;
+        if (!page.isEmpty()) {
+            MissionLog last = page.get(page.size() - 1);
+            lastTimestamp = last.getTimeStamp();
+            lastId = last.getId();
+            missionLogList.addAll(page);
         }
-
     }
 
     /**
@@ -85,19 +160,17 @@ public class MissionLogController {
      * <p>
      * This method is triggered by a UI button. It performs the following steps:
      * <ul>
-     *     <li>Ensures the {@code sent_mission} table exists in the database by calling {@code MissionLogDAO.createSentMissionTableIfNotExists()}.</li>
      *     <li>Retrieves the selected mission from the UI table view.</li>
-     *     <li>If a mission is selected, inserts it (with its timestamp) into the {@code sent_mission} table.</li>
+     *     <li>If a mission is selected, inserts it (with its timestamp and session) into the {@code sent_mission} table,
+     *     so the pilot replays the whole session it belongs to.</li>
      *     <li>If no mission is selected, it logs a warning and exits early.</li>
      *     <li>Handles and logs any SQL exceptions that occur during the process.</li>
      * </ul>
+     * The insert runs in a background {@link nl.saxion.ptbc.classes.Task}, not on the JavaFX thread.
      */
 
     @FXML
     public void sendMissionToPilot() {
-
-        MissionLogDAO.createSentMissionTableIfNotExists();
-
         MissionLog selectedLog = missionTableView.getSelectionModel().getSelectedItem();
 
         if (selectedLog == null) {
@@ -105,20 +178,15 @@ public class MissionLogController {
             return;
         }
 
-        String sql = "INSERT INTO sent_mission(command, timestamp) VALUES (?, ?)";
+        Tasks.start("MissionSender", () -> {
+            try {
+                MissionLogDAO.sendMissionToPilot(selectedLog);
+                System.out.println("Mission sent to pilot");
 
-        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:sasa.db");
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setString(1, selectedLog.getMission());
-            stmt.setString(2, selectedLog.getTimeStamp());
-            stmt.executeUpdate();
-
-            System.out.println("Mission sent to pilot");
-
-        } catch (SQLException e) {
-            System.err.println("Failed to send mission: " + e.getMessage());
-        }
+            } catch (SQLException e) {
+                System.err.println("Failed to send mission: " + e.getMessage());
+            }
+        });
     }
 
     /**
@@ -128,11 +196,13 @@ public class MissionLogController {
      * <ul>
      *     <li>Retrieves the currently selected {@link MissionLog} from the {@code missionTableView}.</li>
      *     <li>If no mission is selected, it prints a message and exits.</li>
-     *     <li>Prepares and executes a SQL {@code DELETE} statement to remove the selected mission from the {@code mission_logs} table in the {@code sasa.db} SQLite database.</li>
+     *     <li>Deletes the selected mission from the {@code mission_logs} table through {@link MissionLogDAO#deleteMissionLog(int)}.</li>
      *     <li>If the deletion is successful, removes the mission log entry from the {@code missionLogList} observable list to update the UI.</li>
      *     <li>If no rows are affected, it indicates that the mission was not found in the database.</li>
      *     <li>Handles any {@link SQLException} by logging the error message to the console.</li>
      * </ul>
+     * The delete runs in a background {@link nl.saxion.ptbc.classes.Task}, the entry is removed from the
+     * table on the JavaFX thread afterwards.
      *
      * @param actionEvent the event triggered by pressing the delete button
      */
@@ -146,25 +216,18 @@ public class MissionLogController {
             return;
         }
 
-        int idToDelete = selectedLog.getId();
-
-        String sql = "DELETE FROM mission_logs WHERE id = ?";
-
-        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:sasa.db");
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setInt(1, idToDelete);
-            int affectedRows = stmt.executeUpdate();
-
-            if (affectedRows > 0) {
-                System.out.println("Mission deleted successfully.");
-                missionLogList.remove(selectedLog); // Also remove from the observable list
-            } else {
-                System.out.println("No mission found with the specified ID.");
+        Tasks.start("MissionLogDeleter", () -> {
+            try {
+                if (MissionLogDAO.deleteMissionLog(selectedLog.getId())) {
+                    System.out.println("Mission deleted successfully.");
+                    Platform.runLater(() -> missionLogList.remove(selectedLog)); // Also remove from the observable list
+                } else {
+                    System.out.println("No mission found with the specified ID.");
+                }
+
+            } catch (SQLException e) {
+                System.err.println("Failed to delete mission: " + e.getMessage());
             }
-
-        } catch (SQLException e) {
-            System.err.println("Failed to delete mission: " + e.getMessage());
-        }
+        });
     }
 }
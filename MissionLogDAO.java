@@ -1,120 +1,158 @@
 package nl.saxion.ptbc.missionLog;
 
+import nl.saxion.ptbc.database.Database;
+
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
- * Data Access Object (DAO) class for inserting mission log entries into a SQLite database.
+ * Data Access Object (DAO) class for the mission log tables in the SQLite database.
  * <p>
- * This class provides a static method to store a list of mission commands into the
- * {@code mission_logs} table in the {@code sasa.db} database. Each entry includes the command text
- * and a timestamp of when it was logged.
+ * This class provides static methods to store a recorded mission into the {@code missions} and
+ * {@code mission_logs} tables, to read and delete them again, and to hand a mission log entry
+ * over to the pilot through the {@code sent_mission} table. All methods go through the shared
+ * {@link Database}, which also creates the tables.
  */
 
 public class MissionLogDAO {
 
-    // url to database file
-    private static final String url = "jdbc:sqlite:sasa.db";
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
     /**
-     * Inserts a list of mission commands into the {@code mission_logs} table.
+     * Stores a recorded mission as one session.
      * <p>
-     * Each command is inserted with the current timestamp. The insertion is done as a batch
-     * for improved performance.
+     * A row is added to the {@code missions} table, and all commands are inserted into the
+     * {@code mission_logs} table in a single batch, each with the id of that mission and its
+     * offset in milliseconds from the start of the recording. The timestamp of a command is
+     * the start of the mission plus its offset.
      *
-     * @param missionLog a list of command strings to be stored in the database
+     * @param recording the recorded mission
      */
-
-    public static void insertMissionLog(List<String> missionLog) {
-        createTableIfNotExists();
-
-        // SQL statement that needs to be executed
-        String sql = "INSERT INTO " +
-                "mission_logs(command, timestamp) " +
-                "VALUES (?, ?)";
-
-        try (
-                // set up the connection with the database and prepare SQL statement
-                Connection conn = DriverManager.getConnection(url);
-                PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            // Add each command from the missionLog into a batch
-            for (String command : missionLog) {
-                stmt.setString(1, command);
-
-                String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-                stmt.setString(2, timestamp);
-
-                stmt.addBatch();
-            }
-
-            // Add the whole batch to the database
-            stmt.executeBatch();
-            System.out.println("MissionLogs are stored in the database!");
+    public static void insertMissionLog(MissionRecording recording) {
+        List<String> commands = recording.getCommands();
+        long[] offsetsMillis = recording.getOffsetsMillis();
+        LocalDateTime startedAt = recording.getStartedAt();
+
+        String missionSql = "INSERT INTO missions(started_at, command_count) VALUES (?, ?)";
+        String commandSql = "INSERT INTO " +
+                "mission_logs(command, timestamp, mission_id, offset_ms) " +
+                "VALUES (?, ?, ?, ?)";
+
+        try {
+            int missionId = Database.get().write(session -> {
+                PreparedStatement missionStmt = session.prepare(missionSql);
+                missionStmt.setString(1, startedAt.format(TIMESTAMP_FORMAT));
+                missionStmt.setInt(2, commands.size());
+                missionStmt.executeUpdate();
+
+                int id;
+                try (ResultSet keys = session.prepare("SELECT last_insert_rowid()").executeQuery()) {
+                    keys.next();
+                    id = keys.getInt(1);
+                }
+
+                PreparedStatement stmt = session.prepare(commandSql);
+                for (int i = 0; i < commands.size(); i++) {
+                    stmt.setString(1, commands.get(i));
+                    stmt.setString(2, startedAt.plusNanos(offsetsMillis[i] * 1_000_000).format(TIMESTAMP_FORMAT));
+                    stmt.setInt(3, id);
+                    stmt.setLong(4, offsetsMillis[i]);
+                    stmt.addBatch();
+                }
+
+                // Add the whole batch to the database
+                stmt.executeBatch();
+                return id;
+            });
+            System.out.println("Mission " + missionId + " with " + commands.size() + " commands is stored in the database!");
         } catch (SQLException e) {
             System.err.println("Error while saving the missionLog: " + e.getMessage());
         }
     }
 
     /**
-     * A simple utility class to create a SQLite database table named {@code mission_logs} if it does not already exist.
-     * <p>
-     * The table includes the following columns:
-     * <ul>
-     *     <li>{@code id} - An auto-incrementing primary key.</li>
-     *     <li>{@code timestamp} - A timestamp column with the current time as the default value.</li>
-     *     <li>{@code command} - A text field intended to store logged command entries.</li>
-     * </ul>
+     * Loads one page of the {@code mission_logs} table, ordered by timestamp and id.
      * <p>
-     * The script connects to the SQLite database file {@code sasa.db}, creates the table if needed,
-     * and prints status messages to the console.
+     * Pages are selected with a keyset instead of an offset: the next page starts right after the
+     * (timestamp, id) of the last entry of the previous page, so every page is a range scan on the
+     * timestamp index, no matter how deep into the log it is.
+     * Timestamps are compared as text in the {@code yyyy-MM-dd HH:mm:ss} format (or a prefix of it).
+     *
+     * @param afterTimestamp the timestamp of the last entry of the previous page, or the start of the time range
+     * @param afterId        the id of the last entry of the previous page, or -1 for the first page
+     * @param beforeTimestamp the (exclusive) end of the time range
+     * @param pageSize       the maximum number of entries to load
+     * @return the entries of the page, fewer than {@code pageSize} if it is the last page
+     * @throws SQLException if the entries cannot be read
      */
-
-    public static void createTableIfNotExists() {
-        String createTableSQL = "CREATE TABLE IF NOT EXISTS mission_logs ("
-                + "id INTEGER PRIMARY KEY AUTOINCREMENT,"
-                + "timestamp TIMESTAMP DEFAULT CURRENT_TIMESTAMP,"
-                + "command TEXT"
-                + ");";
-
-        try (Connection conn = DriverManager.getConnection(url);
-             Statement stmt = conn.createStatement()) {
-            stmt.execute(createTableSQL);
-            System.out.println("mission_logs table ensured.");
-        } catch (SQLException e) {
-            System.err.println("Failed to create/check mission_logs table: " + e.getMessage());
-        }
+    public static List<MissionLog> loadMissionLogPage(String afterTimestamp, int afterId, String beforeTimestamp,
+                                                      int pageSize) throws SQLException {
+        String sql = "SELECT id, timestamp, command, mission_id FROM mission_logs "
+                + "WHERE (timestamp, id) > (?, ?) AND timestamp < ? "
+                + "ORDER BY timestamp, id LIMIT ?";
+
+        return Database.get().read(session -> {
+            PreparedStatement stmt = session.prepare(sql);
+            stmt.setString(1, afterTimestamp);
+            stmt.setInt(2, afterId);
+            stmt.setString(3, beforeTimestamp);
+            stmt.setInt(4, pageSize);
+
+            List<MissionLog> missionLogs = new ArrayList<>(pageSize);
+            try (ResultSet result = stmt.executeQuery()) {
+                while (result.next()) {
+                    int id = result.getInt("id");
+                    String mission = result.getString("command");
+                    String timestamp = result.getString("timestamp");
+                    int missionId = result.getInt("mission_id");
+                    missionLogs.add(new MissionLog(id, timestamp, mission, missionId));
+                }
+            }
+            return missionLogs;
+        });
     }
 
     /**
-     * A simple utility class to create a SQLite database table named {@code sent_mission} if it does not already exist.
-     * <p>
-     * The table includes the following columns:
-     * <ul>
-     *     <li>{@code id} - An auto-incrementing primary key.</li>
-     *     <li>{@code command} - A text field intended to store logged command entries.</li>
-     *     <li>{@code timestamp} - A timestamp column with the current time as the default value.</li>
-     * </ul>
-     * <p>
-     * The script connects to the SQLite database file {@code sasa.db}, creates the table if needed,
-     * and prints status messages to the console.
+     * Inserts a mission log entry (with its timestamp and mission) into the {@code sent_mission} table,
+     * where the pilot picks it up to replay the whole mission.
+     *
+     * @param missionLog the entry to send
+     * @throws SQLException if the entry cannot be stored
      */
+    public static void sendMissionToPilot(MissionLog missionLog) throws SQLException {
+        String sql = "INSERT INTO sent_mission(command, timestamp, mission_id) VALUES (?, ?, ?)";
+
+        Database.get().write(session -> {
+            PreparedStatement stmt = session.prepare(sql);
+            stmt.setString(1, missionLog.getMission());
+            stmt.setString(2, missionLog.getTimeStamp());
+            if (missionLog.getMissionId() > 0) {
+                stmt.setInt(3, missionLog.getMissionId());
+            } else {
+                stmt.setNull(3, Types.INTEGER);
+            }
+            return stmt.executeUpdate();
+        });
+    }
 
-    public static void createSentMissionTableIfNotExists() {
-        String sql = "CREATE TABLE IF NOT EXISTS sent_mission (" +
-                "id INTEGER PRIMARY KEY AUTOINCREMENT," +
-                "command TEXT," +
-                "timestamp TEXT" +
-                ")";
-
-        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:sasa.db");
-             Statement stmt = conn.createStatement()) {
-            stmt.execute(sql);
-            System.out.println("sent_mission table ensured.");
-        } catch (SQLException e) {
-            System.err.println("Could not create sent_mission table: " + e.getMessage());
-        }
+    /**
+     * Deletes a mission log entry from the {@code mission_logs} table.
+     *
+     * @param id the id of the entry
+     * @return {@code true} if an entry was deleted
+     * @throws SQLException if the entry cannot be deleted
+     */
+    public static boolean deleteMissionLog(int id) throws SQLException {
+        String sql = "DELETE FROM mission_logs WHERE id = ?";
+
+        int affectedRows = Database.get().write(session -> {
+            PreparedStatement stmt = session.prepare(sql);
+            stmt.setInt(1, id);
+            return stmt.executeUpdate();
+        });
+        return affectedRows > 0;
     }
-}
\ No newline at end of file
+}
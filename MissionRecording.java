@@ -0,0 +1,59 @@
+package nl.saxion.ptbc.missionLog;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A mission that is being recorded: the drive commands in the order they were sent, each with the
+ * number of milliseconds since the recording started.
+ * <p>
+ * Commands are added from both the JavaFX thread and the communicator thread, so all methods are synchronized.
+ */
+public class MissionRecording {
+    private final ArrayList<String> commands = new ArrayList<>();
+    private long[] offsetsMillis = new long[64];
+    private long startNanos = System.nanoTime();
+    private LocalDateTime startedAt = LocalDateTime.now();
+
+    /**
+     * Clears the recording and starts the clock again.
+     */
+    public synchronized void start() {
+        commands.clear();
+        startNanos = System.nanoTime();
+        startedAt = LocalDateTime.now();
+    }
+
+    /**
+     * Adds a command, stamped with the time since {@link #start()}.
+     *
+     * @param command the command that was sent
+     */
+    public synchronized void add(String command) {
+        int index = commands.size();
+        if (index == offsetsMillis.length) {
+            offsetsMillis = Arrays.copyOf(offsetsMillis, index * 2);
+        }
+        offsetsMillis[index] = (System.nanoTime() - startNanos) / 1_000_000;
+        commands.add(command);
+    }
+
+    //Getters
+    public synchronized int size() {
+        return commands.size();
+    }
+
+    public synchronized List<String> getCommands() {
+        return new ArrayList<>(commands);
+    }
+
+    public synchronized long[] getOffsetsMillis() {
+        return Arrays.copyOf(offsetsMillis, commands.size());
+    }
+
+    public synchronized LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+}
@@ -0,0 +1,60 @@
+package nl.saxion.ptbc.missionLog;
+
+import nl.saxion.ptbc.classes.Task;
+import nl.saxion.ptbc.classes.Tasks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Replays a {@link MissionSession} with the timing it was recorded with.
+ * <p>
+ * The replay runs as a {@link Task} on its own virtual thread and sends every command at its original offset from the
+ * start of the replay. A replay can be cancelled at any time, e.g. when a new replay is started.
+ */
+public class MissionReplayer {
+    private final Task task;
+
+    private MissionReplayer(Task task) {
+        this.task = task;
+    }
+
+    /**
+     * Starts replaying a mission.
+     *
+     * @param session the mission to replay
+     * @param sender  sends a single command to the Frog
+     * @return the running replay
+     */
+    public static MissionReplayer start(MissionSession session, Consumer<String> sender) {
+        return new MissionReplayer(Tasks.start("MissionReplay-" + session.getId(), () -> run(session, sender)));
+    }
+
+    /**
+     * Stops the replay; commands that were not sent yet are skipped.
+     */
+    public void cancel() {
+        task.cancel();
+    }
+
+    public boolean isRunning() {
+        return task.isRunning();
+    }
+
+    private static void run(MissionSession session, Consumer<String> sender) {
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < session.size(); i++) {
+            long waitNanos = TimeUnit.MILLISECONDS.toNanos(session.getOffsetMillis(i)) - (System.nanoTime() - startNanos);
+            try {
+                if (waitNanos > 0) {
+                    TimeUnit.NANOSECONDS.sleep(waitNanos);
+                }
+            } catch (InterruptedException e) {
+                System.out.println("Replay of mission " + session.getId() + " cancelled.");
+                return;
+            }
+            sender.accept(session.getCommand(i));
+        }
+        System.out.println("Replay of mission " + session.getId() + " finished, " + session.size() + " commands sent.");
+    }
+}
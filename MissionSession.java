@@ -0,0 +1,38 @@
+package nl.saxion.ptbc.missionLog;
+
+/**
+ * A recorded mission loaded from the database, ready to be replayed.
+ * <p>
+ * The commands are kept in memory together with their offset in milliseconds from the start of the mission.
+ */
+public class MissionSession {
+    private final int id;
+    private final String[] commands;
+    private final long[] offsetsMillis;
+
+    public MissionSession(int id, String[] commands, long[] offsetsMillis) {
+        if (commands.length != offsetsMillis.length) {
+            throw new IllegalArgumentException("Every command needs an offset");
+        }
+        this.id = id;
+        this.commands = commands;
+        this.offsetsMillis = offsetsMillis;
+    }
+
+    //Getters
+    public int getId() {
+        return id;
+    }
+
+    public int size() {
+        return commands.length;
+    }
+
+    public String getCommand(int index) {
+        return commands[index];
+    }
+
+    public long getOffsetMillis(int index) {
+        return offsetsMillis[index];
+    }
+}
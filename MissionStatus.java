@@ -1,6 +1,6 @@
 package nl.saxion.ptbc.missionLog;
 
-import nl.saxion.ptbc.SaSaCommunicator;
+import nl.saxion.ptbc.classes.CommandDispatcher;
 import nl.saxion.ptbc.classes.Location;
 
 import java.util.ArrayList;
@@ -16,9 +16,9 @@ import java.util.ArrayList;
 
 public class MissionStatus {
     private static Location location;
-    private static SaSaCommunicator sasa;
+    private static CommandDispatcher sasa;
 
-    public static void setCommunicator(SaSaCommunicator communicator) {
+    public static void setCommunicator(CommandDispatcher communicator) {
         MissionStatus.sasa = communicator;
     }
 
@@ -0,0 +1,271 @@
+package nl.saxion.ptbc.CSVLoader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads obstacles from a CSV file with one {@code X,Z} pair per line, like the files the Ground
+ * Control export writes.
+ * <p>
+ * The file is read as bytes and the numbers are parsed straight from them, so no String is created
+ * per line or field. Files of {@code MAP_THRESHOLD} bytes and more are memory-mapped in windows of
+ * {@code WINDOW_SIZE} bytes, smaller ones are read through one buffer. The coordinates are handed to a
+ * {@link BatchHandler} in batches, in two arrays that are reused for the next batch.
+ * <p>
+ * A first line that does not start with a number is taken as the header. Other lines that are not
+ * two numbers separated by a comma, like empty lines, are skipped and counted. Numbers may have a
+ * sign, a fraction and an exponent ({@code -1.5E-4}); surrounding spaces are ignored.
+ */
+public final class ObstacleCsvReader {
+    private static final long MAP_THRESHOLD = 4L * 1024 * 1024;
+    private static final int WINDOW_SIZE = 64 * 1024 * 1024;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    // longer lines can not be coordinates
+    private static final int MAX_LINE_LENGTH = 4096;
+    // digits beyond this are below the precision of a double
+    private static final int MAX_SIGNIFICANT_DIGITS = 18;
+    private static final double[] POWERS_OF_TEN = new double[23];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    /**
+     * Receives the obstacles of one batch. The arrays are only valid during the call.
+     */
+    public interface BatchHandler {
+        void handle(double[] xs, double[] zs, int count) throws InterruptedException;
+    }
+
+    /**
+     * Receives how far the file has been read, after every batch.
+     */
+    public interface ProgressHandler {
+        void progress(long bytesRead, long size);
+    }
+
+    /**
+     * The outcome of reading a file.
+     *
+     * @param obstacles    the number of obstacles handed to the batch handler
+     * @param skippedLines the number of lines that were not coordinates, not counting the header
+     */
+    public record Result(long obstacles, long skippedLines) {
+    }
+
+    private final double[] xs;
+    private final double[] zs;
+    private int count;
+    private long obstacles;
+    private long skippedLines;
+    private boolean firstLine = true;
+
+    // the number being parsed, set by parseNumber
+    private double number;
+    private int position;
+
+    private ObstacleCsvReader(int batchSize) {
+        xs = new double[batchSize];
+        zs = new double[batchSize];
+    }
+
+    /**
+     * Reads a whole file on the calling thread.
+     *
+     * @param file      the CSV file
+     * @param batchSize the maximum number of obstacles per batch
+     * @param batches   receives the obstacles
+     * @param progress  receives the progress
+     * @return the number of obstacles and skipped lines
+     * @throws IOException          if the file cannot be read
+     * @throws InterruptedException if the thread was interrupted, checked between batches
+     * @throws CSVLoaderException   if a line is longer than {@code MAX_LINE_LENGTH} bytes
+     */
+    public static Result read(Path file, int batchSize, BatchHandler batches, ProgressHandler progress)
+            throws IOException, InterruptedException {
+        ObstacleCsvReader reader = new ObstacleCsvReader(batchSize);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size >= MAP_THRESHOLD) {
+                reader.readMapped(channel, size, batches, progress);
+            } else {
+                reader.readBuffered(channel, size, batches, progress);
+            }
+        }
+        return new Result(reader.obstacles, reader.skippedLines);
+    }
+
+    private void readMapped(FileChannel channel, long size, BatchHandler batches, ProgressHandler progress)
+            throws IOException, InterruptedException {
+        long offset = 0;
+        while (offset < size) {
+            long length = Math.min(WINDOW_SIZE, size - offset);
+            boolean last = offset + length == size;
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+            // the window ends halfway a line, unless it is the last one; that line starts the next window
+            offset += parseLines(window, last, batches, offset, size, progress);
+        }
+        flush(batches, size, size, progress);
+    }
+
+    private void readBuffered(FileChannel channel, long size, BatchHandler batches, ProgressHandler progress)
+            throws IOException, InterruptedException {
+        // either the whole file fits, or the buffer is larger than the longest line
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(READ_BUFFER_SIZE, Math.max(size, MAX_LINE_LENGTH + 1)));
+        long offset = 0;
+        boolean last = false;
+        while (!last) {
+            last = channel.read(buffer) < 0;
+            buffer.flip();
+            int consumed = parseLines(buffer, last, batches, offset, size, progress);
+            offset += consumed;
+            buffer.position(consumed);
+            buffer.compact();
+        }
+        flush(batches, size, size, progress);
+    }
+
+    // Parses the complete lines of the buffer, and the incomplete last one if it is the end of the file.
+    // Returns the number of bytes parsed.
+    private int parseLines(ByteBuffer buffer, boolean last, BatchHandler batches, long offset, long size,
+                           ProgressHandler progress) throws InterruptedException {
+        int limit = buffer.limit();
+        int lineStart = 0;
+        while (lineStart < limit) {
+            int lineEnd = lineStart;
+            int maxEnd = Math.min(limit, lineStart + MAX_LINE_LENGTH + 1);
+            while (lineEnd < maxEnd && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            // checked first: a line without newline that fills the whole buffer would never be completed
+            if (lineEnd - lineStart > MAX_LINE_LENGTH) {
+                throw new CSVLoaderException("Line longer than " + MAX_LINE_LENGTH + " bytes at byte " + (offset + lineStart));
+            }
+            if (lineEnd == limit && !last) {
+                break;
+            }
+            parseLine(buffer, lineStart, lineEnd);
+            lineStart = lineEnd + 1;
+            if (count == xs.length) {
+                flush(batches, offset + Math.min(lineStart, limit), size, progress);
+            }
+        }
+        return Math.min(lineStart, limit);
+    }
+
+    private void parseLine(ByteBuffer buffer, int start, int end) {
+        boolean header = firstLine;
+        firstLine = false;
+        if (end > start && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+        position = start;
+        if (parseNumber(buffer, end) && skipSpaces(buffer, end) == ',') {
+            double x = number;
+            position++;
+            if (parseNumber(buffer, end) && skipSpaces(buffer, end) == -1) {
+                xs[count] = x;
+                zs[count] = number;
+                count++;
+                return;
+            }
+        }
+        if (!header) {
+            skippedLines++;
+        }
+    }
+
+    // Skips spaces and returns the byte at the new position, or -1 at the end of the line
+    private int skipSpaces(ByteBuffer buffer, int end) {
+        while (position < end && buffer.get(position) == ' ') {
+            position++;
+        }
+        return position < end ? buffer.get(position) : -1;
+    }
+
+    // Parses a decimal number at the position into number, returns false if there is none
+    private boolean parseNumber(ByteBuffer buffer, int end) {
+        int c = skipSpaces(buffer, end);
+        boolean negative = c == '-';
+        if (negative || c == '+') {
+            position++;
+        }
+
+        long mantissa = 0;
+        int significantDigits = 0;
+        int exponent = 0;
+        int digits = 0;
+        boolean fraction = false;
+        for (; position < end; position++) {
+            c = buffer.get(position);
+            if (c >= '0' && c <= '9') {
+                digits++;
+                if (significantDigits < MAX_SIGNIFICANT_DIGITS) {
+                    if (mantissa != 0 || c != '0') {
+                        significantDigits++;
+                    }
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (fraction) exponent--;
+                } else if (!fraction) {
+                    exponent++;
+                }
+            } else if (c == '.' && !fraction) {
+                fraction = true;
+            } else {
+                break;
+            }
+        }
+        if (digits == 0) {
+            return false;
+        }
+
+        if (position < end && (buffer.get(position) | 0x20) == 'e') {
+            position++;
+            boolean negativeExponent = position < end && buffer.get(position) == '-';
+            if (position < end && (negativeExponent || buffer.get(position) == '+')) {
+                position++;
+            }
+            int value = 0;
+            int exponentDigits = 0;
+            while (position < end && (c = buffer.get(position)) >= '0' && c <= '9') {
+                value = Math.min(value * 10 + (c - '0'), 1000);
+                exponentDigits++;
+                position++;
+            }
+            if (exponentDigits == 0) {
+                return false;
+            }
+            exponent += negativeExponent ? -value : value;
+        }
+
+        // at most a few units in the last place off, far below the centimeters obstacles are deduped on
+        double result = mantissa;
+        if (exponent < 0) {
+            result = -exponent < POWERS_OF_TEN.length ? result / POWERS_OF_TEN[-exponent] : result * Math.pow(10, exponent);
+        } else if (exponent > 0) {
+            result = exponent < POWERS_OF_TEN.length ? result * POWERS_OF_TEN[exponent] : result * Math.pow(10, exponent);
+        }
+        number = negative ? -result : result;
+        return true;
+    }
+
+    private void flush(BatchHandler batches, long bytesRead, long size, ProgressHandler progress)
+            throws InterruptedException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedException("CSV import cancelled");
+        }
+        if (count > 0) {
+            batches.handle(xs, zs, count);
+            obstacles += count;
+            count = 0;
+        }
+        progress.progress(bytesRead, size);
+    }
+}
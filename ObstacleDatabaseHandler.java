@@ -3,68 +3,142 @@ package nl.saxion.ptbc.database;
 import nl.saxion.ptbc.classes.Location;
 import nl.saxion.ptbc.classes.Obstacle;
 
-import java.sql.*;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.List;
 /**
  * Handles database operations related to storing and retrieving obstacles.
  * Uses an SQLite database to persist obstacle (x, z) coordinates.
  */
 public class ObstacleDatabaseHandler {
 
-    // Path to the SQLite database file
-    private static final String DB_URL = "jdbc:sqlite:sasa.db";
+    // Obstacles are unique on their coordinates multiplied by this factor and rounded, i.e. on 0.01 precision
+    private static final double QUANTIZATION = 100.0;
+    private static final String INSERT_SQL = "INSERT OR IGNORE INTO Obstacles (x, z, qx, qz) VALUES (?, ?, ?, ?)";
+    private static final String DELETE_SQL = "DELETE FROM Obstacles WHERE qx = ? AND qz = ?";
+    private static final String AREA_SQL = "SELECT x, z FROM Obstacles WHERE qx >= ? AND qx < ? AND qz >= ? AND qz < ?";
+    private static final String COUNT_SQL = "SELECT (qx - ?) / ?, (qz - ?) / ?, COUNT(*) FROM Obstacles"
+            + " WHERE qx >= ? AND qx < ? AND qz >= ? AND qz < ? GROUP BY 1, 2";
 
     /**
      * Saves only new unique obstacles to the SQLite database.
-     * Obstacles are filtered using a rounded (x,z) key to avoid near-duplicate entries due to floating-point inaccuracies.
+     * <p>
+     * The obstacles are written in one transaction with {@code INSERT OR IGNORE}; the unique index on
+     * the quantized coordinates makes the database skip obstacles that are already stored, so the
+     * existing table never has to be read.
      *
      * @param obstacles the list of obstacles to attempt saving
      * @return the number of new obstacles that were successfully inserted into the database
      */
-    public static int saveObstacles(ArrayList<Obstacle> obstacles) {
-        int newCount = 0; // Counter for how many new obstacles were added
-
-        try (Connection conn = DriverManager.getConnection(DB_URL)) {
-            Statement stmt = conn.createStatement();
-
-            // Ensure the Obstacles table exists
-            stmt.execute("CREATE TABLE IF NOT EXISTS Obstacles (x REAL, z REAL)");
-
-            // Load already existing obstacle coordinates from DB to avoid duplicates
-            Set<String> existingKeys = new HashSet<>();
-            ResultSet rs = stmt.executeQuery("SELECT x, z FROM Obstacles");
-            while (rs.next()) {
-                // Round coordinates to 2 decimal places to avoid float precision issues
-                String key = String.format("%.2f,%.2f", rs.getDouble("x"), rs.getDouble("z"));
-                existingKeys.add(key);
-            }
+    public static int saveObstacles(List<Obstacle> obstacles) {
+        try {
+            return insertObstacles(obstacles);
+        } catch (SQLException e) {
+            e.printStackTrace(); // Show error if something goes wrong
+            return 0;
+        }
+    }
 
-            // Prepare statement for batch insert
-            PreparedStatement ps = conn.prepareStatement("INSERT INTO Obstacles (x, z) VALUES (?, ?)");
+    /**
+     * Inserts obstacles in one transaction, ignoring obstacles whose quantized coordinates are already stored.
+     *
+     * @param obstacles the obstacles to insert
+     * @return the number of obstacles that were new
+     * @throws SQLException if the obstacles cannot be written
+     */
+    public static int insertObstacles(List<Obstacle> obstacles) throws SQLException {
+        if (obstacles.isEmpty()) {
+            return 0;
+        }
+        return Database.get().write(session -> {
+            PreparedStatement ps = session.prepare(INSERT_SQL);
 
             for (Obstacle obs : obstacles) {
-                String key = String.format("%.2f,%.2f", obs.getLocation().getX(), obs.getLocation().getZ());
-
-                // Only add if it's not already in the database
-                if (!existingKeys.contains(key)) {
-                    ps.setDouble(1, obs.getLocation().getX());
-                    ps.setDouble(2, obs.getLocation().getZ());
-                    ps.addBatch(); // Add to batch for faster execution
-                    existingKeys.add(key); // Track to avoid duplicate within this save
-                    newCount++;
-                }
+                double x = obs.getLocation().getX();
+                double z = obs.getLocation().getZ();
+                ps.setDouble(1, x);
+                ps.setDouble(2, z);
+                ps.setLong(3, Math.round(x * QUANTIZATION));
+                ps.setLong(4, Math.round(z * QUANTIZATION));
+                ps.addBatch(); // Add to batch for faster execution
             }
 
-            // Execute all INSERTS at once
-            ps.executeBatch();
+            // Execute all INSERTS at once, ignored rows count as 0
+            int newCount = 0;
+            for (int count : ps.executeBatch()) {
+                if (count > 0) newCount += count;
+            }
+            return newCount;
+        });
+    }
 
-        } catch (SQLException e) {
-            e.printStackTrace(); // Show error if something goes wrong
+    /**
+     * Inserts obstacles given as coordinates in one transaction, like {@link #insertObstacles(List)},
+     * without creating an {@link Obstacle} for each of them.
+     *
+     * @param xs    the X coordinates
+     * @param zs    the Z coordinates
+     * @param count the number of obstacles, from the start of the arrays
+     * @return the number of obstacles that were new
+     * @throws SQLException if the obstacles cannot be written
+     */
+    public static int insertObstacles(double[] xs, double[] zs, int count) throws SQLException {
+        if (count == 0) {
+            return 0;
         }
+        return Database.get().write(session -> {
+            PreparedStatement ps = session.prepare(INSERT_SQL);
+
+            for (int i = 0; i < count; i++) {
+                ps.setDouble(1, xs[i]);
+                ps.setDouble(2, zs[i]);
+                ps.setLong(3, Math.round(xs[i] * QUANTIZATION));
+                ps.setLong(4, Math.round(zs[i] * QUANTIZATION));
+                ps.addBatch();
+            }
 
-        return newCount;
+            int newCount = 0;
+            for (int inserted : ps.executeBatch()) {
+                if (inserted > 0) newCount += inserted;
+            }
+            return newCount;
+        });
+    }
+
+    /**
+     * Deletes obstacles in one transaction, by their quantized coordinates.
+     *
+     * @param obstacles the obstacles to delete
+     * @return the number of obstacles that were stored
+     * @throws SQLException if the obstacles cannot be deleted
+     */
+    public static int deleteObstacles(List<Obstacle> obstacles) throws SQLException {
+        if (obstacles.isEmpty()) {
+            return 0;
+        }
+        return Database.get().write(session -> {
+            PreparedStatement ps = session.prepare(DELETE_SQL);
+
+            for (Obstacle obs : obstacles) {
+                ps.setLong(1, Math.round(obs.getLocation().getX() * QUANTIZATION));
+                ps.setLong(2, Math.round(obs.getLocation().getZ() * QUANTIZATION));
+                ps.addBatch();
+            }
+
+            int deleted = 0;
+            for (int count : ps.executeBatch()) {
+                if (count > 0) deleted += count;
+            }
+            return deleted;
+        });
     }
 
     /**
@@ -75,18 +149,20 @@ public class ObstacleDatabaseHandler {
     public static ArrayList<Obstacle> loadObstacles() {
         ArrayList<Obstacle> obstacles = new ArrayList<>();
 
-        try (Connection conn = DriverManager.getConnection(DB_URL)) {
-            // Query all obstacle coordinates
-            ResultSet rs = conn.createStatement().executeQuery("SELECT x, z FROM Obstacles");
-
-            while (rs.next()) {
-                double x = rs.getDouble("x");
-                double z = rs.getDouble("z");
-
-                // Create a new Obstacle object from DB row and add to the list
-                obstacles.add(new Obstacle(new Location(x, z)));
-            }
+        try {
+            Database.get().read(session -> {
+                // Query all obstacle coordinates
+                try (ResultSet rs = session.prepare("SELECT x, z FROM Obstacles").executeQuery()) {
+                    while (rs.next()) {
+                        double x = rs.getDouble("x");
+                        double z = rs.getDouble("z");
 
+                        // Create a new Obstacle object from DB row and add to the list
+                        obstacles.add(new Obstacle(new Location(x, z)));
+                    }
+                }
+                return null;
+            });
         } catch (SQLException e) {
             e.printStackTrace(); // Print any errors
         }
@@ -95,23 +171,109 @@ public class ObstacleDatabaseHandler {
     }
 
     /**
-     * Optional: Call this from GroundControl or PilotApp to log total count when closing.
+     * Loads the obstacles inside a rectangle, {@code minX <= x < maxX} and {@code minZ <= z < maxZ} on
+     * the quantized coordinates, e.g. one tile of the {@link nl.saxion.ptbc.classes.Map}.
+     *
+     * @return the obstacles in the rectangle
+     * @throws SQLException if the obstacles cannot be read
+     */
+    public static ArrayList<Obstacle> loadObstaclesInArea(double minX, double minZ, double maxX, double maxZ)
+            throws SQLException {
+        return Database.get().read(session -> {
+            PreparedStatement ps = session.prepare(AREA_SQL);
+            ps.setLong(1, Math.round(minX * QUANTIZATION));
+            ps.setLong(2, Math.round(maxX * QUANTIZATION));
+            ps.setLong(3, Math.round(minZ * QUANTIZATION));
+            ps.setLong(4, Math.round(maxZ * QUANTIZATION));
+            ArrayList<Obstacle> obstacles = new ArrayList<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    obstacles.add(new Obstacle(new Location(rs.getDouble(1), rs.getDouble(2))));
+                }
+            }
+            return obstacles;
+        });
+    }
+
+    /**
+     * Counts the obstacles per square cell of a block of cells, without loading them.
+     *
+     * @param firstColumn the X coordinate of the first column, in cells
+     * @param firstRow    the Z coordinate of the first row, in cells
+     * @param columns     the number of columns
+     * @param rows        the number of rows
+     * @param cellSize    the width and height of a cell in meters, a multiple of 0.01
+     * @return the counts, row by row
+     * @throws SQLException if the obstacles cannot be read
+     */
+    public static int[] countObstacles(int firstColumn, int firstRow, int columns, int rows, double cellSize)
+            throws SQLException {
+        long cell = Math.round(cellSize * QUANTIZATION);
+        long minX = firstColumn * cell;
+        long minZ = firstRow * cell;
+        return Database.get().read(session -> {
+            // relative to the first column and row the quantized coordinates are not negative,
+            // so the integer division rounds down
+            PreparedStatement ps = session.prepare(COUNT_SQL);
+            ps.setLong(1, minX);
+            ps.setLong(2, cell);
+            ps.setLong(3, minZ);
+            ps.setLong(4, cell);
+            ps.setLong(5, minX);
+            ps.setLong(6, minX + columns * cell);
+            ps.setLong(7, minZ);
+            ps.setLong(8, minZ + rows * cell);
+            int[] counts = new int[columns * rows];
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    counts[rs.getInt(2) * columns + rs.getInt(1)] = rs.getInt(3);
+                }
+            }
+            return counts;
+        });
+    }
+
+    /**
+     * Writes all stored obstacles to a CSV file with an {@code X,Z} header, without loading them all
+     * into memory.
+     *
+     * @return the number of obstacles written
+     * @throws IOException  if the file cannot be written
+     * @throws SQLException if the obstacles cannot be read
      */
+    public static long exportObstacles(Path file) throws IOException, SQLException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("X,Z\n");
+            return Database.get().read(session -> {
+                long count = 0;
+                try (ResultSet rs = session.prepare("SELECT x, z FROM Obstacles").executeQuery()) {
+                    while (rs.next()) {
+                        writer.write(rs.getDouble(1) + "," + rs.getDouble(2) + "\n");
+                        count++;
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return count;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
 
     /**
      * Logs the total number of unique obstacles currently stored in the database.
      * Typically used when the application shuts down to give feedback about saved data.
      */
     public static void logFinalObstacleCount() {
-        try (Connection conn = DriverManager.getConnection(DB_URL)) {
-
+        try {
             // Run a query to count all rows (obstacles) in the Obstacles table
-            ResultSet rs = conn.createStatement().executeQuery("SELECT COUNT(*) FROM Obstacles");
-
-            if (rs.next()) {
-                int total = rs.getInt(1); // Get the count from the first column
-                System.out.println("✅ Total unique obstacles in database: " + total);
-            }
+            int total = Database.get().read(session -> {
+                try (ResultSet rs = session.prepare("SELECT COUNT(*) FROM Obstacles").executeQuery()) {
+                    return rs.next() ? rs.getInt(1) : 0; // Get the count from the first column
+                }
+            });
+            System.out.println("✅ Total unique obstacles in database: " + total);
 
         } catch (SQLException e) {
             // Print any SQL errors for debugging purposes
@@ -0,0 +1,179 @@
+package nl.saxion.ptbc.frog;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A procedurally generated asteroid surface with round rocks, for the {@link SimulatedFrog}.
+ * <p>
+ * The rocks lie in clusters, like the boulder fields of the real map, and the area around the base
+ * at (0, 0) is kept clear so the Frog can always start. The same seed always gives the same field.
+ * <p>
+ * The rocks are sorted into square cells, stored as one array of rock indices per field (the cells
+ * point into it with offsets), so the radar only looks at the rocks of the cells within its range.
+ */
+public class ObstacleField {
+    private static final double CELL_SIZE = 10.0;
+    private static final double BASE_CLEARANCE = 20.0;
+    private static final double MIN_RADIUS = 0.5;
+    private static final double MAX_RADIUS = 3.0;
+    private static final int ROCKS_PER_CLUSTER = 25;
+    private static final double CLUSTER_SPREAD = 15.0;
+
+    private final double halfSize;
+    private final double[] rockX;
+    private final double[] rockZ;
+    private final double[] rockRadius;
+
+    // rocks sorted by cell: the rocks of cell c are cellRocks[cellStart[c] .. cellStart[c + 1])
+    private final int cellsPerSide;
+    private final int[] cellStart;
+    private final int[] cellRocks;
+
+    /**
+     * Generates a field.
+     *
+     * @param size  the width and height of the field in meters, centered on the base
+     * @param rocks the number of rocks
+     * @param seed  the seed of the random generator
+     */
+    public ObstacleField(double size, int rocks, long seed) {
+        this.halfSize = size / 2;
+        this.rockX = new double[rocks];
+        this.rockZ = new double[rocks];
+        this.rockRadius = new double[rocks];
+
+        Random random = new Random(seed);
+        double centerX = 0;
+        double centerZ = 0;
+        for (int i = 0; i < rocks; ) {
+            if (i % ROCKS_PER_CLUSTER == 0) {
+                centerX = (random.nextDouble() * 2 - 1) * halfSize;
+                centerZ = (random.nextDouble() * 2 - 1) * halfSize;
+            }
+            double x = centerX + random.nextGaussian() * CLUSTER_SPREAD;
+            double z = centerZ + random.nextGaussian() * CLUSTER_SPREAD;
+            if (Math.abs(x) >= halfSize || Math.abs(z) >= halfSize || Math.hypot(x, z) < BASE_CLEARANCE) {
+                continue;
+            }
+            rockX[i] = x;
+            rockZ[i] = z;
+            rockRadius[i] = MIN_RADIUS + random.nextDouble() * (MAX_RADIUS - MIN_RADIUS);
+            i++;
+        }
+
+        cellsPerSide = Math.max(1, (int) Math.ceil(size / CELL_SIZE));
+        cellStart = new int[cellsPerSide * cellsPerSide + 1];
+        cellRocks = new int[rocks];
+        int[] cellOf = new int[rocks];
+        for (int i = 0; i < rocks; i++) {
+            cellOf[i] = cellIndex(cellCoordinate(rockX[i]), cellCoordinate(rockZ[i]));
+            cellStart[cellOf[i] + 1]++;
+        }
+        for (int c = 0; c < cellsPerSide * cellsPerSide; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        int[] next = Arrays.copyOf(cellStart, cellStart.length - 1);
+        for (int i = 0; i < rocks; i++) {
+            cellRocks[next[cellOf[i]]++] = i;
+        }
+    }
+
+    /**
+     * Measures the distance to the nearest rock along evenly spaced radar rays.
+     * <p>
+     * Ray {@code i} points in the heading {@code angle + i * 360 / rays}, with headings in degrees
+     * like the Frog: 0 is the +Z direction and 90 the +X direction.
+     *
+     * @param x         the X position of the radar
+     * @param z         the Z position of the radar
+     * @param angle     the heading of the first ray
+     * @param range     the range of the radar in meters
+     * @param distances receives the distance per ray, {@link Double#POSITIVE_INFINITY} if nothing was hit
+     */
+    public void scan(double x, double z, double angle, double range, double[] distances) {
+        int rays = distances.length;
+        double step = 360.0 / rays;
+        Arrays.fill(distances, Double.POSITIVE_INFINITY);
+
+        int minCellX = Math.max(0, cellCoordinate(x - range - MAX_RADIUS));
+        int maxCellX = Math.min(cellsPerSide - 1, cellCoordinate(x + range + MAX_RADIUS));
+        int minCellZ = Math.max(0, cellCoordinate(z - range - MAX_RADIUS));
+        int maxCellZ = Math.min(cellsPerSide - 1, cellCoordinate(z + range + MAX_RADIUS));
+        for (int cz = minCellZ; cz <= maxCellZ; cz++) {
+            for (int cx = minCellX; cx <= maxCellX; cx++) {
+                int cell = cellIndex(cx, cz);
+                for (int j = cellStart[cell]; j < cellStart[cell + 1]; j++) {
+                    int rock = cellRocks[j];
+                    double dx = rockX[rock] - x;
+                    double dz = rockZ[rock] - z;
+                    double distance = Math.sqrt(dx * dx + dz * dz);
+                    double radius = rockRadius[rock];
+                    if (distance <= radius || distance - radius > range) {
+                        continue;
+                    }
+
+                    // the rays that hit the rock lie within halfWidth degrees of its center
+                    double center = Math.toDegrees(Math.atan2(dx, dz));
+                    double halfWidth = Math.toDegrees(Math.asin(radius / distance));
+                    int first = (int) Math.ceil((center - halfWidth - angle) / step);
+                    int last = (int) Math.floor((center + halfWidth - angle) / step);
+                    for (int i = first; i <= last; i++) {
+                        double offset = Math.toRadians(angle + i * step - center);
+                        double along = distance * Math.cos(offset);
+                        double across = distance * Math.sin(offset);
+                        double hit = along - Math.sqrt(Math.max(0, radius * radius - across * across));
+                        int ray = Math.floorMod(i, rays);
+                        if (hit <= range && hit < distances[ray]) {
+                            distances[ray] = hit;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns whether the point lies inside a rock or outside the field.
+     */
+    public boolean isBlocked(double x, double z) {
+        if (Math.abs(x) >= halfSize || Math.abs(z) >= halfSize) {
+            return true;
+        }
+        int minCellX = Math.max(0, cellCoordinate(x - MAX_RADIUS));
+        int maxCellX = Math.min(cellsPerSide - 1, cellCoordinate(x + MAX_RADIUS));
+        int minCellZ = Math.max(0, cellCoordinate(z - MAX_RADIUS));
+        int maxCellZ = Math.min(cellsPerSide - 1, cellCoordinate(z + MAX_RADIUS));
+        for (int cz = minCellZ; cz <= maxCellZ; cz++) {
+            for (int cx = minCellX; cx <= maxCellX; cx++) {
+                int cell = cellIndex(cx, cz);
+                for (int j = cellStart[cell]; j < cellStart[cell + 1]; j++) {
+                    int rock = cellRocks[j];
+                    double dx = rockX[rock] - x;
+                    double dz = rockZ[rock] - z;
+                    if (dx * dx + dz * dz < rockRadius[rock] * rockRadius[rock]) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    //Getters
+    public int getRockCount() {
+        return rockX.length;
+    }
+
+    public double getSize() {
+        return halfSize * 2;
+    }
+
+    private int cellCoordinate(double value) {
+        return (int) Math.floor((value + halfSize) / CELL_SIZE);
+    }
+
+    private int cellIndex(int cx, int cz) {
+        return cz * cellsPerSide + cx;
+    }
+}
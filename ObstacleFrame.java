@@ -0,0 +1,118 @@
+package nl.saxion.ptbc.classes;
+
+/**
+ * Encodes the new obstacles of one radar sweep as a single compact line of the SaSa protocol.
+ * <p>
+ * Format: {@code OBSTACLES <count> <x0> <z0> <dx1> <dz1> ... <dxn> <dzn>}
+ * <p>
+ * Obstacles that the radar found to be gone again are sent in the same format with the keyword
+ * {@link #CLEARED_KEYWORD}.
+ * <p>
+ * Coordinates are absolute and quantized to centimeters, the resolution the {@link Map} dedupes on.
+ * The first point is sent as is, every next point as the difference with the point before it.
+ * The blips of a sweep arrive in the order of the radar beam, so neighbouring points are close
+ * together and most numbers are only a few digits long.
+ * <p>
+ * Decoding reads the integers straight from the characters of the line, without splitting it.
+ */
+public final class ObstacleFrame {
+    public static final String KEYWORD = "OBSTACLES";
+    public static final String CLEARED_KEYWORD = "CLEARED";
+    private static final double SCALE = 100.0;
+
+    private ObstacleFrame() {
+    }
+
+    /**
+     * Encodes the points {@code from} (inclusive) up to {@code to} (exclusive).
+     *
+     * @param xs the absolute X coordinates
+     * @param zs the absolute Z coordinates
+     * @return the frame, starting with {@link #KEYWORD}
+     */
+    public static String encode(double[] xs, double[] zs, int from, int to) {
+        return encode(KEYWORD, xs, zs, from, to);
+    }
+
+    /**
+     * Encodes the points {@code from} (inclusive) up to {@code to} (exclusive) after another keyword.
+     *
+     * @param keyword the first word of the frame, e.g. {@link #CLEARED_KEYWORD}
+     */
+    public static String encode(String keyword, double[] xs, double[] zs, int from, int to) {
+        StringBuilder frame = new StringBuilder(16 + (to - from) * 10)
+                .append(keyword).append(' ').append(to - from);
+        long previousX = 0;
+        long previousZ = 0;
+        for (int i = from; i < to; i++) {
+            long x = Math.round(xs[i] * SCALE);
+            long z = Math.round(zs[i] * SCALE);
+            frame.append(' ').append(x - previousX).append(' ').append(z - previousZ);
+            previousX = x;
+            previousZ = z;
+        }
+        return frame.toString();
+    }
+
+    /**
+     * Decodes the points of a frame.
+     *
+     * @param message the received line
+     * @param start   the index of the count, right after the keyword and a space
+     * @return the points as {@code x0, z0, x1, z1, ...}
+     * @throws NumberFormatException if the frame is malformed
+     */
+    public static double[] decode(CharSequence message, int start) {
+        Reader reader = new Reader(message, start);
+        long count = reader.nextLong();
+        if (count < 0 || count > message.length()) {
+            throw new NumberFormatException("Invalid obstacle count: " + count);
+        }
+        double[] points = new double[(int) count * 2];
+        long x = 0;
+        long z = 0;
+        for (int i = 0; i < points.length; i += 2) {
+            x += reader.nextLong();
+            z += reader.nextLong();
+            points[i] = x / SCALE;
+            points[i + 1] = z / SCALE;
+        }
+        return points;
+    }
+
+    // Reads space separated integers from a line
+    private static final class Reader {
+        private final CharSequence line;
+        private int position;
+
+        Reader(CharSequence line, int position) {
+            this.line = line;
+            this.position = position;
+        }
+
+        long nextLong() {
+            int length = line.length();
+            while (position < length && line.charAt(position) == ' ') position++;
+            if (position == length) {
+                throw new NumberFormatException("Obstacle frame ends too early");
+            }
+
+            boolean negative = line.charAt(position) == '-';
+            if (negative) position++;
+
+            long value = 0;
+            int digits = 0;
+            while (position < length && line.charAt(position) != ' ') {
+                char c = line.charAt(position++);
+                if (c < '0' || c > '9' || ++digits > 18) {
+                    throw new NumberFormatException("Invalid number in obstacle frame: " + line);
+                }
+                value = value * 10 + (c - '0');
+            }
+            if (digits == 0) {
+                throw new NumberFormatException("Invalid number in obstacle frame: " + line);
+            }
+            return negative ? -value : value;
+        }
+    }
+}
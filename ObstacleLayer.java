@@ -0,0 +1,315 @@
+package nl.saxion.ptbc.groundControl;
+
+import javafx.animation.AnimationTimer;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import nl.saxion.ptbc.classes.Map;
+import nl.saxion.ptbc.classes.Obstacle;
+
+import java.util.function.Consumer;
+
+/**
+ * A canvas layer that paints the known obstacles in the part of the world a {@link MapViewport} shows.
+ * <p>
+ * Only obstacles inside the visible rectangle are painted; they are found in the tiles of the
+ * {@link Map}, so the cost of a repaint depends on what is visible, not on everything that was
+ * explored. When zoomed out below {@code DENSITY_SCALE} pixels per meter, single points would overlap
+ * and there would be far too many to visit every frame. Zoomed out, the layer therefore paints density
+ * cells of 16, 32, 64, 128 or 256 meters, the smallest size that is at least {@code DENSITY_CELL_PIXELS}
+ * pixels wide, more opaque the more obstacles they hold, so a frame never paints more cells than fit on
+ * the screen. The counts are a {@link Density} snapshot of the viewport and its surroundings that the
+ * {@link ObstacleLoader} gets from the database; obstacles that are added or removed afterwards are
+ * counted in it. Density cells are aligned to the world, so a partial repaint gives the same picture as
+ * a full one.
+ * <p>
+ * Nothing is painted right away. New obstacles only mark their surroundings as dirty and a change
+ * of the viewport marks everything dirty; an {@link AnimationTimer} repaints the dirty region at most
+ * once per JavaFX pulse, like the {@code RadarView} of the Pilot.
+ * <p>
+ * All methods must be called on the JavaFX Application Thread, which is also the only thread that
+ * may change the map.
+ */
+public final class ObstacleLayer extends Canvas {
+    private static final double POINT_SIZE = 2.0;
+    private static final Color POINT_COLOR = Color.YELLOW;
+    private static final double DENSITY_SCALE = 0.25;
+    private static final double DENSITY_CELL_PIXELS = 4.0;
+    private static final double DENSITY_BASE_CELL_SIZE = DENSITY_CELL_PIXELS / DENSITY_SCALE;
+    private static final int DENSITY_LEVELS = 5;
+    // obstacles per square meter of a fully opaque density cell
+    private static final double DENSITY_FULL = 0.05;
+    private static final int DENSITY_SHADES = 16;
+    private static final Color[] DENSITY_COLORS = new Color[DENSITY_SHADES + 1];
+
+    static {
+        for (int i = 1; i <= DENSITY_SHADES; i++) {
+            DENSITY_COLORS[i] = POINT_COLOR.deriveColor(0, 1, 1, 0.3 + 0.7 * i / DENSITY_SHADES);
+        }
+    }
+
+    /**
+     * The obstacle counts of a block of density cells of one size.
+     */
+    static final class Density {
+        final double cellSize;
+        final int firstColumn, firstRow, columns, rows;
+        // row by row
+        final int[] counts;
+
+        Density(double cellSize, int firstColumn, int firstRow, int columns, int rows, int[] counts) {
+            this.cellSize = cellSize;
+            this.firstColumn = firstColumn;
+            this.firstRow = firstRow;
+            this.columns = columns;
+            this.rows = rows;
+            this.counts = counts;
+        }
+
+        void add(double x, double z, int change) {
+            int column = cell(x) - firstColumn;
+            int row = cell(z) - firstRow;
+            if (column >= 0 && column < columns && row >= 0 && row < rows) {
+                int index = row * columns + column;
+                counts[index] = Math.max(0, counts[index] + change);
+            }
+        }
+
+        int count(int column, int row) {
+            column -= firstColumn;
+            row -= firstRow;
+            return column >= 0 && column < columns && row >= 0 && row < rows ? counts[row * columns + column] : 0;
+        }
+
+        // whether the cells of the rectangle are all in the snapshot
+        boolean covers(double minX, double minZ, double maxX, double maxZ) {
+            return cell(minX) >= firstColumn && cell(maxX) < firstColumn + columns
+                    && cell(minZ) >= firstRow && cell(maxZ) < firstRow + rows;
+        }
+
+        int cell(double coordinate) {
+            return cell(coordinate, cellSize);
+        }
+
+        static int cell(double coordinate, double cellSize) {
+            return (int) Math.floor(coordinate / cellSize);
+        }
+    }
+
+    private final MapViewport viewport;
+    private final Map map;
+    // null until the first snapshot is loaded
+    private Density density;
+
+    // dirty region in world coordinates, empty while dirtyMinX > dirtyMaxX
+    private double dirtyMinX = Double.POSITIVE_INFINITY, dirtyMinZ = Double.POSITIVE_INFINITY;
+    private double dirtyMaxX = Double.NEGATIVE_INFINITY, dirtyMaxZ = Double.NEGATIVE_INFINITY;
+    private boolean fullRedraw = true;
+
+    private final Consumer<Obstacle> pointPainter = this::paintPoint;
+    private GraphicsContext graphics;
+
+    private final AnimationTimer redrawTimer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            repaint();
+        }
+    };
+
+    /**
+     * Creates the layer with the size of the viewport. It is painted once {@link #start} is called.
+     *
+     * @param viewport the part of the world to show
+     * @param map      the obstacles to paint, new ones must also be passed to {@link #addObstacle}
+     */
+    public ObstacleLayer(MapViewport viewport, Map map) {
+        super(viewport.getWidth(), viewport.getHeight());
+        this.viewport = viewport;
+        this.map = map;
+        setMouseTransparent(true);
+    }
+
+    /**
+     * Starts repainting the dirty parts of the layer on every pulse.
+     */
+    public void start() {
+        redrawTimer.start();
+    }
+
+    /**
+     * Counts an obstacle that was added to the map and marks its surroundings as dirty.
+     *
+     * @param x the absolute X coordinate of the obstacle
+     * @param z the absolute Z coordinate of the obstacle
+     */
+    public void addObstacle(double x, double z) {
+        if (density != null) {
+            density.add(x, z, 1);
+        }
+        markDirty(x, z);
+    }
+
+    /**
+     * Uncounts an obstacle that was removed from the map and marks its surroundings as dirty.
+     *
+     * @param x the absolute X coordinate of the obstacle
+     * @param z the absolute Z coordinate of the obstacle
+     */
+    public void removeObstacle(double x, double z) {
+        if (density != null) {
+            density.add(x, z, -1);
+        }
+        markDirty(x, z);
+    }
+
+    /**
+     * Marks the whole layer as dirty, e.g. after the viewport changed.
+     */
+    public void invalidate() {
+        fullRedraw = true;
+    }
+
+    /**
+     * Marks a rectangle of the world as dirty, e.g. after the obstacles of a tile were loaded.
+     */
+    public void invalidate(double minX, double minZ, double maxX, double maxZ) {
+        markDirty(minX, minZ);
+        markDirty(maxX, maxZ);
+    }
+
+    /**
+     * Returns whether the viewport is zoomed out so far that density cells are painted instead of points.
+     */
+    public boolean isDensityShown() {
+        return viewport.getScale() < DENSITY_SCALE;
+    }
+
+    /**
+     * Returns the size of the density cells for the scale of the viewport: the smallest one that is
+     * at least {@code DENSITY_CELL_PIXELS} wide, or the largest one.
+     */
+    public double getDensityCellSize() {
+        double cellSize = DENSITY_BASE_CELL_SIZE;
+        for (int level = 1; level < DENSITY_LEVELS && cellSize * viewport.getScale() < DENSITY_CELL_PIXELS; level++) {
+            cellSize *= 2;
+        }
+        return cellSize;
+    }
+
+    /**
+     * Returns whether the density snapshot has cells of this size for the whole rectangle.
+     */
+    public boolean hasDensity(double cellSize, double minX, double minZ, double maxX, double maxZ) {
+        return density != null && density.cellSize == cellSize && density.covers(minX, minZ, maxX, maxZ);
+    }
+
+    /**
+     * Replaces the density snapshot and repaints everything.
+     */
+    void setDensity(Density density) {
+        this.density = density;
+        fullRedraw = true;
+    }
+
+    private void markDirty(double x, double z) {
+        dirtyMinX = Math.min(dirtyMinX, x);
+        dirtyMinZ = Math.min(dirtyMinZ, z);
+        dirtyMaxX = Math.max(dirtyMaxX, x);
+        dirtyMaxZ = Math.max(dirtyMaxZ, z);
+    }
+
+    private void repaint() {
+        graphics = getGraphicsContext2D();
+        if (fullRedraw) {
+            graphics.clearRect(0, 0, getWidth(), getHeight());
+            paint(viewport.getMinX(), viewport.getMinZ(), viewport.getMaxX(), viewport.getMaxZ(), false);
+        } else if (dirtyMinX <= dirtyMaxX) {
+            // only the part of the dirty region that is visible
+            double minX = Math.max(dirtyMinX, viewport.getMinX());
+            double minZ = Math.max(dirtyMinZ, viewport.getMinZ());
+            double maxX = Math.min(dirtyMaxX, viewport.getMaxX());
+            double maxZ = Math.min(dirtyMaxZ, viewport.getMaxZ());
+            if (minX <= maxX && minZ <= maxZ) {
+                paint(minX, minZ, maxX, maxZ, true);
+            }
+        }
+        fullRedraw = false;
+        dirtyMinX = dirtyMinZ = Double.POSITIVE_INFINITY;
+        dirtyMaxX = dirtyMaxZ = Double.NEGATIVE_INFINITY;
+    }
+
+    // Paints the region [minX, maxX] x [minZ, maxZ] of the world, clearing it first if it is only a part
+    private void paint(double minX, double minZ, double maxX, double maxZ, boolean partial) {
+        double scale = viewport.getScale();
+        double cellSize = 0;
+        if (isDensityShown()) {
+            // whole density cells
+            cellSize = getDensityCellSize();
+            minX = Density.cell(minX, cellSize) * cellSize;
+            minZ = Density.cell(minZ, cellSize) * cellSize;
+            maxX = (Density.cell(maxX, cellSize) + 1) * cellSize;
+            maxZ = (Density.cell(maxZ, cellSize) + 1) * cellSize;
+        } else {
+            // a point just outside the region still covers part of it
+            double margin = POINT_SIZE / scale;
+            minX -= margin;
+            minZ -= margin;
+            maxX += margin;
+            maxZ += margin;
+        }
+
+        if (partial) {
+            double left = viewport.toScreenX(minX);
+            double top = viewport.toScreenY(maxZ);
+            double right = viewport.toScreenX(maxX);
+            double bottom = viewport.toScreenY(minZ);
+            graphics.save();
+            graphics.beginPath();
+            graphics.rect(left, top, right - left, bottom - top);
+            graphics.clip();
+            graphics.clearRect(left, top, right - left, bottom - top);
+        }
+
+        if (cellSize > 0) {
+            // until a snapshot with this cell size is loaded, the area stays empty
+            if (density != null && density.cellSize == cellSize) {
+                paintDensity(density, minX, minZ, maxX, maxZ);
+            }
+        } else {
+            graphics.setFill(POINT_COLOR);
+            map.forEachInArea(minX, minZ, maxX, maxZ, pointPainter);
+        }
+
+        if (partial) {
+            graphics.restore();
+        }
+    }
+
+    private void paintDensity(Density snapshot, double minX, double minZ, double maxX, double maxZ) {
+        double cellSize = snapshot.cellSize;
+        double cellPixels = cellSize * viewport.getScale();
+        double fullCount = DENSITY_FULL * cellSize * cellSize;
+        // only the cells that are in the snapshot
+        int firstColumn = Math.max(snapshot.cell(minX), snapshot.firstColumn);
+        int lastColumn = Math.min(snapshot.cell(maxX) - 1, snapshot.firstColumn + snapshot.columns - 1);
+        int firstRow = Math.max(snapshot.cell(minZ), snapshot.firstRow);
+        int lastRow = Math.min(snapshot.cell(maxZ) - 1, snapshot.firstRow + snapshot.rows - 1);
+        for (int row = firstRow; row <= lastRow; row++) {
+            double top = viewport.toScreenY((row + 1) * cellSize);
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                int count = snapshot.count(column, row);
+                if (count > 0) {
+                    int shade = (int) Math.ceil(Math.min(1.0, count / fullCount) * DENSITY_SHADES);
+                    graphics.setFill(DENSITY_COLORS[shade]);
+                    graphics.fillRect(viewport.toScreenX(column * cellSize), top, cellPixels, cellPixels);
+                }
+            }
+        }
+    }
+
+    private void paintPoint(Obstacle obstacle) {
+        double x = viewport.toScreenX(obstacle.getLocation().getX());
+        double y = viewport.toScreenY(obstacle.getLocation().getZ());
+        graphics.fillRect(x - POINT_SIZE / 2, y - POINT_SIZE / 2, POINT_SIZE, POINT_SIZE);
+    }
+}
@@ -0,0 +1,145 @@
+package nl.saxion.ptbc.groundControl;
+
+import nl.saxion.ptbc.classes.Map;
+import nl.saxion.ptbc.classes.Obstacle;
+import nl.saxion.ptbc.classes.Tasks;
+import nl.saxion.ptbc.database.ObstacleDatabaseHandler;
+import nl.saxion.ptbc.metrics.FxQueue;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Loads the obstacles around the part of the world a {@link MapViewport} shows from the database, so
+ * the {@link Map} and the {@link ObstacleLayer} only keep what is on or near the screen instead of
+ * everything that was explored.
+ * <p>
+ * Zoomed in, the missing tiles of the map in the viewport and a margin of {@code MARGIN} times its
+ * size around it are loaded. Zoomed out, the database counts the obstacles per density cell for the
+ * same area, which replaces the density snapshot of the layer; while the viewport stays inside the
+ * snapshot nothing is counted again.
+ * <p>
+ * The loads run one after the other on a background {@link nl.saxion.ptbc.classes.Task}, which only
+ * runs while there is something to load; the results are handed to the map and the layer on the
+ * JavaFX Application Thread. Only the last requested density snapshot is counted, the viewport may
+ * have moved on while older requests waited. All methods must be called on the JavaFX Application Thread.
+ */
+public class ObstacleLoader {
+    private static final double MARGIN = 0.25;
+
+    private final MapViewport viewport;
+    private final Map map;
+    private final ObstacleLayer layer;
+    private final ConcurrentLinkedQueue<Runnable> loads = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean running = new AtomicBoolean();
+    // incremented by every density request, a load of an older one is skipped
+    private volatile long densityRequest;
+
+    /**
+     * Creates a loader for the map and the layer that paints it.
+     */
+    public ObstacleLoader(MapViewport viewport, Map map, ObstacleLayer layer) {
+        this.viewport = viewport;
+        this.map = map;
+        this.layer = layer;
+    }
+
+    /**
+     * Loads what the viewport needs and does not have yet, call it whenever the viewport changed.
+     */
+    public void viewportChanged() {
+        double marginX = viewport.getWidth() / viewport.getScale() * MARGIN;
+        double marginZ = viewport.getHeight() / viewport.getScale() * MARGIN;
+        double minX = viewport.toWorldX(0);
+        double maxX = viewport.toWorldX(viewport.getWidth());
+        double minZ = viewport.toWorldZ(viewport.getHeight());
+        double maxZ = viewport.toWorldZ(0);
+        if (!layer.isDensityShown()) {
+            map.requestTiles(minX - marginX, minZ - marginZ, maxX + marginX, maxZ + marginZ, this::queueTile);
+            return;
+        }
+        double cellSize = layer.getDensityCellSize();
+        if (!layer.hasDensity(cellSize, minX, minZ, maxX, maxZ)) {
+            queueDensity(cellSize, minX - marginX, minZ - marginZ, maxX + marginX, maxZ + marginZ);
+        }
+    }
+
+    /**
+     * Counts the density snapshot again, e.g. after many obstacles were imported into the database.
+     */
+    public void reloadDensity() {
+        if (layer.isDensityShown()) {
+            double marginX = viewport.getWidth() / viewport.getScale() * MARGIN;
+            double marginZ = viewport.getHeight() / viewport.getScale() * MARGIN;
+            queueDensity(layer.getDensityCellSize(), viewport.toWorldX(0) - marginX,
+                    viewport.toWorldZ(viewport.getHeight()) - marginZ,
+                    viewport.toWorldX(viewport.getWidth()) + marginX, viewport.toWorldZ(0) + marginZ);
+        } else {
+            // a snapshot of a different area is counted when the viewport zooms out again
+            layer.setDensity(null);
+        }
+    }
+
+    private void queueTile(int tileX, int tileZ) {
+        double minX = Map.tileStart(tileX);
+        double minZ = Map.tileStart(tileZ);
+        double maxX = Map.tileStart(tileX + 1);
+        double maxZ = Map.tileStart(tileZ + 1);
+        queue(() -> {
+            try {
+                ArrayList<Obstacle> obstacles = ObstacleDatabaseHandler.loadObstaclesInArea(minX, minZ, maxX, maxZ);
+                FxQueue.runLater(() -> {
+                    if (map.loadTile(tileX, tileZ, obstacles) > 0) {
+                        layer.invalidate(minX, minZ, maxX, maxZ);
+                    }
+                });
+            } catch (SQLException e) {
+                System.err.println("Failed to load the obstacles of tile (" + tileX + ", " + tileZ + "): " + e.getMessage());
+                FxQueue.runLater(() -> map.loadFailed(tileX, tileZ));
+            }
+        });
+    }
+
+    private void queueDensity(double cellSize, double minX, double minZ, double maxX, double maxZ) {
+        long request = ++densityRequest;
+        int firstColumn = ObstacleLayer.Density.cell(minX, cellSize);
+        int firstRow = ObstacleLayer.Density.cell(minZ, cellSize);
+        int columns = ObstacleLayer.Density.cell(maxX, cellSize) - firstColumn + 1;
+        int rows = ObstacleLayer.Density.cell(maxZ, cellSize) - firstRow + 1;
+        queue(() -> {
+            if (request != densityRequest) {
+                return;
+            }
+            try {
+                int[] counts = ObstacleDatabaseHandler.countObstacles(firstColumn, firstRow, columns, rows, cellSize);
+                ObstacleLayer.Density density = new ObstacleLayer.Density(cellSize, firstColumn, firstRow, columns, rows, counts);
+                FxQueue.runLater(() -> layer.setDensity(density));
+            } catch (SQLException e) {
+                System.err.println("Failed to count the obstacles: " + e.getMessage());
+            }
+        });
+    }
+
+    private void queue(Runnable load) {
+        loads.add(load);
+        if (running.compareAndSet(false, true)) {
+            Tasks.start("ObstacleLoader", this::run);
+        }
+    }
+
+    private void run() {
+        do {
+            Runnable load;
+            while ((load = loads.poll()) != null) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                load.run();
+            }
+            running.set(false);
+            // a load that was queued after the poll and before the flag was cleared is run here
+        } while (!loads.isEmpty() && running.compareAndSet(false, true));
+    }
+}
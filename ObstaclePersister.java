@@ -0,0 +1,159 @@
+package nl.saxion.ptbc.database;
+
+import nl.saxion.ptbc.classes.Obstacle;
+import nl.saxion.ptbc.classes.Task;
+import nl.saxion.ptbc.classes.Tasks;
+import nl.saxion.ptbc.metrics.Metrics;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes newly discovered obstacles to the database in the background while the mission runs, and
+ * deletes the obstacles that the radar found to be gone again.
+ * <p>
+ * The receiving thread only puts the changes in a bounded queue. A background {@link Task} collects
+ * them into small batches and stores every run of additions or removals in its own transaction through
+ * {@link ObstacleDatabaseHandler#insertObstacles} or {@link ObstacleDatabaseHandler#deleteObstacles},
+ * in the order they were offered. A crash of the Pilot loses at most the last
+ * {@code FLUSH_INTERVAL_MS} milliseconds of changes instead of the whole mission. A transaction that
+ * fails is tried again up to {@code MAX_ATTEMPTS} times before its changes are counted as lost.
+ */
+public class ObstaclePersister implements AutoCloseable {
+    private static final int QUEUE_CAPACITY = 65_536;
+    private static final int MAX_BATCH_SIZE = 512;
+    private static final long FLUSH_INTERVAL_MS = 500;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_DELAY_MS = 200;
+
+    private final BlockingQueue<Change> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Task worker;
+    private volatile boolean closing = false;
+    private final AtomicLong dropped = new AtomicLong();
+    // only used by the worker
+    private long lost = 0;
+    private int totalSaved = 0;
+    private int totalDeleted = 0;
+
+    private record Change(Obstacle obstacle, boolean removed) {
+    }
+
+    public ObstaclePersister() {
+        worker = Tasks.start("ObstaclePersister", this::run);
+    }
+
+    /**
+     * Queues a new obstacle to be written. Never blocks; if the queue is full the obstacle is dropped.
+     *
+     * @param obstacle the obstacle, with an absolute location
+     * @return {@code true} if the obstacle was queued
+     */
+    public boolean offer(Obstacle obstacle) {
+        return queue(new Change(obstacle, false));
+    }
+
+    /**
+     * Queues an obstacle to be deleted. Never blocks; if the queue is full the removal is dropped.
+     *
+     * @param obstacle the obstacle, with an absolute location
+     * @return {@code true} if the removal was queued
+     */
+    public boolean offerRemoval(Obstacle obstacle) {
+        return queue(new Change(obstacle, true));
+    }
+
+    private boolean queue(Change change) {
+        if (closing) {
+            return false;
+        }
+        if (!queue.offer(change)) {
+            if (dropped.getAndIncrement() == 0) {
+                System.err.println("Obstacle persister queue is full, obstacles are being dropped");
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Writes all queued obstacles and stops the background thread.
+     */
+    @Override
+    public void close() {
+        closing = true;
+        try {
+            worker.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        System.out.println("✅ Obstacles written to DB during this mission: " + totalSaved
+                + (totalDeleted > 0 ? ", deleted again: " + totalDeleted : ""));
+        if (dropped.get() > 0 || lost > 0) {
+            System.err.println("Obstacle changes not written: " + dropped.get() + " dropped from the queue, "
+                    + lost + " lost to failed transactions");
+        }
+    }
+
+    private void run() {
+        ArrayList<Change> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        ArrayList<Obstacle> run = new ArrayList<>(MAX_BATCH_SIZE);
+        while (true) {
+            try {
+                Change first = queue.poll(closing ? 0 : FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    if (closing && queue.isEmpty()) return;
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+                for (int i = 0; i < batch.size(); ) {
+                    boolean removed = batch.get(i).removed();
+                    while (i < batch.size() && batch.get(i).removed() == removed) {
+                        run.add(batch.get(i++).obstacle());
+                    }
+                    writeWithRetry(run, removed);
+                    run.clear();
+                }
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                batch.clear();
+                run.clear();
+            }
+        }
+    }
+
+    // Tries a run of changes a few times, the next runs are only written after it so the order is kept
+    private void writeWithRetry(ArrayList<Obstacle> obstacles, boolean removed) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                write(obstacles, removed);
+                return;
+            } catch (SQLException e) {
+                if (attempt == MAX_ATTEMPTS) {
+                    lost += obstacles.size();
+                    System.err.println("Failed to write obstacles, " + obstacles.size() + " "
+                            + (removed ? "removals" : "obstacles") + " lost (" + lost + " in total): " + e.getMessage());
+                    return;
+                }
+                Thread.sleep(RETRY_DELAY_MS * attempt);
+            }
+        }
+    }
+
+    private void write(ArrayList<Obstacle> obstacles, boolean removed) throws SQLException {
+        if (removed) {
+            totalDeleted += ObstacleDatabaseHandler.deleteObstacles(obstacles);
+            return;
+        }
+        long started = System.nanoTime();
+        int saved = ObstacleDatabaseHandler.insertObstacles(obstacles);
+        Metrics.DB_WRITE.recordSince(started);
+        Metrics.OBSTACLES_WRITTEN.add(saved);
+        totalSaved += saved;
+    }
+}
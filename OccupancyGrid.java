@@ -0,0 +1,163 @@
+package nl.saxion.ptbc.classes;
+
+import java.util.function.IntConsumer;
+
+/**
+ * A fixed size grid of square cells over a rectangle of the world that records which cells the Frog
+ * cannot drive through.
+ * <p>
+ * Obstacles are inflated: every cell whose center lies within the inflation radius of an obstacle is
+ * blocked, so a path through free cells keeps the Frog clear of the rocks. Cells are identified by a
+ * single {@code int} index ({@code cellZ * width + cellX}), which is what the {@link DStarLitePlanner}
+ * works with.
+ * <p>
+ * Every cell counts the obstacles that block it, so an obstacle can be removed again: the cell is
+ * only free once all of them are gone. This class is not thread-safe.
+ */
+public class OccupancyGrid {
+    private final double minX, minZ, cellSize;
+    private final int width, height;
+    // number of obstacles whose inflation covers the cell
+    private final short[] blockers;
+
+    /**
+     * Creates a grid without obstacles.
+     *
+     * @param minX     the X coordinate of the left edge of the grid
+     * @param minZ     the Z coordinate of the bottom edge of the grid
+     * @param width    the number of cells along the X axis
+     * @param height   the number of cells along the Z axis
+     * @param cellSize the width and height of a cell in meters
+     */
+    public OccupancyGrid(double minX, double minZ, int width, int height, double cellSize) {
+        if (width <= 0 || height <= 0 || cellSize <= 0) {
+            throw new IllegalArgumentException("Invalid grid size: " + width + "x" + height + " cells of " + cellSize);
+        }
+        this.minX = minX;
+        this.minZ = minZ;
+        this.width = width;
+        this.height = height;
+        this.cellSize = cellSize;
+        this.blockers = new short[width * height];
+    }
+
+    /**
+     * Blocks every cell whose center is within {@code inflationRadius} meters of an obstacle.
+     *
+     * @param x               the absolute X coordinate of the obstacle
+     * @param z               the absolute Z coordinate of the obstacle
+     * @param inflationRadius the distance the Frog has to keep from the obstacle
+     * @param changed         called with every cell that was free and is blocked now
+     */
+    public void markObstacle(double x, double z, double inflationRadius, IntConsumer changed) {
+        changeObstacle(x, z, inflationRadius, 1, changed);
+    }
+
+    /**
+     * Removes an obstacle that was marked with {@link #markObstacle} with the same inflation radius.
+     *
+     * @param changed called with every cell that was blocked and is free now
+     */
+    public void unmarkObstacle(double x, double z, double inflationRadius, IntConsumer changed) {
+        changeObstacle(x, z, inflationRadius, -1, changed);
+    }
+
+    /**
+     * Returns {@code true} if cells of the grid may lie within {@code distance} meters of (x, z).
+     */
+    public boolean isNear(double x, double z, double distance) {
+        return x + distance >= minX && x - distance < minX + width * cellSize
+                && z + distance >= minZ && z - distance < minZ + height * cellSize;
+    }
+
+    private void changeObstacle(double x, double z, double inflationRadius, int delta, IntConsumer changed) {
+        int minCellX = Math.max(0, cellX(x - inflationRadius));
+        int maxCellX = Math.min(width - 1, cellX(x + inflationRadius));
+        int minCellZ = Math.max(0, cellZ(z - inflationRadius));
+        int maxCellZ = Math.min(height - 1, cellZ(z + inflationRadius));
+        double radiusSquared = inflationRadius * inflationRadius;
+
+        for (int cz = minCellZ; cz <= maxCellZ; cz++) {
+            double dz = centerZ(cz) - z;
+            for (int cx = minCellX; cx <= maxCellX; cx++) {
+                double dx = centerX(cx) - x;
+                int cell = cz * width + cx;
+                if (dx * dx + dz * dz <= radiusSquared) {
+                    int before = blockers[cell];
+                    int after = Math.max(0, Math.min(Short.MAX_VALUE, before + delta));
+                    blockers[cell] = (short) after;
+                    if ((before == 0) != (after == 0)) {
+                        changed.accept(cell);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the cell that contains the absolute position (x, z), or -1 if it is outside the grid.
+     */
+    public int cellAt(double x, double z) {
+        int cx = cellX(x);
+        int cz = cellZ(z);
+        if (cx < 0 || cx >= width || cz < 0 || cz >= height) {
+            return -1;
+        }
+        return cz * width + cx;
+    }
+
+    public boolean isBlocked(int cell) {
+        return blockers[cell] != 0;
+    }
+
+    public boolean isBlocked(int cellX, int cellZ) {
+        return blockers[cellZ * width + cellX] != 0;
+    }
+
+    /**
+     * Returns the absolute X coordinate of the center of a cell.
+     */
+    public double getCenterX(int cell) {
+        return centerX(cell % width);
+    }
+
+    /**
+     * Returns the absolute Z coordinate of the center of a cell.
+     */
+    public double getCenterZ(int cell) {
+        return centerZ(cell / width);
+    }
+
+    //Getters
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getCellCount() {
+        return blockers.length;
+    }
+
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    private int cellX(double x) {
+        return (int) Math.floor((x - minX) / cellSize);
+    }
+
+    private int cellZ(double z) {
+        return (int) Math.floor((z - minZ) / cellSize);
+    }
+
+    private double centerX(int cellX) {
+        return minX + (cellX + 0.5) * cellSize;
+    }
+
+    private double centerZ(int cellZ) {
+        return minZ + (cellZ + 0.5) * cellSize;
+    }
+}
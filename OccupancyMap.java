@@ -0,0 +1,417 @@
+package nl.saxion.ptbc.classes;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * A probabilistic map of the rocks around the Frog, built from the radar sweeps.
+ * <p>
+ * The world is divided into square cells of {@code cellSize} meters. Every cell holds the log-odds
+ * that it is occupied: a radar blip in a cell adds {@link #HIT}, and every cell the radar ray
+ * crossed on its way to the blip adds {@link #MISS}, because the ray would have stopped there if it
+ * was occupied. The values are clamped, so a cell that was occupied for a long time can still be
+ * cleared by a few sweeps and the other way around. A cell counts as occupied once its log-odds
+ * reach {@link #OCCUPIED_THRESHOLD}. That takes two hits more than misses, so a single stray blip
+ * never becomes an obstacle, and an obstacle that the radar looks through again becomes free.
+ * <p>
+ * Many blips of the same rock fall into the same cell, so consumers such as the route planner and
+ * the Ground Control map get one cell instead of thousands of slightly different points. They are
+ * told when a cell becomes occupied and when it becomes free again, once per sweep at most.
+ * <p>
+ * Cells are stored in tiles of {@code TILE_CELLS x TILE_CELLS} cells, a dense {@code float[]} each,
+ * that are only allocated when a ray reaches them. Memory therefore grows with the explored area,
+ * not with the number of blips.
+ * <p>
+ * With a {@link TileStore}, at most {@code maxTiles} tiles are kept in memory. The least recently
+ * used tile is written to the store when another one is needed, and read back transparently the
+ * next time a ray or a query reaches it, so the heap stays bounded no matter how much of the world
+ * is explored. The tiles around the Frog are touched by every sweep and therefore stay in memory.
+ * <p>
+ * All public methods are synchronized, so sweeps can be added on the communicator thread while the
+ * map is queried from other threads.
+ */
+public class OccupancyMap {
+    public static final float HIT = 0.4f;
+    public static final float MISS = -0.4f;
+    public static final float OCCUPIED_THRESHOLD = 0.7f;
+    private static final float MIN_LOG_ODDS = -2.0f;
+    private static final float MAX_LOG_ODDS = 3.5f;
+
+    private static final int TILE_BITS = 6;
+    static final int TILE_CELLS = 1 << TILE_BITS;
+    private static final int TILE_MASK = TILE_CELLS - 1;
+    // number of log-odds values of a tile
+    public static final int TILE_LENGTH = TILE_CELLS * TILE_CELLS;
+
+    /**
+     * Receives the center of a cell.
+     */
+    public interface CellVisitor {
+        void visit(double x, double z);
+    }
+
+    /**
+     * Keeps the tiles that were evicted from memory. The log-odds of a tile are
+     * {@link #TILE_LENGTH} floats, row by row.
+     */
+    public interface TileStore {
+        /**
+         * Stores a tile, replacing an earlier version of it. The store may write it later, and owns
+         * the array from now on; the map does not change it anymore.
+         *
+         * @return {@code false} if the tile could not be stored
+         */
+        boolean save(int tileX, int tileZ, float[] logOdds);
+
+        /**
+         * Returns the last saved version of a tile, also if it is not written yet, or {@code null} if
+         * it is not stored or cannot be read.
+         */
+        float[] load(int tileX, int tileZ);
+    }
+
+    // A square block of cells, allocated the first time a ray reaches it
+    static final class Tile {
+        final float[] logOdds;
+        int occupiedCount;
+        // changed since it was created or loaded
+        boolean dirty;
+
+        Tile() {
+            this(new float[TILE_LENGTH]);
+        }
+
+        Tile(float[] logOdds) {
+            this.logOdds = logOdds;
+            for (float value : logOdds) {
+                if (value >= OCCUPIED_THRESHOLD) occupiedCount++;
+            }
+        }
+    }
+
+    private final double cellSize;
+    private final double maxClearingDistance;
+    private final int maxTiles;
+    private final TileStore store;
+    // in access order, the first tile is the least recently used one
+    private final LinkedHashMap<Long, Tile> tiles = new LinkedHashMap<>(64, 0.75f, true);
+    // tiles that are only in the store, with their number of occupied cells
+    private final HashMap<Long, Integer> storedTiles = new HashMap<>();
+    // occupied cells of all tiles, also the stored ones
+    private int occupiedCount;
+    // tiles that the store lost or could not take, only the first one is logged
+    private int lostTiles;
+
+    // occupied cells that the rays of the current sweep cleared
+    private final HashSet<Long> freedCells = new HashSet<>();
+
+    // the tile of the last lookup, consecutive cells of a ray are mostly in the same tile
+    private long lastKey = Long.MIN_VALUE;
+    private Tile lastTile;
+
+    /**
+     * Creates an empty map, all cells unknown.
+     *
+     * @param cellSize            the width and height of a cell in meters
+     * @param maxClearingDistance rays to blips further away than this do not clear the cells they
+     *                            cross, to limit the work of stray blips
+     */
+    public OccupancyMap(double cellSize, double maxClearingDistance) {
+        this(cellSize, maxClearingDistance, Integer.MAX_VALUE, null);
+    }
+
+    /**
+     * Creates an empty map that keeps at most {@code maxTiles} tiles in memory.
+     *
+     * @param cellSize            the width and height of a cell in meters
+     * @param maxClearingDistance see {@link #OccupancyMap(double, double)}
+     * @param maxTiles            the number of tiles kept in memory, at least 1
+     * @param store               receives the tiles that do not fit in memory, {@code null} to keep all tiles
+     */
+    public OccupancyMap(double cellSize, double maxClearingDistance, int maxTiles, TileStore store) {
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("Cell size must be positive: " + cellSize);
+        }
+        if (maxTiles < 1) {
+            throw new IllegalArgumentException("At least one tile must fit in memory: " + maxTiles);
+        }
+        this.cellSize = cellSize;
+        this.maxClearingDistance = maxClearingDistance;
+        this.maxTiles = store == null ? Integer.MAX_VALUE : maxTiles;
+        this.store = store;
+    }
+
+    /**
+     * Adds a radar sweep: clears the cells along every ray and then marks the cells of the blips.
+     * <p>
+     * All rays are cleared before the hits are added, so a ray that passes right next to a rock
+     * does not erase the hit of another ray of the same sweep. A cell that is cleared and hit again
+     * within the sweep is not reported at all.
+     *
+     * @param radarX        the absolute X position of the radar
+     * @param radarZ        the absolute Z position of the radar
+     * @param xs            the absolute X coordinates of the blips
+     * @param zs            the absolute Z coordinates of the blips
+     * @param count         the number of blips
+     * @param newlyOccupied called with the center of every cell that became occupied, may be {@code null}
+     * @param newlyFree     called with the center of every cell that was occupied and is free now,
+     *                      may be {@code null}
+     */
+    public synchronized void addSweep(double radarX, double radarZ, double[] xs, double[] zs, int count,
+                                      CellVisitor newlyOccupied, CellVisitor newlyFree) {
+        int fromX = cellIndex(radarX);
+        int fromZ = cellIndex(radarZ);
+        double maxDistanceSquared = maxClearingDistance * maxClearingDistance;
+        for (int i = 0; i < count; i++) {
+            double dx = xs[i] - radarX;
+            double dz = zs[i] - radarZ;
+            if (dx * dx + dz * dz <= maxDistanceSquared) {
+                clearRay(fromX, fromZ, cellIndex(xs[i]), cellIndex(zs[i]));
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            int cellX = cellIndex(xs[i]);
+            int cellZ = cellIndex(zs[i]);
+            if (update(cellX, cellZ, HIT) > 0 && !freedCells.remove(pack(cellX, cellZ)) && newlyOccupied != null) {
+                newlyOccupied.visit(centerOf(cellX), centerOf(cellZ));
+            }
+        }
+        if (newlyFree != null) {
+            for (long cell : freedCells) {
+                newlyFree.visit(centerOf(unpackX(cell)), centerOf(unpackZ(cell)));
+            }
+        }
+        freedCells.clear();
+    }
+
+    /**
+     * Returns whether the cell that contains (x, z) is occupied.
+     */
+    public synchronized boolean isOccupied(double x, double z) {
+        return getLogOdds(x, z) >= OCCUPIED_THRESHOLD;
+    }
+
+    /**
+     * Returns the probability that the cell that contains (x, z) is occupied, 0.5 if it is unknown.
+     */
+    public synchronized double getProbability(double x, double z) {
+        return 1.0 - 1.0 / (1.0 + Math.exp(getLogOdds(x, z)));
+    }
+
+    /**
+     * Visits the center of every occupied cell that overlaps the rectangle [minX, maxX] x [minZ, maxZ].
+     * Stored tiles in the rectangle are brought back into memory.
+     */
+    public synchronized void forEachOccupied(double minX, double minZ, double maxX, double maxZ, CellVisitor visitor) {
+        int minCellX = cellIndex(minX);
+        int maxCellX = cellIndex(maxX);
+        int minCellZ = cellIndex(minZ);
+        int maxCellZ = cellIndex(maxZ);
+        for (int tileZ = minCellZ >> TILE_BITS; tileZ <= maxCellZ >> TILE_BITS; tileZ++) {
+            for (int tileX = minCellX >> TILE_BITS; tileX <= maxCellX >> TILE_BITS; tileX++) {
+                Tile tile = tile(tileX, tileZ, false);
+                if (tile == null || tile.occupiedCount == 0) {
+                    continue;
+                }
+                int firstX = Math.max(minCellX, tileX << TILE_BITS);
+                int lastX = Math.min(maxCellX, (tileX << TILE_BITS) + TILE_MASK);
+                int firstZ = Math.max(minCellZ, tileZ << TILE_BITS);
+                int lastZ = Math.min(maxCellZ, (tileZ << TILE_BITS) + TILE_MASK);
+                for (int cz = firstZ; cz <= lastZ; cz++) {
+                    int row = (cz & TILE_MASK) << TILE_BITS;
+                    for (int cx = firstX; cx <= lastX; cx++) {
+                        if (tile.logOdds[row | (cx & TILE_MASK)] >= OCCUPIED_THRESHOLD) {
+                            visitor.visit(centerOf(cx), centerOf(cz));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Visits the center of every occupied cell. Stored tiles are read, but not brought back into memory.
+     */
+    public synchronized void forEachOccupied(CellVisitor visitor) {
+        tiles.forEach((key, tile) -> visitOccupied(key, tile.logOdds, visitor));
+        for (long key : storedTiles.keySet()) {
+            float[] logOdds = store.load(unpackX(key), unpackZ(key));
+            if (logOdds != null) {
+                visitOccupied(key, logOdds, visitor);
+            }
+        }
+    }
+
+    //Getters
+    public synchronized int getOccupiedCount() {
+        return occupiedCount;
+    }
+
+    // Number of tiles in memory
+    public synchronized int getTileCount() {
+        return tiles.size();
+    }
+
+    // Number of tiles that were evicted to the store
+    public synchronized int getStoredTileCount() {
+        return storedTiles.size();
+    }
+
+    // Number of tiles whose cells were lost because the store could not save or load them
+    public synchronized int getLostTileCount() {
+        return lostTiles;
+    }
+
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    // Walks the cells from the radar to the blip (Bresenham), without the cell of the blip itself
+    private void clearRay(int x, int z, int toX, int toZ) {
+        int dx = Math.abs(toX - x);
+        int dz = Math.abs(toZ - z);
+        int stepX = x < toX ? 1 : -1;
+        int stepZ = z < toZ ? 1 : -1;
+        int error = dx - dz;
+
+        while (x != toX || z != toZ) {
+            if (update(x, z, MISS) < 0) {
+                freedCells.add(pack(x, z));
+            }
+            int error2 = 2 * error;
+            if (error2 > -dz) {
+                error -= dz;
+                x += stepX;
+            }
+            if (error2 < dx) {
+                error += dx;
+                z += stepZ;
+            }
+        }
+    }
+
+    // Adds to the log-odds of a cell, 1 if the cell became occupied, -1 if it became free, 0 otherwise
+    private int update(int cellX, int cellZ, float delta) {
+        Tile tile = tile(cellX >> TILE_BITS, cellZ >> TILE_BITS, true);
+        int index = ((cellZ & TILE_MASK) << TILE_BITS) | (cellX & TILE_MASK);
+        float before = tile.logOdds[index];
+        float after = Math.max(MIN_LOG_ODDS, Math.min(MAX_LOG_ODDS, before + delta));
+        if (after == before) {
+            return 0;
+        }
+        tile.logOdds[index] = after;
+        tile.dirty = true;
+
+        boolean wasOccupied = before >= OCCUPIED_THRESHOLD;
+        boolean isOccupied = after >= OCCUPIED_THRESHOLD;
+        if (wasOccupied == isOccupied) {
+            return 0;
+        }
+        int change = isOccupied ? 1 : -1;
+        tile.occupiedCount += change;
+        occupiedCount += change;
+        return change;
+    }
+
+    private float getLogOdds(double x, double z) {
+        int cellX = cellIndex(x);
+        int cellZ = cellIndex(z);
+        Tile tile = tile(cellX >> TILE_BITS, cellZ >> TILE_BITS, false);
+        if (tile == null) {
+            return 0;
+        }
+        return tile.logOdds[((cellZ & TILE_MASK) << TILE_BITS) | (cellX & TILE_MASK)];
+    }
+
+    private Tile tile(int tileX, int tileZ, boolean create) {
+        long key = pack(tileX, tileZ);
+        if (key == lastKey) {
+            return lastTile;
+        }
+        Tile tile = tiles.get(key);
+        if (tile == null) {
+            Integer storedOccupied = storedTiles.remove(key);
+            if (storedOccupied != null) {
+                float[] logOdds = store.load(tileX, tileZ);
+                if (logOdds != null) {
+                    tile = new Tile(logOdds);
+                    // a store that returns another version than it was given must not skew the count
+                    occupiedCount += tile.occupiedCount - storedOccupied;
+                } else {
+                    occupiedCount -= storedOccupied;
+                    tileLost("Occupancy tile (" + tileX + ", " + tileZ + ") is lost");
+                    // dirty, so the next eviction stores the empty tile instead of losing it again
+                    tile = new Tile();
+                    tile.dirty = true;
+                }
+            } else if (create) {
+                tile = new Tile();
+            } else {
+                return null;
+            }
+            tiles.put(key, tile);
+            evictTiles();
+        }
+        lastKey = key;
+        lastTile = tile;
+        return tile;
+    }
+
+    // Writes the least recently used tiles to the store until the tiles in memory fit again
+    private void evictTiles() {
+        Iterator<java.util.Map.Entry<Long, Tile>> iterator = tiles.entrySet().iterator();
+        while (tiles.size() > maxTiles) {
+            java.util.Map.Entry<Long, Tile> eldest = iterator.next();
+            long key = eldest.getKey();
+            Tile tile = eldest.getValue();
+            if (tile.dirty && !store.save(unpackX(key), unpackZ(key), tile.logOdds)) {
+                occupiedCount -= tile.occupiedCount;
+                tileLost("Occupancy tile (" + unpackX(key) + ", " + unpackZ(key) + ") could not be stored and is dropped");
+            } else {
+                storedTiles.put(key, tile.occupiedCount);
+            }
+            iterator.remove();
+        }
+        lastKey = Long.MIN_VALUE;
+        lastTile = null;
+    }
+
+    // Runs while a sweep is added, so only the first lost tile is logged; the others are counted
+    private void tileLost(String message) {
+        if (lostTiles++ == 0) {
+            System.err.println(message + ", further lost tiles are only counted");
+        }
+    }
+
+    private void visitOccupied(long key, float[] logOdds, CellVisitor visitor) {
+        int originX = unpackX(key) << TILE_BITS;
+        int originZ = unpackZ(key) << TILE_BITS;
+        for (int i = 0; i < logOdds.length; i++) {
+            if (logOdds[i] >= OCCUPIED_THRESHOLD) {
+                visitor.visit(centerOf(originX + (i & TILE_MASK)), centerOf(originZ + (i >> TILE_BITS)));
+            }
+        }
+    }
+
+    private int cellIndex(double coordinate) {
+        return (int) Math.floor(coordinate / cellSize);
+    }
+
+    private double centerOf(int cell) {
+        return (cell + 0.5) * cellSize;
+    }
+
+    private static long pack(int x, int z) {
+        return ((long) x << 32) | (z & 0xFFFFFFFFL);
+    }
+
+    private static int unpackX(long key) {
+        return (int) (key >> 32);
+    }
+
+    private static int unpackZ(long key) {
+        return (int) key;
+    }
+}
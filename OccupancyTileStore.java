@@ -0,0 +1,259 @@
+package nl.saxion.ptbc.database;
+
+import nl.saxion.ptbc.classes.OccupancyMap;
+import nl.saxion.ptbc.classes.Task;
+import nl.saxion.ptbc.classes.Tasks;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Keeps the tiles an {@link OccupancyMap} evicts from memory in the {@code occupancy_tiles} table.
+ * <p>
+ * Every tile is one row with its log-odds as a compressed BLOB. Unexplored cells are 0 and most
+ * cells of a tile are unexplored, so a tile of 16 KB usually takes a few hundred bytes.
+ * <p>
+ * {@link #save} is called while the map handles a radar sweep, on the receiving thread, so it only
+ * puts the tile in a pending map. A background {@link Task} compresses the pending tiles and writes up
+ * to {@code MAX_BATCH_SIZE} of them in one transaction, like the {@link ObstaclePersister}. A tile
+ * stays pending until it is written, so {@link #load} finds it there in the meantime. Only when
+ * {@code MAX_PENDING_TILES} tiles are pending does {@code save} wait for the writer.
+ * <p>
+ * The table only holds the tiles of the current mission: it is emptied when the store is created.
+ */
+public class OccupancyTileStore implements OccupancyMap.TileStore, AutoCloseable {
+    private static final String SAVE_SQL = "INSERT OR REPLACE INTO occupancy_tiles (tile_x, tile_z, log_odds) VALUES (?, ?, ?)";
+    private static final String LOAD_SQL = "SELECT log_odds FROM occupancy_tiles WHERE tile_x = ? AND tile_z = ?";
+    private static final int TILE_BYTES = OccupancyMap.TILE_LENGTH * Float.BYTES;
+    private static final int MAX_PENDING_TILES = 64;
+    private static final int MAX_BATCH_SIZE = 16;
+    private static final long SAVE_TIMEOUT_MS = 2000;
+
+    // saved tiles that are not written yet, in the order they were saved
+    private final LinkedHashMap<Long, float[]> pending = new LinkedHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition tileSaved = lock.newCondition();
+    private final Condition tilesWritten = lock.newCondition();
+    private final Task writer;
+    private boolean closing = false;
+
+    // only used by the writer
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    private final byte[] deflateChunk = new byte[4096];
+    private final ByteBuffer raw = ByteBuffer.allocate(TILE_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+    // only used by load, which holds inflater
+    private final Inflater inflater = new Inflater();
+    private final ByteArrayOutputStream inflated = new ByteArrayOutputStream();
+    private final byte[] inflateChunk = new byte[4096];
+
+    /**
+     * Opens the store, removes the tiles of an earlier mission and starts the writer.
+     *
+     * @throws SQLException if the database cannot be opened
+     */
+    public OccupancyTileStore() throws SQLException {
+        Database.get().write(session -> session.prepare("DELETE FROM occupancy_tiles").executeUpdate());
+        writer = Tasks.start("OccupancyTileWriter", this::run);
+    }
+
+    @Override
+    public boolean save(int tileX, int tileZ, float[] logOdds) {
+        if (logOdds.length != OccupancyMap.TILE_LENGTH) {
+            return false;
+        }
+        long key = key(tileX, tileZ);
+        lock.lock();
+        try {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SAVE_TIMEOUT_MS);
+            while (pending.size() >= MAX_PENDING_TILES && !pending.containsKey(key) && !closing) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    System.err.println("Occupancy tile writer is too slow");
+                    return false;
+                }
+                tilesWritten.awaitNanos(remaining);
+            }
+            if (closing) {
+                return false;
+            }
+            pending.put(key, logOdds);
+            tileSaved.signal();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public float[] load(int tileX, int tileZ) {
+        lock.lock();
+        try {
+            float[] logOdds = pending.get(key(tileX, tileZ));
+            if (logOdds != null) {
+                // the map changes the tile it loads, the pending one must stay as it was saved
+                return logOdds.clone();
+            }
+        } finally {
+            lock.unlock();
+        }
+        try {
+            byte[] blob = Database.get().read(session -> {
+                PreparedStatement ps = session.prepare(LOAD_SQL);
+                ps.setInt(1, tileX);
+                ps.setInt(2, tileZ);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? rs.getBytes(1) : null;
+                }
+            });
+            if (blob == null) {
+                return null;
+            }
+            synchronized (inflater) {
+                return decompress(blob);
+            }
+        } catch (SQLException | DataFormatException e) {
+            System.err.println("Failed to load occupancy tile: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Stops the writer. Tiles that are still pending are not written, the table is emptied at the start
+     * of the next mission anyway.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closing = true;
+            tileSaved.signal();
+            tilesWritten.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        writer.cancel();
+    }
+
+    private void run() {
+        ArrayList<Long> keys = new ArrayList<>(MAX_BATCH_SIZE);
+        ArrayList<float[]> tiles = new ArrayList<>(MAX_BATCH_SIZE);
+        while (true) {
+            lock.lock();
+            try {
+                while (pending.isEmpty() && !closing) {
+                    tileSaved.await();
+                }
+                if (closing) {
+                    return;
+                }
+                // the tiles stay pending while they are written, so load still finds them
+                Iterator<java.util.Map.Entry<Long, float[]>> iterator = pending.entrySet().iterator();
+                while (iterator.hasNext() && keys.size() < MAX_BATCH_SIZE) {
+                    java.util.Map.Entry<Long, float[]> entry = iterator.next();
+                    keys.add(entry.getKey());
+                    tiles.add(entry.getValue());
+                }
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                write(keys, tiles);
+            } catch (SQLException e) {
+                System.err.println("Failed to store occupancy tiles: " + e.getMessage());
+            }
+
+            lock.lock();
+            try {
+                // a tile that was saved again meanwhile is written by the next batch
+                for (int i = 0; i < keys.size(); i++) {
+                    pending.remove(keys.get(i), tiles.get(i));
+                }
+                tilesWritten.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            keys.clear();
+            tiles.clear();
+        }
+    }
+
+    private void write(ArrayList<Long> keys, ArrayList<float[]> tiles) throws SQLException {
+        ArrayList<byte[]> blobs = new ArrayList<>(tiles.size());
+        for (float[] logOdds : tiles) {
+            blobs.add(compress(logOdds));
+        }
+        Database.get().write(session -> {
+            PreparedStatement ps = session.prepare(SAVE_SQL);
+            for (int i = 0; i < keys.size(); i++) {
+                long key = keys.get(i);
+                ps.setInt(1, (int) (key >> 32));
+                ps.setInt(2, (int) key);
+                ps.setBytes(3, blobs.get(i));
+                ps.addBatch();
+            }
+            return ps.executeBatch().length;
+        });
+    }
+
+    private byte[] compress(float[] logOdds) {
+        raw.clear();
+        raw.asFloatBuffer().put(logOdds);
+        deflater.reset();
+        deflater.setInput(raw.array(), 0, TILE_BYTES);
+        deflater.finish();
+        compressed.reset();
+        while (!deflater.finished()) {
+            compressed.write(deflateChunk, 0, deflater.deflate(deflateChunk));
+        }
+        return compressed.toByteArray();
+    }
+
+    // Returns null if the blob is not a whole tile
+    private float[] decompress(byte[] blob) throws DataFormatException {
+        inflater.reset();
+        inflater.setInput(blob);
+        inflated.reset();
+        while (!inflater.finished()) {
+            int length = inflater.inflate(inflateChunk);
+            if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                throw new DataFormatException("Occupancy tile is truncated");
+            }
+            inflated.write(inflateChunk, 0, length);
+            if (inflated.size() > TILE_BYTES) {
+                break;
+            }
+        }
+        if (inflated.size() != TILE_BYTES) {
+            System.err.println("Occupancy tile has " + inflated.size() + " bytes instead of " + TILE_BYTES);
+            return null;
+        }
+        float[] logOdds = new float[OccupancyMap.TILE_LENGTH];
+        ByteBuffer.wrap(inflated.toByteArray()).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(logOdds);
+        return logOdds;
+    }
+
+    private static long key(int tileX, int tileZ) {
+        return ((long) tileX << 32) | (tileZ & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,254 @@
+package nl.saxion.ptbc.classes;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Plans the route of the autoDrive around all known obstacles.
+ * <p>
+ * The {@code PathPlanner} keeps an {@link OccupancyGrid} of the inflated obstacles and a
+ * {@link DStarLitePlanner} that searches it. Obstacles can be added and removed from any thread; the
+ * changes are queued and only applied to the grid by the next call of {@link #nextWaypoint}, so a
+ * new radar sweep only repairs the part of the route that it affects. While no route is driven, the
+ * queue is applied once it holds {@code MAX_PENDING_OBSTACLES} changes, so it does not grow with the
+ * explored area; the grid itself has a fixed size.
+ * <p>
+ * An obstacle is only counted once per position, so one that is both loaded from the database and
+ * found again by the radar is gone after a single removal.
+ * <p>
+ * The drive loop asks for the next waypoint on every status update and steers towards it instead of
+ * straight towards the destination.
+ */
+public class PathPlanner {
+    // how far ahead on the route the next waypoint may be, in cells
+    private static final int LOOKAHEAD_CELLS = 20;
+    private static final double ADDED = 1;
+    private static final double REMOVED = -1;
+    private static final int MAX_PENDING_OBSTACLES = 10_000;
+
+    private final OccupancyGrid grid;
+    private final DStarLitePlanner planner;
+    private final double inflationRadius;
+    // {x, z, ADDED or REMOVED}, in the order of the changes
+    private final ConcurrentLinkedQueue<double[]> pendingObstacles = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    // positions of the obstacles on the grid in centimeters, see key
+    private final HashSet<Long> markedObstacles = new HashSet<>();
+
+    private Location destination;
+    private boolean hasPath;
+
+    /**
+     * Creates a planner for a grid.
+     *
+     * @param grid            the grid to plan on
+     * @param inflationRadius the distance in meters the route keeps from every obstacle
+     */
+    public PathPlanner(OccupancyGrid grid, double inflationRadius) {
+        this.grid = grid;
+        this.planner = new DStarLitePlanner(grid);
+        this.inflationRadius = inflationRadius;
+    }
+
+    /**
+     * Queues an obstacle for the grid. May be called from any thread.
+     *
+     * @param x the absolute X coordinate of the obstacle
+     * @param z the absolute Z coordinate of the obstacle
+     */
+    public void addObstacle(double x, double z) {
+        queue(new double[]{x, z, ADDED});
+    }
+
+    /**
+     * Queues the removal of an obstacle that was added before. May be called from any thread.
+     *
+     * @param x the absolute X coordinate of the obstacle
+     * @param z the absolute Z coordinate of the obstacle
+     */
+    public void removeObstacle(double x, double z) {
+        queue(new double[]{x, z, REMOVED});
+    }
+
+    /**
+     * Queues all obstacles that are already known, e.g. the ones loaded from the database.
+     */
+    public void addObstacles(List<Obstacle> obstacles) {
+        for (Obstacle obstacle : obstacles) {
+            addObstacle(obstacle.getLocation().getX(), obstacle.getLocation().getZ());
+        }
+    }
+
+    /**
+     * Plans a new route to {@code destination} from the position of the Frog.
+     *
+     * @return {@code true} if the destination can be reached
+     */
+    public synchronized boolean setDestination(Location destination, double x, double z) {
+        this.destination = destination;
+        applyPendingObstacles();
+
+        int start = grid.cellAt(x, z);
+        int goal = grid.cellAt(destination.getX(), destination.getZ());
+        if (start < 0 || goal < 0) {
+            System.out.println("Destination or Frog outside the planning grid, driving straight to " + destination);
+            hasPath = false;
+            return false;
+        }
+        planner.setGoal(start, goal);
+        hasPath = planner.computeShortestPath();
+        if (!hasPath) {
+            System.out.println("No route found to " + destination);
+        }
+        return hasPath;
+    }
+
+    /**
+     * Repairs the route with the obstacles found since the last call and returns the point to steer to.
+     * <p>
+     * The waypoint is the furthest cell of the route within {@link #LOOKAHEAD_CELLS} that can be
+     * reached in a straight line without crossing a blocked cell.
+     *
+     * @param x the absolute X coordinate of the Frog
+     * @param z the absolute Z coordinate of the Frog
+     * @return the waypoint, or {@code null} if there is no route (the caller drives straight to the destination)
+     */
+    public synchronized Location nextWaypoint(double x, double z) {
+        if (destination == null) {
+            return null;
+        }
+        int start = grid.cellAt(x, z);
+        if (start < 0 || planner.getGoal() < 0) {
+            return null;
+        }
+
+        planner.moveStart(start);
+        applyPendingObstacles();
+        // returns right away when neither the obstacles nor the costs around the new start changed
+        hasPath = planner.computeShortestPath();
+        if (!hasPath) {
+            return null;
+        }
+        if (start == planner.getGoal()) {
+            return destination;
+        }
+
+        int waypoint = planner.nextCell(start);
+        int cell = waypoint;
+        for (int i = 1; i < LOOKAHEAD_CELLS && cell != planner.getGoal(); i++) {
+            cell = planner.nextCell(cell);
+            if (cell < 0 || !isLineOfSight(start, cell)) {
+                break;
+            }
+            waypoint = cell;
+        }
+        if (waypoint == planner.getGoal()) {
+            return destination;
+        }
+        return new Location(grid.getCenterX(waypoint), grid.getCenterZ(waypoint));
+    }
+
+    /**
+     * Returns the whole route from the cell of the Frog to the destination, one point per change of direction.
+     */
+    public synchronized List<Location> getWaypoints() {
+        List<Location> waypoints = new ArrayList<>();
+        if (!hasPath) {
+            return waypoints;
+        }
+        int cell = planner.getStart();
+        int previousStep = Integer.MIN_VALUE;
+        int maxSteps = grid.getCellCount();
+        for (int i = 0; i < maxSteps && cell != planner.getGoal(); i++) {
+            int next = planner.nextCell(cell);
+            if (next < 0 || planner.getCost(next) >= planner.getCost(cell)) {
+                break;
+            }
+            int step = next - cell;
+            if (step != previousStep && i > 0) {
+                waypoints.add(new Location(grid.getCenterX(cell), grid.getCenterZ(cell)));
+            }
+            previousStep = step;
+            cell = next;
+        }
+        waypoints.add(destination);
+        return waypoints;
+    }
+
+    //Getters
+    public OccupancyGrid getGrid() {
+        return grid;
+    }
+
+    public DStarLitePlanner getPlanner() {
+        return planner;
+    }
+
+    private void queue(double[] change) {
+        pendingObstacles.add(change);
+        if (pendingCount.incrementAndGet() >= MAX_PENDING_OBSTACLES) {
+            synchronized (this) {
+                applyPendingObstacles();
+            }
+        }
+    }
+
+    // Applies the queued changes to the grid and repairs the cells that were blocked or freed
+    private void applyPendingObstacles() {
+        double[] obstacle;
+        while ((obstacle = pendingObstacles.poll()) != null) {
+            pendingCount.decrementAndGet();
+            double x = obstacle[0];
+            double z = obstacle[1];
+            if (!grid.isNear(x, z, inflationRadius)) {
+                continue;
+            }
+            long key = key(x, z);
+            if (obstacle[2] == ADDED) {
+                if (markedObstacles.add(key)) {
+                    grid.markObstacle(x, z, inflationRadius, planner::cellChanged);
+                }
+            } else if (markedObstacles.remove(key)) {
+                grid.unmarkObstacle(x, z, inflationRadius, planner::cellChanged);
+            }
+        }
+    }
+
+    // The position in centimeters, like the obstacles in the database
+    private static long key(double x, double z) {
+        return (Math.round(x * 100) << 32) | (Math.round(z * 100) & 0xFFFFFFFFL);
+    }
+
+    // Walks the cells on the line between the centers of two cells, the first cell may be blocked
+    private boolean isLineOfSight(int from, int to) {
+        int width = grid.getWidth();
+        int x = from % width;
+        int z = from / width;
+        int toX = to % width;
+        int toZ = to / width;
+        int dx = Math.abs(toX - x);
+        int dz = Math.abs(toZ - z);
+        int stepX = x < toX ? 1 : -1;
+        int stepZ = z < toZ ? 1 : -1;
+        int error = dx - dz;
+
+        while (x != toX || z != toZ) {
+            int error2 = 2 * error;
+            if (error2 > -dz) {
+                error -= dz;
+                x += stepX;
+            }
+            if (error2 < dx) {
+                error += dx;
+                z += stepZ;
+            }
+            if (grid.isBlocked(x, z)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
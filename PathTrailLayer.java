@@ -0,0 +1,151 @@
+package nl.saxion.ptbc.groundControl;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+
+import java.util.Arrays;
+
+/**
+ * A canvas layer that draws the path the frog has driven as one line, in the part of the world a
+ * {@link MapViewport} shows.
+ * <p>
+ * The positions are kept in world coordinates. A new position is only kept when it is at least
+ * {@code minDistance} meters away from the last kept position, and at most {@code maxLength}
+ * positions are kept. When the trail is full the oldest tenth of the trail is dropped at once, so a
+ * full repaint only happens once in a while, or when the viewport changes, and every other update
+ * just strokes the newest segment.
+ * <p>
+ * All methods must be called on the JavaFX Application Thread.
+ */
+public final class PathTrailLayer extends Canvas {
+    private final MapViewport viewport;
+    private double[] xs;
+    private double[] zs;
+    // the positions in pixels, for a full repaint
+    private double[] screenXs;
+    private double[] screenYs;
+    private int size;
+    private int maxLength;
+    private double minDistance;
+
+    /**
+     * Creates an empty trail layer.
+     *
+     * @param viewport    the part of the world to show, also the size of the layer
+     * @param maxLength   the maximum number of positions kept in the trail
+     * @param minDistance the minimum distance in meters between two kept positions
+     */
+    public PathTrailLayer(MapViewport viewport, int maxLength, double minDistance) {
+        super(viewport.getWidth(), viewport.getHeight());
+        this.viewport = viewport;
+        setMouseTransparent(true);
+        setMaxLength(maxLength);
+        this.minDistance = minDistance;
+    }
+
+    /**
+     * Adds a position to the trail if it is far enough from the previous one.
+     *
+     * @param x the absolute X coordinate
+     * @param z the absolute Z coordinate
+     */
+    public void addPoint(double x, double z) {
+        if (size > 0) {
+            double dx = x - xs[size - 1];
+            double dz = z - zs[size - 1];
+            if (dx * dx + dz * dz < minDistance * minDistance) {
+                return;
+            }
+        }
+
+        if (size == maxLength) {
+            int dropped = Math.max(1, maxLength / 10);
+            System.arraycopy(xs, dropped, xs, 0, size - dropped);
+            System.arraycopy(zs, dropped, zs, 0, size - dropped);
+            size -= dropped;
+            xs[size] = x;
+            zs[size] = z;
+            size++;
+            redraw();
+            return;
+        }
+
+        xs[size] = x;
+        zs[size] = z;
+        size++;
+
+        if (size > 1) {
+            GraphicsContext graphics = prepareGraphics();
+            graphics.strokeLine(viewport.toScreenX(xs[size - 2]), viewport.toScreenY(zs[size - 2]),
+                    viewport.toScreenX(x), viewport.toScreenY(z));
+        }
+    }
+
+    /**
+     * Removes the whole trail.
+     */
+    public void clear() {
+        size = 0;
+        getGraphicsContext2D().clearRect(0, 0, getWidth(), getHeight());
+    }
+
+    //Getters
+    public int getSize() {
+        return size;
+    }
+
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    public double getMinDistance() {
+        return minDistance;
+    }
+
+    //Setters
+    public void setMaxLength(int maxLength) {
+        if (maxLength < 2) {
+            throw new IllegalArgumentException("A trail needs at least 2 positions: " + maxLength);
+        }
+        this.maxLength = maxLength;
+        screenXs = new double[maxLength];
+        screenYs = new double[maxLength];
+        if (xs == null) {
+            xs = new double[maxLength];
+            zs = new double[maxLength];
+            return;
+        }
+        int keep = Math.min(size, maxLength);
+        xs = Arrays.copyOfRange(xs, size - keep, size - keep + maxLength);
+        zs = Arrays.copyOfRange(zs, size - keep, size - keep + maxLength);
+        size = keep;
+        redraw();
+    }
+
+    public void setMinDistance(double minDistance) {
+        this.minDistance = minDistance;
+    }
+
+    /**
+     * Repaints the whole trail, e.g. after the viewport changed.
+     */
+    public void redraw() {
+        GraphicsContext graphics = prepareGraphics();
+        graphics.clearRect(0, 0, getWidth(), getHeight());
+        if (size > 1) {
+            for (int i = 0; i < size; i++) {
+                screenXs[i] = viewport.toScreenX(xs[i]);
+                screenYs[i] = viewport.toScreenY(zs[i]);
+            }
+            graphics.strokePolyline(screenXs, screenYs, size);
+        }
+    }
+
+    private GraphicsContext prepareGraphics() {
+        GraphicsContext graphics = getGraphicsContext2D();
+        graphics.setStroke(Color.LIGHTGREEN);
+        graphics.setLineWidth(2);
+        return graphics;
+    }
+}
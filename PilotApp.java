@@ -13,45 +13,98 @@ import javafx.scene.layout.*;
 import javafx.stage.Stage;
 import nl.saxion.ptbc.SaSaCommunicator;
 import nl.saxion.ptbc.classes.*;
+import nl.saxion.ptbc.database.Database;
 import nl.saxion.ptbc.database.ObstacleDatabaseHandler;
+import nl.saxion.ptbc.database.ObstaclePersister;
+import nl.saxion.ptbc.database.OccupancyTileStore;
+import nl.saxion.ptbc.flightRecorder.FlightRecorder;
 import nl.saxion.ptbc.groundControl.GroundControlUtils;
+import nl.saxion.ptbc.metrics.FxQueue;
+import nl.saxion.ptbc.metrics.Metrics;
+import nl.saxion.ptbc.metrics.MetricsReporter;
 import nl.saxion.ptbc.missionLog.MissionLogDAO;
+import nl.saxion.ptbc.missionLog.MissionRecording;
+import nl.saxion.ptbc.missionLog.MissionReplayer;
+import nl.saxion.ptbc.missionLog.MissionSession;
 import nl.saxion.ptbc.missionLog.MissionStatus;
 import nl.saxion.ptbc.missionLog.ReplayMission;
 
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
 import java.util.LinkedList;
-import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import static nl.saxion.ptbc.frog.StartFrogApp.startFrogApp;
 
 
 public class PilotApp extends Application {
+    private static final int PLANNING_GRID_SIZE = 1000;
+    // distance in meters the planned route keeps from every obstacle
+    private static final double OBSTACLE_CLEARANCE = 2.0;
+    private static final long METRICS_REPORT_INTERVAL_SECONDS = 30;
+    private static final double OCCUPANCY_CELL_SIZE = 0.5;
+    private static final double OCCUPANCY_MAX_CLEARING_DISTANCE = 100.0;
+    // 256 tiles of 32 x 32 m, 4 MB; a sweep of the radar touches about 20
+    private static final int OCCUPANCY_MAX_TILES = 256;
+    private static final Path FLIGHT_RECORDER_DIRECTORY = Path.of("flight-recorder");
+    // the blips of a sweep arrive as one burst, a sweep without blips for this long is complete
+    private static final long RADAR_SWEEP_QUIET_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
     private Button upButton;
     private Button downButton;
     private Button leftButton;
     private Button rightButton;
 
-    private boolean isLogging = false;
-    private ArrayList<String> missionLog = new ArrayList<>();
+    private volatile boolean isLogging = false;
+    private final MissionRecording missionLog = new MissionRecording();
+    private MissionReplayer missionReplayer;
     private RadarSystem radarSystem = new RadarSystem();
-    private RadarView radarView = new RadarView();
+    private RadarView radarView = new RadarView(radarSystem);
 
     private double forwardSpeed;
     private double backwardSpeed;
     private double leftSpeed;
     private double rightSpeed;
 
-    private Map map = new Map();
+    // Fuses the radar sweeps and is the obstacle map of the Pilot: every cell is reported once when it
+    // becomes occupied and once when it becomes free, and its tiles far from the Frog are in the database
+    private OccupancyMap occupancyMap;
+    // Receives the tiles of the occupancy map that do not fit in memory, null if they all stay in memory
+    private OccupancyTileStore occupancyTileStore;
+    private final OccupancyMap.CellVisitor newlyOccupied = this::addObstacle;
+    private final OccupancyMap.CellVisitor newlyFree = this::removeObstacle;
+    // Route planning for the autoDrive on a 1000 x 1000 m grid around the base
+    private final PathPlanner pathPlanner = new PathPlanner(
+            new OccupancyGrid(-PLANNING_GRID_SIZE / 2.0, -PLANNING_GRID_SIZE / 2.0,
+                    PLANNING_GRID_SIZE, PLANNING_GRID_SIZE, 1.0), OBSTACLE_CLEARANCE);
+    // Streams newly discovered obstacles to the database while the mission runs
+    private ObstaclePersister obstaclePersister;
+    private MetricsReporter metricsReporter;
+    // Records every status and radar sweep for analysis and replay, null if it could not be opened
+    private FlightRecorder flightRecorder;
 
     private SaSaCommunicator sasa;
+    // All outgoing messages go through the dispatcher, DRIVE commands first
+    private CommandDispatcher commands;
+    // Set once the Frog sends status messages and radar sweeps, which ends the setup loop
+    private volatile boolean statusAcknowledged = false;
+    private volatile boolean radarAcknowledged = false;
 
     private Frog frog = new Frog();
 
     private TextArea commandArea;  // So we can update the UI with incoming messages
 
-    private ArrayList<Obstacle> notConvertedObstacles = new ArrayList<>();
+    // Radar blips relative to the Frog, published per complete sweep for the autoDrive loop
+    private final RadarSweepBuffer radarSweepBuffer = new RadarSweepBuffer();
+
+    // Decodes incoming messages without splitting them, only used on the communicator thread
+    private final FrogMessageDecoder decoder = new FrogMessageDecoder();
+    // True while the blips of a radar sweep are coming in
+    private boolean radarSweepOpen = false;
+    // When the last blip or the RADAR START of the open sweep arrived
+    private long lastRadarMessageNanos;
 
 
     /**
@@ -66,7 +119,7 @@ public class PilotApp extends Application {
      *   <li>Starts the FrogApp in a background thread.</li>
      *   <li>Launches the GroundControl application on the JavaFX thread.</li>
      *   <li>Initializes a {@link SaSaCommunicator} to manage message communication.</li>
-     *   <li>Sends recurring setup commands (RADAR ON, STATUS ON) to ensure proper Frog functionality.</li>
+     *   <li>Sends the setup commands (RADAR ON, STATUS ON) every 3 seconds until the Frog answers with radar sweeps and status messages.</li>
      *   <li>Creates the dashboard layout with movement controls, mission log buttons, and radar graph area.</li>
      * </ul>
      *
@@ -75,7 +128,7 @@ public class PilotApp extends Application {
      */
     @Override
     public void start(Stage primaryStage) throws Exception {
-        new Thread(() -> {
+        Tasks.start("FrogAppStarter", () -> {
             try {
                 // Start FrogApp
                 startFrogApp();
@@ -94,8 +147,26 @@ public class PilotApp extends Application {
                 System.err.println("Error starting FrogApp: " + e.getMessage());
                 e.printStackTrace();
             }
-        }).start();
+        });
+
 
+        // The route avoids the obstacles of earlier missions and imports from the start
+        Tasks.start("PathPlannerSeed", () -> {
+            double half = PLANNING_GRID_SIZE / 2.0 + OBSTACLE_CLEARANCE;
+            try {
+                pathPlanner.addObstacles(ObstacleDatabaseHandler.loadObstaclesInArea(-half, -half, half, half));
+            } catch (SQLException e) {
+                System.err.println("Failed to load the known obstacles for the route: " + e.getMessage());
+            }
+        });
+        obstaclePersister = new ObstaclePersister();
+        metricsReporter = new MetricsReporter(METRICS_REPORT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        occupancyMap = createOccupancyMap();
+        try {
+            flightRecorder = FlightRecorder.open(FLIGHT_RECORDER_DIRECTORY);
+        } catch (IOException e) {
+            System.err.println("Flight recorder disabled: " + e.getMessage());
+        }
 
         // COMMUNICATION SETUP
         sasa = new SaSaCommunicator(
@@ -106,19 +177,22 @@ public class PilotApp extends Application {
                 true
         );
 
-        frog.addCommunicatorToFrog(sasa);
+        commands = new CommandDispatcher(sasa);
+        frog.addCommunicatorToFrog(commands);
+        frog.addPathPlannerToFrog(pathPlanner);
 
-        new Thread(() -> {
-            while (true) {   // repeat forever
+        Tasks.start("FrogSetup", () -> {
+            while (!radarAcknowledged || !statusAcknowledged) {   // repeat until the Frog answers
                 try {
-                    sasa.send("RADAR ON");     // ask Frog to enable radar
-                    sasa.send("STATUS ON");    // ask Frog to send status
+                    if (!radarAcknowledged) commands.send("RADAR ON");     // ask Frog to enable radar
+                    if (!statusAcknowledged) commands.send("STATUS ON");   // ask Frog to send status
                     Thread.sleep(3000);  // wait 3 seconds before trying again
-                } catch (Exception e) {
-                    System.out.println("Retrying setup commands...");
+                } catch (InterruptedException e) {
+                    return; // the Pilot is closing
                 }
             }
-        }).start();
+            System.out.println("Frog acknowledged RADAR ON and STATUS ON");
+        });
         primaryStage.setTitle("The Pilot Dashboard"); //Set name for title
 
         radarView.setPrefSize(600, 600);
@@ -129,7 +203,7 @@ public class PilotApp extends Application {
         radarView.getChildren().add(radarLabel);
 
         //Elham
-        MissionStatus.setCommunicator(sasa);
+        MissionStatus.setCommunicator(commands);
 
         // ARROW CONTROLS
         upButton = new Button("↑");
@@ -201,20 +275,30 @@ public class PilotApp extends Application {
         primaryStage.show();
 
         startMissionButton.setOnAction(e -> {
-            frog.autoDriveMissionLog(notConvertedObstacles);
+            frog.autoDriveMissionLog(radarSweepBuffer);
         });
 
-        // if the replay mission button is pressed, send the driving commands to the frog
-        replayMissionButton.setOnAction(e -> {
-            String command = ReplayMission.replayLatestCommand();
-            System.out.println("Replaying: " + command);
-            commandArea.appendText("Replaying: " + command + "\n");
-            if (command.startsWith("PILOT ")) {
-                command = command.substring("PILOT ".length());
+        // if the replay mission button is pressed, send the driving commands of the whole mission to the frog
+        // the mission is read in the background, the replayer is started and cancelled on the JavaFX thread
+        replayMissionButton.setOnAction(e -> Tasks.start("MissionLoader", () -> {
+            MissionSession session = ReplayMission.loadLatestSentMission();
+            if (session == null) {
+                return;
             }
-            sasa.send(command);
-            sasa.send(command);
-        });
+            Platform.runLater(() -> {
+                if (missionReplayer != null) {
+                    missionReplayer.cancel();
+                }
+                System.out.println("Replaying mission " + session.getId() + " (" + session.size() + " commands)");
+                commandArea.appendText("Replaying mission " + session.getId() + " (" + session.size() + " commands)\n");
+                missionReplayer = MissionReplayer.start(session, command -> {
+                    if (command.startsWith("PILOT ")) {
+                        command = command.substring("PILOT ".length());
+                    }
+                    commands.send(command);
+                });
+            });
+        }));
     }
 
     /**
@@ -225,7 +309,7 @@ public class PilotApp extends Application {
      * and simple turning maneuvers. After sending the command:
      * <ul>
      *     <li>The message is logged to the console and displayed in the UI's {@code commandArea}.</li>
-     *     <li>If mission logging is enabled, the command is also added to the {@code missionLog}.</li>
+     *     <li>If mission logging is enabled, the command is also added to the {@code missionLog} recording.</li>
      * </ul>
      *
      * <p>Direction options and their behavior:
@@ -279,7 +363,7 @@ public class PilotApp extends Application {
                 rightSpeed = 0;
             }
         }
-        sasa.send(command);
+        commands.send(command);
         String message = "PILOT " + command;
         System.out.println("Sending command: " + message);
         commandArea.appendText("Sent: " + message + "\n");
@@ -296,7 +380,7 @@ public class PilotApp extends Application {
      * <ul>
      *     <li>If logging is started:
      *         <ul>
-     *             <li>Clears any existing log entries in {@code missionLog}.</li>
+     *             <li>Restarts the {@code missionLog} recording, clearing any existing entries.</li>
      *             <li>Updates the UI to reflect that logging has started.</li>
      *             <li>Changes the button text to "Stop mission log".</li>
      *         </ul>
@@ -306,7 +390,7 @@ public class PilotApp extends Application {
      *             <li>Prints the contents of {@code missionLog} to the console.</li>
      *             <li>Updates the UI to show the number of entries recorded.</li>
      *             <li>Changes the button text to "Start mission log".</li>
-     *             <li>Saves the mission log to the database via {@code MissionLogDAO.insertMissionLog}.</li>
+     *             <li>Saves the mission log as one mission to the database via {@code MissionLogDAO.insertMissionLog}.</li>
      *         </ul>
      *     </li>
      * </ul>
@@ -318,17 +402,17 @@ public class PilotApp extends Application {
         isLogging = !isLogging;
 
         if (isLogging) {
-            missionLog.clear();
+            missionLog.start();
             System.out.println("Recording Mission log");
             commandArea.appendText("Recording Mission log\n");
             ((Button) event.getSource()).setText("Stop recording mission log");
         } else {
             System.out.println("Recording mission log stopped. Log contents:");
-            missionLog.forEach(System.out::println);
+            missionLog.getCommands().forEach(System.out::println);
             commandArea.appendText("Mission log stopped. " + missionLog.size() + " entries recorded.\n");
             ((Button) event.getSource()).setText("Record mission log");
 
-            // Add the missionLog arrayList to the database
+            // Add the recorded mission to the database
             MissionLogDAO.insertMissionLog(missionLog);
         }
     }
@@ -337,8 +421,13 @@ public class PilotApp extends Application {
     public void receive(String message) {
         if (message == null || message.isBlank()) return;
 
-        if (!message.startsWith("FROG STATUS") && !message.startsWith("FROG RADAR BLIP")) {
-            Platform.runLater(() -> {
+        long parseStarted = System.nanoTime();
+        FrogMessageDecoder.MessageType type = decoder.decode(message);
+        Metrics.MESSAGE_PARSE.recordSince(parseStarted);
+        Metrics.MESSAGES_RECEIVED.increment();
+
+        if (type != FrogMessageDecoder.MessageType.STATUS && type != FrogMessageDecoder.MessageType.RADAR_BLIP) {
+            FxQueue.runLater(() -> {
                 if (commandArea.getParagraphs().size() > 200) {
                     commandArea.clear(); //remove old commands to stop freezing
                     commandArea.appendText("---- Log cleared to prevent freezing ----\n");
@@ -347,96 +436,143 @@ public class PilotApp extends Application {
             });
         }
 
-        String[] parts = message.split(" ", 3);
-        if (parts.length < 3) {
+        // A STATUS or garbled message in the middle of the burst must not cut the sweep short
+        if (type == FrogMessageDecoder.MessageType.RADAR_START) {
+            closeRadarSweep();
+        } else if (type != FrogMessageDecoder.MessageType.RADAR_BLIP
+                && System.nanoTime() - lastRadarMessageNanos >= RADAR_SWEEP_QUIET_NANOS) {
+            closeRadarSweep();
+        }
+
+        if (type == FrogMessageDecoder.MessageType.MALFORMED) {
+            Metrics.MESSAGES_MALFORMED.increment();
             System.out.println(" Skipping malformed message: " + message);
             return;
         }
-        if (isLogging && message.startsWith("PILOT DRIVE")) {
-            synchronized (missionLog) {
-                missionLog.add(message);
-            }
+        if (isLogging && type == FrogMessageDecoder.MessageType.PILOT_DRIVE) {
+            missionLog.add(message);
         }
 
-        /**
-         * Handles incoming "FROG STATUS" messages from the Frog simulation.
-         *
-         * Extracts position (x, z), energy level, and solar level from the message,
-         * then updates the internal Frog object with these values.
-         *
-         * After updating, it forwards the relevant data to the Ground Control
-         * via a formatted "SEND STATUS" message.
-         *
-         * Expected format: "FROG STATUS <time> <x> <y> <z> <energy> <solar>"
-         *
-         * Example message:
-         * FROG STATUS 168.53 0.12 -92.36 79.96 0.98 0.00
-         */
-        if (message.startsWith("FROG STATUS")) {
-            String[] parts1 = message.split(" ");
-            try {
-                frog.update(Double.parseDouble(parts1[2]), Double.parseDouble(parts1[3]),
-                        Double.parseDouble(parts1[4]), Double.parseDouble(parts1[5]),
-                        Double.parseDouble(parts1[6]), Double.parseDouble(parts1[7]));
-                sasa.send("SEND STATUS " + parts1[2] + " " + parts1[4] + " " + parts1[6] + " " + parts1[7] + " " + parts1[5]);
-            } catch (Exception e) {
-                System.err.println("Invalid STATUS message: " + message);
+        switch (type) {
+            case STATUS -> handleStatus(decoder.getStatusEvent());
+            case RADAR_START -> handleRadarStart(decoder.getRadarStartEvent());
+            case RADAR_BLIP -> handleRadarBlip(decoder.getRadarBlipEvent());
+            case GO_TO -> handleGoTo(decoder.getGoToEvent(), message);
+            default -> {
             }
         }
+    }
 
-        // radar points
-        if (message.startsWith("FROG RADAR START")) {
-            radarSystem.clear();
-            String[] parts1 = message.split(" ");
-            try {
-                frog.updateRadar(Double.parseDouble(parts1[3]), Double.parseDouble(parts1[5]), Double.parseDouble(parts1[6]));
-                notConvertedObstacles.clear();
-            } catch (Exception e) {
-                throw new RuntimeException(e);
-            }
+    /**
+     * Handles incoming "FROG STATUS" messages from the Frog simulation.
+     * <p>
+     * Updates the internal Frog object with the position, angle, energy and solar values,
+     * then forwards the relevant data to the Ground Control via a "SEND STATUS" message.
+     * <p>
+     * Expected format: "FROG STATUS <x> <y> <z> <angle> <energy> <solar>"
+     * <p>
+     * Example message:
+     * FROG STATUS 168.53 0.12 -92.36 79.96 0.98 0.00
+     *
+     * @param status the decoded status message
+     */
+    private void handleStatus(FrogMessageDecoder.StatusEvent status) {
+        frog.update(status.getX(), status.getY(), status.getZ(),
+                status.getAngle(), status.getEnergy(), status.getSolar());
+        statusAcknowledged = true;
+        if (flightRecorder != null) {
+            flightRecorder.recordStatus(status.getX(), status.getY(), status.getZ(),
+                    status.getAngle(), status.getEnergy(), status.getSolar());
         }
+        commands.send("SEND STATUS " + status.getX() + " " + status.getZ() + " " + status.getEnergy()
+                + " " + status.getSolar() + " " + status.getAngle());
+    }
 
-        if (message.startsWith("FROG RADAR BLIP")) {
-            String[] parts2 = message.split(" ");
-            try {
-                double obstacleX = Double.parseDouble(parts2[3]);
-                double obstacleZ = Double.parseDouble(parts2[5]);
+    // radar points
+    private void handleRadarStart(FrogMessageDecoder.RadarStartEvent radarStart) {
+        radarSystem.clear();
+        radarView.requestRedraw();
+        frog.updateRadar(radarStart.getX(), radarStart.getZ(), radarStart.getAngle());
+        radarSweepBuffer.start(radarStart.getX(), radarStart.getZ(), radarStart.getAngle());
+        radarSweepOpen = true;
+        lastRadarMessageNanos = System.nanoTime();
+        radarAcknowledged = true;
+    }
 
-                Location unconvertedRadarPoint = new Location(obstacleX, obstacleZ);
-                Location radarPoint = convertToAbsolute(frog.getRadarX(), frog.getRadarZ(), frog.getRadarAngle(), obstacleX, obstacleZ);
+    // The sweep is complete at the next RADAR START, or at the first other message after the burst of blips
+    private void closeRadarSweep() {
+        if (radarSweepOpen) {
+            radarSweepOpen = false;
+            RadarSweep sweep = radarSweepBuffer.publish();
+            Metrics.RADAR_SWEEP_SIZE.record(sweep.size());
+            if (flightRecorder != null) {
+                flightRecorder.recordRadarSweep(sweep);
+            }
+            addSweepObstacles(sweep);
+            frog.radarSweepComplete();
+            commands.flushObstacles();
+        }
+    }
 
-                sasa.send("OBSTACLE " + radarPoint.getX() + " " + radarPoint.getZ());
+    // Tiles far away from the Frog are moved to the database, or kept in memory if it cannot be opened
+    private OccupancyMap createOccupancyMap() {
+        try {
+            occupancyTileStore = new OccupancyTileStore();
+            return new OccupancyMap(OCCUPANCY_CELL_SIZE, OCCUPANCY_MAX_CLEARING_DISTANCE,
+                    OCCUPANCY_MAX_TILES, occupancyTileStore);
+        } catch (SQLException e) {
+            System.err.println("Occupancy tiles stay in memory: " + e.getMessage());
+            return new OccupancyMap(OCCUPANCY_CELL_SIZE, OCCUPANCY_MAX_CLEARING_DISTANCE);
+        }
+    }
 
-                notConvertedObstacles.add(new Obstacle(unconvertedRadarPoint));
-                map.updateObstacleMap(new Obstacle(radarPoint));
+    // One pass over the absolute positions of the sweep updates the occupancy map
+    private void addSweepObstacles(RadarSweep sweep) {
+        occupancyMap.addSweep(sweep.getRadarX(), sweep.getRadarZ(), radarSweepBuffer.getWorldXs(),
+                radarSweepBuffer.getWorldZs(), radarSweepBuffer.getWorldSize(), newlyOccupied, newlyFree);
+    }
 
-                radarSystem.addRadarBlip(obstacleX, obstacleZ);
+    // A cell became occupied: its center goes to the database, Ground Control and the route planner
+    private void addObstacle(double x, double z) {
+        Metrics.UNIQUE_OBSTACLES.increment();
+        obstaclePersister.offer(new Obstacle(new Location(x, z)));
+        // Ground Control only gets the obstacles it does not know yet, once per sweep
+        commands.addObstacle(x, z);
+        pathPlanner.addObstacle(x, z);
+    }
 
-                Platform.runLater(() -> {
-                    List<RadarPoint> filtered = radarSystem.getFilteredPoints();
-                    radarView.draw(filtered);
-                });
-            } catch (Exception e) {
-                System.err.println("Invalid radar points!!!");
-            }
-        }
+    // A cell that was occupied is free again: the radar looked through it, so it was noise or it moved
+    private void removeObstacle(double x, double z) {
+        obstaclePersister.offerRemoval(new Obstacle(new Location(x, z)));
+        commands.removeObstacle(x, z);
+        pathPlanner.removeObstacle(x, z);
+    }
 
-        //AUTO DRIVE
-        if (message.startsWith("GROUND_CONTROL GO TO")) {
-            String[] parts3 = message.replace(',', '.').split(" ");
-            double x = Double.parseDouble(parts3[3]);
-            double y = Double.parseDouble(parts3[4]);
-            Location destination = new Location(x, y);
-            Map.setLocationsAutodrive(destination);
-            frog.autoDrive(new LinkedList<>(Map.getLocationsAutodrive()), notConvertedObstacles);
-            System.err.println(message);
-        }
+    // The blip is relative to the radar, it is put on the map when the sweep is complete
+    private void handleRadarBlip(FrogMessageDecoder.RadarBlipEvent blip) {
+        double obstacleX = blip.getX();
+        double obstacleZ = blip.getZ();
 
+        radarSweepBuffer.add(obstacleX, obstacleZ);
+        lastRadarMessageNanos = System.nanoTime();
+        radarSystem.addRadarBlip(obstacleX, obstacleZ);
+        radarView.requestRedraw();
+    }
 
+    //AUTO DRIVE
+    private void handleGoTo(FrogMessageDecoder.GoToEvent goTo, String message) {
+        Location destination = new Location(goTo.getX(), goTo.getZ());
+        Map.setLocationsAutodrive(destination);
+        frog.autoDrive(new LinkedList<>(Map.getLocationsAutodrive()), radarSweepBuffer);
+        System.err.println(message);
     }
 
 
-    public Location convertToAbsolute(double xr, double zr, double angleDeg, double xp, double zp) {
+    /**
+     * Converts a single blip relative to the radar into an absolute location.
+     * Whole sweeps are converted by a {@link RadarTransform}, which computes the rotation only once.
+     */
+    public static Location convertToAbsolute(double xr, double zr, double angleDeg, double xp, double zp) {
         double angleRadian = Math.toRadians(angleDeg);
         double x = xr + xp * Math.cos(angleRadian) + zp * Math.sin(angleRadian);
         double z = zr + zp * Math.cos(angleRadian) - xp * Math.sin(angleRadian);
@@ -448,9 +584,13 @@ public class PilotApp extends Application {
      * Called automatically when the PilotApp is closing.
      * <p>
      * Performs necessary shutdown procedures including:
-     * - Saving all currently known obstacles to the database.
+     * - Stopping the autoDrive and a running mission replay.
+     * - Writing the obstacles that are still queued to the database.
      * - Sending "RADAR OFF" and "STATUS OFF" signals to stop background processes.
      * - Closing the SaSaCommunicator connection cleanly.
+     * - Stopping the writer of the occupancy tiles.
+     * - Printing the final metrics of the mission.
+     * - Stopping all remaining background tasks, see {@link Tasks#shutdown}.
      * <p>
      * This helps ensure that no obstacle data is lost and
      * the Pilot system shuts down gracefully.
@@ -460,14 +600,38 @@ public class PilotApp extends Application {
     @Override
     public void stop() throws Exception {
         super.stop();
-        // Save known obstacles automatically when app is closed
-        ObstacleDatabaseHandler.saveObstacles(map.getKnownObstacles());
+        frog.cancelAutoDrive();
+        if (missionReplayer != null) {
+            missionReplayer.cancel();
+        }
+        // Obstacles are saved while driving, only the last queued ones still need to be written
+        if (obstaclePersister != null) {
+            obstaclePersister.close();
+        }
         if (sasa != null) {
-            sasa.send("RADAR OFF");
-            sasa.send("STATUS OFF");
+            commands.send("RADAR OFF");
+            commands.send("STATUS OFF");
+            commands.close();
             sasa.close();
             System.err.println("PilotApp closed. Radar and Status turned off.");
         }
+        // After the communicator is closed, so no sweep evicts tiles anymore
+        if (occupancyTileStore != null) {
+            occupancyTileStore.close();
+        }
+        if (occupancyMap != null && occupancyMap.getLostTileCount() > 0) {
+            System.err.println("Occupancy tiles lost during this mission: " + occupancyMap.getLostTileCount());
+        }
+        // After the communicator is closed, so nothing is recorded anymore
+        if (flightRecorder != null) {
+            flightRecorder.close();
+        }
+        if (metricsReporter != null) {
+            metricsReporter.close();
+        }
+        // Interrupts whatever still runs in the background, e.g. the setup loop
+        Tasks.shutdown(2, TimeUnit.SECONDS);
+        Database.shutdown();
     }
 
     public static void main(String[] args) {
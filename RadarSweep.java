@@ -0,0 +1,89 @@
+package nl.saxion.ptbc.classes;
+
+/**
+ * An immutable snapshot of one complete radar sweep.
+ * <p>
+ * The obstacle positions are relative to the radar and stored in primitive arrays, together with
+ * the radar position and heading of the {@code FROG RADAR START} message that opened the sweep.
+ * The distance and bearing of every blip are computed once when the snapshot is created, so the
+ * autoDrive does not repeat the square roots and arc tangents on every tick.
+ * Snapshots are created by the {@link RadarSweepBuffer} and can be read from any thread.
+ */
+public final class RadarSweep {
+    public static final RadarSweep EMPTY = new RadarSweep(0, 0, 0, 0, new double[0], new double[0]);
+
+    private final long sequence;
+    private final double radarX;
+    private final double radarZ;
+    private final double radarAngle;
+    private final double[] xs;
+    private final double[] zs;
+    private final double[] distances;
+    private final double[] bearings;
+    private final double minDistance;
+
+    RadarSweep(long sequence, double radarX, double radarZ, double radarAngle, double[] xs, double[] zs) {
+        this.sequence = sequence;
+        this.radarX = radarX;
+        this.radarZ = radarZ;
+        this.radarAngle = radarAngle;
+        this.xs = xs;
+        this.zs = zs;
+        this.distances = new double[xs.length];
+        this.bearings = new double[xs.length];
+
+        double min = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < xs.length; i++) {
+            distances[i] = Math.sqrt(xs[i] * xs[i] + zs[i] * zs[i]);
+            bearings[i] = Math.toDegrees(Math.atan2(zs[i], xs[i]));
+            min = Math.min(min, distances[i]);
+        }
+        this.minDistance = min;
+    }
+
+    //Getters
+    public long getSequence() {
+        return sequence;
+    }
+
+    public double getRadarX() {
+        return radarX;
+    }
+
+    public double getRadarZ() {
+        return radarZ;
+    }
+
+    public double getRadarAngle() {
+        return radarAngle;
+    }
+
+    public int size() {
+        return xs.length;
+    }
+
+    // X coordinate of blip i, relative to the radar
+    public double getX(int i) {
+        return xs[i];
+    }
+
+    // Z coordinate of blip i, relative to the radar
+    public double getZ(int i) {
+        return zs[i];
+    }
+
+    // Distance of blip i to the radar
+    public double getDistance(int i) {
+        return distances[i];
+    }
+
+    // Angle of blip i in degrees from the X axis of the radar, between -180 and 180
+    public double getBearing(int i) {
+        return bearings[i];
+    }
+
+    // Distance of the closest blip, infinite for a sweep without blips
+    public double getMinDistance() {
+        return minDistance;
+    }
+}
@@ -0,0 +1,114 @@
+package nl.saxion.ptbc.classes;
+
+import java.util.Arrays;
+
+/**
+ * Assembles radar sweeps on the communicator thread and publishes them as immutable snapshots.
+ * <p>
+ * Blips of the sweep in progress are collected in private arrays that no other thread can see.
+ * When the sweep is complete, {@link #publish()} copies them once into a {@link RadarSweep} and
+ * swaps it in through a volatile reference. Readers such as the autoDrive loop always get the last
+ * complete sweep, without locks and without copying it themselves.
+ * <p>
+ * Publishing also converts all blips of the sweep to absolute coordinates in one pass with a
+ * {@link RadarTransform} set up at {@link #start}. The results stay in arrays of the buffer that are
+ * reused for every sweep, see {@link #getWorldXs()}; they feed the obstacle map, Ground Control and
+ * the route planner.
+ * <p>
+ * {@link #start}, {@link #add} and {@link #publish} must be called from a single thread;
+ * {@link #getLatest()} may be called from any thread, the world coordinates only from the writing thread.
+ */
+public class RadarSweepBuffer {
+    private static final int INITIAL_CAPACITY = 64;
+
+    // sweep in progress, only touched by the writing thread
+    private double[] xs = new double[INITIAL_CAPACITY];
+    private double[] zs = new double[INITIAL_CAPACITY];
+    private int size;
+    private double radarX, radarZ, radarAngle;
+    private final RadarTransform transform = new RadarTransform();
+    // absolute coordinates of the last published sweep, reused for every sweep
+    private double[] worldXs = new double[INITIAL_CAPACITY];
+    private double[] worldZs = new double[INITIAL_CAPACITY];
+    private int worldSize;
+    private long sequence;
+
+    private volatile RadarSweep latest = RadarSweep.EMPTY;
+
+    /**
+     * Starts a new sweep, discarding blips of a sweep that was never published.
+     *
+     * @param radarX     the X position of the radar
+     * @param radarZ     the Z position of the radar
+     * @param radarAngle the heading of the radar in degrees
+     */
+    public void start(double radarX, double radarZ, double radarAngle) {
+        this.radarX = radarX;
+        this.radarZ = radarZ;
+        this.radarAngle = radarAngle;
+        transform.set(radarX, radarZ, radarAngle);
+        size = 0;
+    }
+
+    /**
+     * Adds a blip to the sweep in progress.
+     *
+     * @param x the X coordinate of the obstacle relative to the radar
+     * @param z the Z coordinate of the obstacle relative to the radar
+     */
+    public void add(double x, double z) {
+        if (size == xs.length) {
+            xs = Arrays.copyOf(xs, size * 2);
+            zs = Arrays.copyOf(zs, size * 2);
+        }
+        xs[size] = x;
+        zs[size] = z;
+        size++;
+    }
+
+    /**
+     * Publishes the sweep in progress as the latest complete sweep and converts its blips to
+     * absolute coordinates.
+     *
+     * @return the published snapshot
+     */
+    public RadarSweep publish() {
+        if (worldXs.length < size) {
+            worldXs = new double[xs.length];
+            worldZs = new double[xs.length];
+        }
+        transform.transform(xs, zs, size, worldXs, worldZs);
+        worldSize = size;
+
+        RadarSweep sweep = new RadarSweep(++sequence, radarX, radarZ, radarAngle,
+                Arrays.copyOf(xs, size), Arrays.copyOf(zs, size));
+        latest = sweep;
+        return sweep;
+    }
+
+    /**
+     * Returns the last complete sweep, or {@link RadarSweep#EMPTY} if no sweep was published yet.
+     */
+    public RadarSweep getLatest() {
+        return latest;
+    }
+
+    /**
+     * Returns the absolute X coordinates of the last published sweep, the first {@link #getWorldSize()}
+     * entries are valid until the next {@link #publish()}.
+     */
+    public double[] getWorldXs() {
+        return worldXs;
+    }
+
+    /**
+     * Returns the absolute Z coordinates of the last published sweep, see {@link #getWorldXs()}.
+     */
+    public double[] getWorldZs() {
+        return worldZs;
+    }
+
+    public int getWorldSize() {
+        return worldSize;
+    }
+}
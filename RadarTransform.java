@@ -0,0 +1,66 @@
+package nl.saxion.ptbc.classes;
+
+/**
+ * Turns radar blips, which are relative to the radar, into absolute world coordinates.
+ * <p>
+ * All blips of a sweep share the position and heading of the {@code FROG RADAR START} message, so
+ * the sine and cosine of the heading are computed once by {@link #set} and every blip is only a few
+ * multiplications and additions. {@link #transform} converts a whole sweep in one loop over
+ * primitive arrays, which the JIT compiler can unroll and vectorize.
+ * <p>
+ * The rotation is the same as {@code PilotApp.convertToAbsolute}:
+ * {@code x = radarX + bx * cos + bz * sin} and {@code z = radarZ + bz * cos - bx * sin}.
+ * This class is not thread-safe.
+ */
+public final class RadarTransform {
+    private double radarX, radarZ;
+    private double cos = 1, sin = 0;
+
+    /**
+     * Sets the position and heading of the radar for the blips that follow.
+     *
+     * @param radarX     the X position of the radar
+     * @param radarZ     the Z position of the radar
+     * @param radarAngle the heading of the radar in degrees
+     */
+    public void set(double radarX, double radarZ, double radarAngle) {
+        double radians = Math.toRadians(radarAngle);
+        this.radarX = radarX;
+        this.radarZ = radarZ;
+        this.cos = Math.cos(radians);
+        this.sin = Math.sin(radians);
+    }
+
+    /**
+     * Returns the absolute X coordinate of a blip.
+     */
+    public double toWorldX(double x, double z) {
+        return radarX + x * cos + z * sin;
+    }
+
+    /**
+     * Returns the absolute Z coordinate of a blip.
+     */
+    public double toWorldZ(double x, double z) {
+        return radarZ + z * cos - x * sin;
+    }
+
+    /**
+     * Transforms the first {@code count} blips into absolute coordinates.
+     *
+     * @param xs      the X coordinates relative to the radar
+     * @param zs      the Z coordinates relative to the radar
+     * @param count   the number of blips
+     * @param worldXs receives the absolute X coordinates, at least {@code count} long
+     * @param worldZs receives the absolute Z coordinates, at least {@code count} long
+     */
+    public void transform(double[] xs, double[] zs, int count, double[] worldXs, double[] worldZs) {
+        double originX = radarX, originZ = radarZ, c = cos, s = sin;
+        for (int i = 0; i < count; i++) {
+            double x = xs[i];
+            double z = zs[i];
+            worldXs[i] = originX + x * c + z * s;
+            worldZs[i] = originZ + z * c - x * s;
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package nl.saxion.ptbc.pilot;
 
+import javafx.animation.AnimationTimer;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
-import javafx.scene.shape.Circle;
 import nl.saxion.ptbc.classes.RadarPoint;
 
 import java.util.List;
@@ -12,15 +14,49 @@ import java.util.List;
  * <p>
  * It displays a central dot representing the frog and red dots for each detected radar point (obstacle),
  * relative to the frog's position and direction.
+ * <p>
+ * Everything is painted onto a single {@link Canvas}. New radar data only marks the view as dirty,
+ * and an {@link AnimationTimer} repaints it at most once per JavaFX pulse, so a sweep with many blips
+ * neither floods the JavaFX queue nor creates a node per point.
  */
 public class RadarView extends Pane {
     private final double scale = 1.0;
+    private final Canvas canvas = new Canvas();
+    private final RadarSystem radarSystem;
+    private volatile boolean dirty = false;
+
+    private final AnimationTimer redrawTimer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            if (dirty) {
+                dirty = false;
+                draw(radarSystem.getFilteredPoints());
+            }
+        }
+    };
 
     /**
      * Constructs a {@code RadarView} with a fixed preferred size of 300x300 pixels.
+     * Must be created on the JavaFX Application Thread.
+     *
+     * @param radarSystem the radar data that is drawn whenever the view is marked dirty
      */
-    public RadarView() {
+    public RadarView(RadarSystem radarSystem) {
+        this.radarSystem = radarSystem;
         this.setPrefSize(300, 300);
+        canvas.widthProperty().bind(widthProperty());
+        canvas.heightProperty().bind(heightProperty());
+        canvas.widthProperty().addListener((observable, oldValue, newValue) -> requestRedraw());
+        canvas.heightProperty().addListener((observable, oldValue, newValue) -> requestRedraw());
+        getChildren().add(canvas);
+        redrawTimer.start();
+    }
+
+    /**
+     * Marks the radar data as changed. Safe to call from any thread; the view is repainted on the next pulse.
+     */
+    public void requestRedraw() {
+        dirty = true;
     }
 
     /**
@@ -29,18 +65,22 @@ public class RadarView extends Pane {
      * The center of the pane represents the frog. Obstacles are drawn as red circles,
      * with positions determined by their relative coordinates. Positive Z-values appear
      * below the center, and positive X-values appear to the right.
+     * <p>
+     * Must be called on the JavaFX Application Thread.
      *
      * @param points a list of {@link RadarPoint} objects representing detected obstacles
      */
     public void draw(List<RadarPoint> points) {
-        getChildren().clear();
+        GraphicsContext graphics = canvas.getGraphicsContext2D();
+        graphics.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
 
         double centerX = getPrefWidth() / 2;
         double centerZ = getPrefHeight() / 2;
 
-        Circle frogDot = new Circle(centerX, centerZ, 5, Color.YELLOW);
-        getChildren().add(frogDot);
+        graphics.setFill(Color.YELLOW);
+        graphics.fillOval(centerX - 5, centerZ - 5, 10, 10);
 
+        graphics.setFill(Color.RED);
         for (RadarPoint point : points) {
 
             double relX = point.getRelativeX();
@@ -49,8 +89,7 @@ public class RadarView extends Pane {
             double x = centerX + relX * scale;
             double z = centerZ - relZ * scale;
 
-            Circle obstacle = new Circle(x, z, 3, Color.RED);
-            getChildren().add(obstacle);
+            graphics.fillOval(x - 3, z - 3, 6, 6);
         }
     }
 }
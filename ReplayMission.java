@@ -1,52 +1,84 @@
 package nl.saxion.ptbc.missionLog;
 
-import java.sql.*;
+import nl.saxion.ptbc.database.Database;
 
-public class ReplayMission {
-    private static final String DB_URL = "jdbc:sqlite:sasa.db";
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
+public class ReplayMission {
 
     /**
-     * The {@code ReplayMission} class is responsible for retrieving the most recently sent
-     * mission command from the sasa database.
+     * The {@code ReplayMission} class is responsible for retrieving the mission that was most
+     * recently sent from ground control from the sasa database.
      * <p>
      * This class is used to support the "Replay Mission" functionality in the PilotApp by
-     * querying the {@code sent_mission} table and returning the latest command that was sent
-     * from ground control.
+     * querying the {@code sent_mission} table and loading every command of the mission that
+     * entry belongs to, so the whole mission can be replayed with its original timing.
+     *
+     * @return the latest sent mission, or {@code null} if none was found
      */
-    public static String replayLatestCommand() {
-        String latestCommand = getLatestCommandFromDB();
+    public static MissionSession loadLatestSentMission() {
+        MissionSession session = getLatestMissionFromDB();
 
-        if (latestCommand == null) {
+        if (session == null) {
             System.out.println("No mission received from ground control");
-            return "";
         }
 
-        return latestCommand;
+        return session;
     }
 
     /**
-     * Retrieves the latest mission command from the database.
+     * Retrieves the latest sent mission from the database in a single query.
      * <p>
-     * This method is typically called when the user presses the "Replay Mission" button.
-     * If no command is found, it prints a message and returns an empty string.
+     * The latest row of {@code sent_mission} is joined with all commands of its mission, ordered by
+     * their offset. An entry that was logged before missions existed has no mission; it is replayed
+     * as a mission of that single command.
      *
-     * @return the latest command string from the mission log, or an empty string if none found
+     * @return the mission, or {@code null} if nothing was sent or it could not be read
      */
+    private static MissionSession getLatestMissionFromDB() {
+        String sql = "SELECT s.command AS sent_command, s.mission_id, m.command, m.offset_ms "
+                + "FROM (SELECT command, mission_id FROM sent_mission ORDER BY id DESC LIMIT 1) s "
+                + "LEFT JOIN mission_logs m ON m.mission_id = s.mission_id "
+                + "ORDER BY m.offset_ms, m.id";
+
+        try {
+            return Database.get().read(session -> {
+                List<String> commands = new ArrayList<>();
+                List<Long> offsets = new ArrayList<>();
+                int missionId = 0;
+                String sentCommand = null;
 
-    private static String getLatestCommandFromDB() {
-        String sql = "SELECT command FROM sent_mission ORDER BY id DESC LIMIT 1";
+                try (ResultSet rs = session.prepare(sql).executeQuery()) {
+                    while (rs.next()) {
+                        sentCommand = rs.getString("sent_command");
+                        missionId = rs.getInt("mission_id");
+                        String command = rs.getString("command");
+                        if (command != null) {
+                            commands.add(command);
+                            offsets.add(rs.getLong("offset_ms"));
+                        }
+                    }
+                }
 
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+                if (sentCommand == null) {
+                    return null;
+                }
+                if (commands.isEmpty()) {
+                    return new MissionSession(missionId, new String[]{sentCommand}, new long[]{0});
+                }
 
-            if (rs.next()) {
-                return rs.getString("command");
-            }
+                long[] offsetsMillis = new long[offsets.size()];
+                for (int i = 0; i < offsetsMillis.length; i++) {
+                    offsetsMillis[i] = offsets.get(i);
+                }
+                return new MissionSession(missionId, commands.toArray(new String[0]), offsetsMillis);
+            });
 
         } catch (SQLException e) {
-            System.err.println("Fout bij ophalen van laatste command: " + e.getMessage());
+            System.err.println("Fout bij ophalen van laatste missie: " + e.getMessage());
         }
 
         return null;
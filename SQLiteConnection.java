@@ -1,19 +1,17 @@
 package nl.saxion.ptbc.database;
 
-import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 public class SQLiteConnection {
     public static void main(String[] args) {
-        String url = "jdbc:sqlite:sasa.db"; // This will create the file in your project root
-
-        try (Connection conn = DriverManager.getConnection(url)) {
-            if (conn != null) {
-                System.out.println("Connected to the database.");
-            }
+        // Opens sasa.db in your project root and creates it if needed
+        try {
+            Database.get();
+            System.out.println("Connected to the database.");
         } catch (SQLException e) {
             System.out.println(e.getMessage());
+        } finally {
+            Database.shutdown();
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,190 @@
+package nl.saxion.ptbc.frog;
+
+import nl.saxion.ptbc.classes.Task;
+import nl.saxion.ptbc.classes.Tasks;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * A stand-in for the SaSa satellite that TheFrog normally provides, for running without TheFrog.exe.
+ * <p>
+ * Clients such as the {@code SaSaCommunicator} connect over TCP and send one message per line,
+ * starting with their name, e.g. {@code PILOT DRIVE 0.4 5.00 1.0}. Every line is passed on unchanged
+ * to all clients, the sender included, and to the local listeners in this JVM.
+ * <p>
+ * Every client has its own sending task with a bounded queue, so a slow client cannot hold up the
+ * others. When the queue of a client is full, messages for that client are dropped and counted.
+ */
+public class SaSaServer implements AutoCloseable {
+    private static final int CLIENT_QUEUE_CAPACITY = 65_536;
+
+    private final ServerSocket serverSocket;
+    private final List<Client> clients = new CopyOnWriteArrayList<>();
+    private final List<Consumer<String>> localListeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong messages = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean closing = false;
+
+    /**
+     * Starts listening on {@code localhost}.
+     *
+     * @param port the port, {@code SaSaCommunicator.DEFAULT_PORT} for the Pilot and Ground Control
+     * @throws IOException if the port cannot be opened
+     */
+    public SaSaServer(int port) throws IOException {
+        serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        Tasks.start("SaSaServer", this::accept);
+        System.out.println("SaSa server listening on port " + serverSocket.getLocalPort());
+    }
+
+    /**
+     * Adds a listener in this JVM that gets every line, like a connected client.
+     */
+    public void addLocalListener(Consumer<String> listener) {
+        localListeners.add(listener);
+    }
+
+    /**
+     * Sends a line to all clients and local listeners.
+     *
+     * @param line the complete line, starting with the name of the sender
+     */
+    public void broadcast(String line) {
+        messages.incrementAndGet();
+        for (Client client : clients) {
+            if (!client.queue.offer(line)) {
+                dropped.incrementAndGet();
+            }
+        }
+        for (Consumer<String> listener : localListeners) {
+            listener.accept(line);
+        }
+    }
+
+    //Getters
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public int getClientCount() {
+        return clients.size();
+    }
+
+    public long getMessageCount() {
+        return messages.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Disconnects all clients and stops listening.
+     */
+    @Override
+    public void close() {
+        closing = true;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            System.err.println("Error closing the SaSa server: " + e.getMessage());
+        }
+        for (Client client : clients) {
+            client.close();
+        }
+    }
+
+    private void accept() {
+        while (!closing) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                Client client = new Client(socket);
+                clients.add(client);
+                client.start();
+            } catch (IOException e) {
+                if (!closing) {
+                    System.err.println("SaSa server stopped accepting clients: " + e.getMessage());
+                }
+                return;
+            }
+        }
+    }
+
+    // One connected client, with a task for reading and one for sending
+    private final class Client {
+        private final Socket socket;
+        private final BlockingQueue<String> queue = new ArrayBlockingQueue<>(CLIENT_QUEUE_CAPACITY);
+        private volatile Task writer;
+
+        Client(Socket socket) {
+            this.socket = socket;
+        }
+
+        void start() {
+            String address = socket.getRemoteSocketAddress().toString();
+            writer = Tasks.start("SaSaServer sending " + address, this::write);
+            Tasks.start("SaSaServer reading " + address, this::read);
+        }
+
+        void close() {
+            clients.remove(this);
+            writer.cancel();
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // the client is gone anyway
+            }
+        }
+
+        private void read() {
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    broadcast(line);
+                }
+            } catch (IOException e) {
+                // connection lost, handled below
+            }
+            close();
+        }
+
+        // Writes everything that is queued before flushing, so bursts such as a radar sweep go out in a few packets
+        private void write() {
+            List<String> batch = new ArrayList<>();
+            try (BufferedWriter out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+                while (!closing) {
+                    String first = queue.poll(1, TimeUnit.SECONDS);
+                    if (first == null) continue;
+                    batch.add(first);
+                    queue.drainTo(batch);
+                    for (String line : batch) {
+                        out.write(line);
+                        out.write('\n');
+                    }
+                    out.flush();
+                    batch.clear();
+                }
+            } catch (IOException | InterruptedException e) {
+                // connection lost or server closed
+            }
+            close();
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package nl.saxion.ptbc.frog;
+
+import java.util.function.Consumer;
+
+/**
+ * A headless Frog that speaks the same text protocol as TheFrog.
+ * <p>
+ * It understands these messages from any sender:
+ * <ul>
+ *     <li>{@code DRIVE <power> <steering> <duration>}: power from -1 to 1, steering in degrees,
+ *     duration in seconds; a duration of 0 drives until the next DRIVE command.</li>
+ *     <li>{@code RADAR ON|OFF} and {@code STATUS ON|OFF}.</li>
+ * </ul>
+ * and sends, when switched on:
+ * <ul>
+ *     <li>{@code FROG STATUS <x> <y> <z> <angle> <energy> <solar>}</li>
+ *     <li>{@code FROG RADAR START <x> <y> <z> <angle>} followed by one
+ *     {@code FROG RADAR BLIP <x> <y> <z>} per ray that hits a rock, relative to the radar in the
+ *     same way {@code PilotApp.convertToAbsolute} turns them back into absolute positions.</li>
+ * </ul>
+ * The Frog drives like a car with a wheelbase of {@code WHEELBASE} meters and stops when it would
+ * drive into a rock. The {@link FrogSimulator} calls {@link #step}, {@link #sendStatus()} and
+ * {@link #sendRadarSweep()} at the configured rates; all methods must be called from one thread.
+ */
+public class SimulatedFrog {
+    private static final double MAX_SPEED = 10.0;
+    private static final double WHEELBASE = 2.0;
+    private static final double MAX_STEERING = 45.0;
+    private static final double RADAR_HEIGHT = 0.25;
+    private static final double ENERGY_PER_METER = 0.0002;
+    private static final double SOLAR_CHARGE_PER_SECOND = 0.0005;
+    private static final String BLIP_PREFIX = "RADAR BLIP";
+
+    private final ObstacleField field;
+    private final Consumer<String> out;
+    private final double radarRange;
+    private final double[] rayDistances;
+
+    private double x, z, angle;
+    private double energy = 1.0;
+    private double solar = 0.5;
+    private double power, steering;
+    // seconds the current DRIVE command lasts, infinite for a duration of 0
+    private double driveTimeLeft;
+    private boolean statusOn, radarOn;
+
+    /**
+     * Creates a Frog at the base.
+     *
+     * @param field      the rocks the Frog drives between
+     * @param out        receives every message of the Frog, without the {@code FROG} prefix
+     * @param radarRays  the number of rays of one radar sweep
+     * @param radarRange the range of the radar in meters
+     */
+    public SimulatedFrog(ObstacleField field, Consumer<String> out, int radarRays, double radarRange) {
+        this.field = field;
+        this.out = out;
+        this.radarRange = radarRange;
+        this.rayDistances = new double[radarRays];
+    }
+
+    /**
+     * Handles one line of the SaSa protocol, e.g. {@code PILOT DRIVE 0.4 5.00 1.0}.
+     */
+    public void handle(String line) {
+        String[] parts = line.trim().split("\\s+");
+        if (parts.length < 3 || parts[0].equals("FROG")) {
+            return;
+        }
+        try {
+            switch (parts[1]) {
+                case "DRIVE" -> {
+                    if (parts.length < 5) return;
+                    power = Math.max(-1, Math.min(1, Double.parseDouble(parts[2])));
+                    steering = Math.max(-MAX_STEERING, Math.min(MAX_STEERING, Double.parseDouble(parts[3])));
+                    double duration = Double.parseDouble(parts[4]);
+                    driveTimeLeft = duration > 0 ? duration : Double.POSITIVE_INFINITY;
+                }
+                case "RADAR" -> radarOn = parts[2].equals("ON");
+                case "STATUS" -> statusOn = parts[2].equals("ON");
+                default -> {
+                }
+            }
+        } catch (NumberFormatException e) {
+            // TheFrog ignores commands it does not understand as well
+        }
+    }
+
+    /**
+     * Moves the Frog {@code seconds} of simulated time further.
+     */
+    public void step(double seconds) {
+        if (driveTimeLeft <= 0 || power == 0 || energy <= 0) {
+            charge(seconds);
+            return;
+        }
+        double time = Math.min(seconds, driveTimeLeft);
+        driveTimeLeft -= time;
+
+        double speed = power * MAX_SPEED;
+        double heading = Math.toRadians(angle);
+        double newX = x + Math.sin(heading) * speed * time;
+        double newZ = z + Math.cos(heading) * speed * time;
+        if (!field.isBlocked(newX, newZ)) {
+            energy = Math.max(0, energy - Math.abs(speed * time) * ENERGY_PER_METER);
+            x = newX;
+            z = newZ;
+            double turnRate = Math.toDegrees(speed / WHEELBASE * Math.tan(Math.toRadians(steering)));
+            angle = normalizeAngle(angle + turnRate * time);
+        }
+        charge(seconds);
+    }
+
+    /**
+     * Sends a {@code FROG STATUS} message if the status is switched on.
+     */
+    public void sendStatus() {
+        if (statusOn) {
+            StringBuilder status = new StringBuilder(64).append("STATUS");
+            appendNumber(status, x);
+            appendNumber(status, 0.0);
+            appendNumber(status, z);
+            appendNumber(status, angle);
+            appendNumber(status, energy);
+            appendNumber(status, solar);
+            out.accept(status.toString());
+        }
+    }
+
+    /**
+     * Sends one radar sweep if the radar is switched on.
+     */
+    public void sendRadarSweep() {
+        if (!radarOn) {
+            return;
+        }
+        StringBuilder start = new StringBuilder(48).append("RADAR START");
+        appendNumber(start, x);
+        appendNumber(start, RADAR_HEIGHT);
+        appendNumber(start, z);
+        appendNumber(start, angle);
+        out.accept(start.toString());
+        field.scan(x, z, angle, radarRange, rayDistances);
+
+        double cos = Math.cos(Math.toRadians(angle));
+        double sin = Math.sin(Math.toRadians(angle));
+        double step = 360.0 / rayDistances.length;
+        StringBuilder blip = new StringBuilder(48).append(BLIP_PREFIX);
+        for (int i = 0; i < rayDistances.length; i++) {
+            double distance = rayDistances[i];
+            if (distance == Double.POSITIVE_INFINITY) continue;
+            double ray = Math.toRadians(angle + i * step);
+            double dx = Math.sin(ray) * distance;
+            double dz = Math.cos(ray) * distance;
+            // inverse of PilotApp.convertToAbsolute
+            double relativeX = dx * cos - dz * sin;
+            double relativeZ = dx * sin + dz * cos;
+            blip.setLength(BLIP_PREFIX.length());
+            appendNumber(blip, relativeX);
+            appendNumber(blip, RADAR_HEIGHT);
+            appendNumber(blip, relativeZ);
+            out.accept(blip.toString());
+        }
+    }
+
+    //Getters
+    public double getX() {
+        return x;
+    }
+
+    public double getZ() {
+        return z;
+    }
+
+    public double getAngle() {
+        return angle;
+    }
+
+    public double getEnergy() {
+        return energy;
+    }
+
+    private void charge(double seconds) {
+        energy = Math.min(1, energy + solar * SOLAR_CHARGE_PER_SECOND * seconds);
+    }
+
+    // Appends a space and the value with two decimals, like TheFrog sends its numbers, without String.format
+    private static void appendNumber(StringBuilder line, double value) {
+        long hundredths = Math.round(value * 100);
+        line.append(' ');
+        if (hundredths < 0) {
+            line.append('-');
+            hundredths = -hundredths;
+        }
+        long fraction = hundredths % 100;
+        line.append(hundredths / 100).append('.');
+        if (fraction < 10) line.append('0');
+        line.append(fraction);
+    }
+
+    private static double normalizeAngle(double angle) {
+        while (angle > 180) angle -= 360;
+        while (angle < -180) angle += 360;
+        return angle;
+    }
+}
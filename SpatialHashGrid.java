@@ -0,0 +1,372 @@
+package nl.saxion.ptbc.classes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * The {@code SpatialHashGrid} indexes obstacles by their absolute (x, z) position.
+ * <p>
+ * The world is divided into square cells. Each cell is stored in an open addressing hash table
+ * under its cell coordinates packed into a single {@code long}, and keeps the coordinates of its
+ * obstacles in primitive arrays so that radius and rectangle queries only touch the cells that
+ * overlap the query area.
+ * <p>
+ * Duplicates are detected on positions quantized to 0.01 (the same resolution as the old
+ * {@code "%.2f:%.2f"} keys) in a second primitive hash set, so no strings are formatted.
+ * <p>
+ * This class is not thread-safe; callers that share a grid between threads must synchronize.
+ */
+public class SpatialHashGrid {
+    private static final double QUANTUM = 0.01;
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int INITIAL_CELL_CAPACITY = 4;
+
+    private final double cellSize;
+
+    // cell table: packed cell coordinates -> cell
+    private long[] cellKeys;
+    private Cell[] cells;
+    private int cellCount;
+
+    // set of packed quantized obstacle positions
+    private long[] pointKeys;
+    private int pointCount;
+
+    /**
+     * Creates an empty grid.
+     *
+     * @param cellSize the width and height of a cell in meters
+     */
+    public SpatialHashGrid(double cellSize) {
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("Cell size must be positive: " + cellSize);
+        }
+        this.cellSize = cellSize;
+        this.cellKeys = newTable(INITIAL_CAPACITY);
+        this.cells = new Cell[INITIAL_CAPACITY];
+        this.pointKeys = newTable(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Adds an obstacle unless an obstacle with the same quantized position is already present.
+     *
+     * @param obstacle the obstacle to add, with an absolute location
+     * @return {@code true} if the obstacle was new and has been added
+     */
+    public boolean add(Obstacle obstacle) {
+        double x = obstacle.getLocation().getX();
+        double z = obstacle.getLocation().getZ();
+
+        if (!addPoint(pack(quantize(x / QUANTUM), quantize(z / QUANTUM)))) {
+            return false;
+        }
+
+        long cellKey = pack(cellIndex(x), cellIndex(z));
+        Cell cell = getCell(cellKey);
+        if (cell == null) {
+            cell = new Cell();
+            putCell(cellKey, cell);
+        }
+        cell.add(x, z, obstacle);
+        return true;
+    }
+
+    /**
+     * Removes the obstacle with the same quantized position as (x, z).
+     *
+     * @return the removed obstacle, or {@code null} if there was none
+     */
+    public Obstacle remove(double x, double z) {
+        int quantizedX = quantize(x / QUANTUM);
+        int quantizedZ = quantize(z / QUANTUM);
+        if (!removePoint(pack(quantizedX, quantizedZ))) {
+            return null;
+        }
+        // the stored obstacle quantizes to the same position, so it is less than QUANTUM away from (x, z),
+        // but it may lie in the cell next to the one of (x, z)
+        for (int cx = cellIndex(x - QUANTUM); cx <= cellIndex(x + QUANTUM); cx++) {
+            for (int cz = cellIndex(z - QUANTUM); cz <= cellIndex(z + QUANTUM); cz++) {
+                Cell cell = getCell(pack(cx, cz));
+                Obstacle removed = cell == null ? null : cell.remove(quantizedX, quantizedZ);
+                if (removed != null) {
+                    return removed;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether an obstacle with the same quantized position as (x, z) is present.
+     */
+    public boolean contains(double x, double z) {
+        long key = pack(quantize(x / QUANTUM), quantize(z / QUANTUM));
+        int mask = pointKeys.length - 1;
+        for (int i = mix(key) & mask; pointKeys[i] != EMPTY; i = (i + 1) & mask) {
+            if (pointKeys[i] == key) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Visits every obstacle within {@code radius} meters of (x, z).
+     *
+     * @param visitor called once for every obstacle in range
+     */
+    public void forEachWithin(double x, double z, double radius, Consumer<Obstacle> visitor) {
+        double radiusSquared = radius * radius;
+        int minCellX = cellIndex(x - radius);
+        int maxCellX = cellIndex(x + radius);
+        int minCellZ = cellIndex(z - radius);
+        int maxCellZ = cellIndex(z + radius);
+
+        if (coversMoreCellsThanStored(minCellX, maxCellX, minCellZ, maxCellZ)) {
+            for (Cell cell : cells) {
+                if (cell != null) cell.visitWithin(x, z, radiusSquared, visitor);
+            }
+            return;
+        }
+
+        for (int cx = minCellX; cx <= maxCellX; cx++) {
+            for (int cz = minCellZ; cz <= maxCellZ; cz++) {
+                Cell cell = getCell(pack(cx, cz));
+                if (cell != null) cell.visitWithin(x, z, radiusSquared, visitor);
+            }
+        }
+    }
+
+    /**
+     * Visits every obstacle inside the rectangle [minX, maxX] x [minZ, maxZ].
+     *
+     * @param visitor called once for every obstacle inside the rectangle
+     */
+    public void forEachInRectangle(double minX, double minZ, double maxX, double maxZ, Consumer<Obstacle> visitor) {
+        int minCellX = cellIndex(minX);
+        int maxCellX = cellIndex(maxX);
+        int minCellZ = cellIndex(minZ);
+        int maxCellZ = cellIndex(maxZ);
+
+        if (coversMoreCellsThanStored(minCellX, maxCellX, minCellZ, maxCellZ)) {
+            for (Cell cell : cells) {
+                if (cell != null) cell.visitInRectangle(minX, minZ, maxX, maxZ, visitor);
+            }
+            return;
+        }
+
+        for (int cx = minCellX; cx <= maxCellX; cx++) {
+            for (int cz = minCellZ; cz <= maxCellZ; cz++) {
+                Cell cell = getCell(pack(cx, cz));
+                if (cell != null) cell.visitInRectangle(minX, minZ, maxX, maxZ, visitor);
+            }
+        }
+    }
+
+    /**
+     * Returns all obstacles within {@code radius} meters of (x, z).
+     */
+    public List<Obstacle> findWithin(double x, double z, double radius) {
+        List<Obstacle> result = new ArrayList<>();
+        forEachWithin(x, z, radius, result::add);
+        return result;
+    }
+
+    /**
+     * Returns all obstacles inside the rectangle [minX, maxX] x [minZ, maxZ].
+     */
+    public List<Obstacle> findInRectangle(double minX, double minZ, double maxX, double maxZ) {
+        List<Obstacle> result = new ArrayList<>();
+        forEachInRectangle(minX, minZ, maxX, maxZ, result::add);
+        return result;
+    }
+
+    /**
+     * Removes all obstacles from the grid.
+     */
+    public void clear() {
+        cellKeys = newTable(INITIAL_CAPACITY);
+        cells = new Cell[INITIAL_CAPACITY];
+        cellCount = 0;
+        pointKeys = newTable(INITIAL_CAPACITY);
+        pointCount = 0;
+    }
+
+    //Getters
+    public int size() {
+        return pointCount;
+    }
+
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    private boolean coversMoreCellsThanStored(int minCellX, int maxCellX, int minCellZ, int maxCellZ) {
+        long width = (long) maxCellX - minCellX + 1;
+        long height = (long) maxCellZ - minCellZ + 1;
+        return width * height > cellCount;
+    }
+
+    private int cellIndex(double coordinate) {
+        return quantize(Math.floor(coordinate / cellSize));
+    }
+
+    // Rounds to an int, keeping Integer.MIN_VALUE free so a packed key never equals EMPTY
+    private static int quantize(double value) {
+        long rounded = Math.round(value);
+        if (rounded > Integer.MAX_VALUE) return Integer.MAX_VALUE;
+        if (rounded < -Integer.MAX_VALUE) return -Integer.MAX_VALUE;
+        return (int) rounded;
+    }
+
+    private static long pack(int x, int z) {
+        return ((long) x << 32) | (z & 0xFFFFFFFFL);
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static long[] newTable(int capacity) {
+        long[] table = new long[capacity];
+        Arrays.fill(table, EMPTY);
+        return table;
+    }
+
+    private boolean addPoint(long key) {
+        int mask = pointKeys.length - 1;
+        int i = mix(key) & mask;
+        while (pointKeys[i] != EMPTY) {
+            if (pointKeys[i] == key) return false;
+            i = (i + 1) & mask;
+        }
+        pointKeys[i] = key;
+        if (++pointCount * 2 > pointKeys.length) {
+            growPoints();
+        }
+        return true;
+    }
+
+    // Removes a key and shifts the keys after it back, so no probe sequence is broken
+    private boolean removePoint(long key) {
+        int mask = pointKeys.length - 1;
+        int i = mix(key) & mask;
+        while (pointKeys[i] != key) {
+            if (pointKeys[i] == EMPTY) return false;
+            i = (i + 1) & mask;
+        }
+        int hole = i;
+        for (int j = (hole + 1) & mask; pointKeys[j] != EMPTY; j = (j + 1) & mask) {
+            int home = mix(pointKeys[j]) & mask;
+            // move the key into the hole if the hole lies between its home slot and its slot
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                pointKeys[hole] = pointKeys[j];
+                hole = j;
+            }
+        }
+        pointKeys[hole] = EMPTY;
+        pointCount--;
+        return true;
+    }
+
+    private void growPoints() {
+        long[] old = pointKeys;
+        pointKeys = newTable(old.length * 2);
+        int mask = pointKeys.length - 1;
+        for (long key : old) {
+            if (key == EMPTY) continue;
+            int i = mix(key) & mask;
+            while (pointKeys[i] != EMPTY) i = (i + 1) & mask;
+            pointKeys[i] = key;
+        }
+    }
+
+    private Cell getCell(long key) {
+        int mask = cellKeys.length - 1;
+        for (int i = mix(key) & mask; cellKeys[i] != EMPTY; i = (i + 1) & mask) {
+            if (cellKeys[i] == key) return cells[i];
+        }
+        return null;
+    }
+
+    private void putCell(long key, Cell cell) {
+        int mask = cellKeys.length - 1;
+        int i = mix(key) & mask;
+        while (cellKeys[i] != EMPTY) i = (i + 1) & mask;
+        cellKeys[i] = key;
+        cells[i] = cell;
+        if (++cellCount * 2 > cellKeys.length) {
+            growCells();
+        }
+    }
+
+    private void growCells() {
+        long[] oldKeys = cellKeys;
+        Cell[] oldCells = cells;
+        cellKeys = newTable(oldKeys.length * 2);
+        cells = new Cell[oldKeys.length * 2];
+        int mask = cellKeys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] == EMPTY) continue;
+            int i = mix(oldKeys[j]) & mask;
+            while (cellKeys[i] != EMPTY) i = (i + 1) & mask;
+            cellKeys[i] = oldKeys[j];
+            cells[i] = oldCells[j];
+        }
+    }
+
+    /**
+     * The obstacles of one cell, with their coordinates in parallel primitive arrays.
+     */
+    private static final class Cell {
+        private double[] xs = new double[INITIAL_CELL_CAPACITY];
+        private double[] zs = new double[INITIAL_CELL_CAPACITY];
+        private Obstacle[] obstacles = new Obstacle[INITIAL_CELL_CAPACITY];
+        private int size;
+
+        void add(double x, double z, Obstacle obstacle) {
+            if (size == xs.length) {
+                int capacity = size * 2;
+                xs = Arrays.copyOf(xs, capacity);
+                zs = Arrays.copyOf(zs, capacity);
+                obstacles = Arrays.copyOf(obstacles, capacity);
+            }
+            xs[size] = x;
+            zs[size] = z;
+            obstacles[size] = obstacle;
+            size++;
+        }
+
+        // Removes the obstacle at a quantized position by moving the last one into its place
+        Obstacle remove(int quantizedX, int quantizedZ) {
+            for (int i = 0; i < size; i++) {
+                if (quantize(xs[i] / QUANTUM) == quantizedX && quantize(zs[i] / QUANTUM) == quantizedZ) {
+                    Obstacle removed = obstacles[i];
+                    size--;
+                    xs[i] = xs[size];
+                    zs[i] = zs[size];
+                    obstacles[i] = obstacles[size];
+                    obstacles[size] = null;
+                    return removed;
+                }
+            }
+            return null;
+        }
+
+        void visitWithin(double x, double z, double radiusSquared, Consumer<Obstacle> visitor) {
+            for (int i = 0; i < size; i++) {
+                double dx = xs[i] - x;
+                double dz = zs[i] - z;
+                if (dx * dx + dz * dz <= radiusSquared) visitor.accept(obstacles[i]);
+            }
+        }
+
+        void visitInRectangle(double minX, double minZ, double maxX, double maxZ, Consumer<Obstacle> visitor) {
+            for (int i = 0; i < size; i++) {
+                if (xs[i] >= minX && xs[i] <= maxX && zs[i] >= minZ && zs[i] <= maxZ) visitor.accept(obstacles[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package nl.saxion.ptbc.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+
+/**
+ * A long-lived connection of the {@link Database} together with its prepared statements.
+ * <p>
+ * Statements returned by {@link #prepare(String)} are cached per SQL string and reused by later work
+ * on the same connection. They are owned by the session: close the {@code ResultSet}s you open, but
+ * never close the statements themselves.
+ * <p>
+ * A session is only ever used by one thread at a time; the {@link Database} hands it out exclusively.
+ */
+public class SqlSession {
+    private final Connection connection;
+    private final HashMap<String, PreparedStatement> statements = new HashMap<>();
+
+    SqlSession(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Returns the cached prepared statement for the SQL, preparing it on first use.
+     * Parameters and batches left over from earlier use are cleared.
+     *
+     * @param sql the SQL statement
+     * @return a prepared statement that must not be closed by the caller
+     * @throws SQLException if the statement cannot be prepared
+     */
+    public PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement statement = statements.get(sql);
+        if (statement == null || statement.isClosed()) {
+            statement = connection.prepareStatement(sql);
+            statements.put(sql, statement);
+        } else {
+            statement.clearParameters();
+            statement.clearBatch();
+        }
+        return statement;
+    }
+
+    public Connection getConnection() {
+        return connection;
+    }
+
+    void close() {
+        for (PreparedStatement statement : statements.values()) {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                System.err.println("Failed to close statement: " + e.getMessage());
+            }
+        }
+        statements.clear();
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            System.err.println("Failed to close database connection: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package nl.saxion.ptbc.database;
+
+import java.sql.SQLException;
+
+/**
+ * A unit of database work that runs on a connection borrowed from the {@link Database}.
+ *
+ * @param <T> the type of the result
+ */
+@FunctionalInterface
+public interface SqlWork<T> {
+    T execute(SqlSession session) throws SQLException;
+}
@@ -1,8 +1,14 @@
 package nl.saxion.ptbc.frog;
 
+import nl.saxion.ptbc.classes.Tasks;
+
 import java.io.IOException;
 
 public class StartFrogApp {
+    // Set -Dfrog.simulator=true to use the simulated Frog on Windows as well
+    private static final String SIMULATOR_PROPERTY = "frog.simulator";
+
+    private static FrogSimulator simulator;
 
     /**
      * Starts the external Frog application by launching the executable located
@@ -12,10 +18,17 @@ public class StartFrogApp {
      * process. If the executable cannot be started due to an IOException, an error
      * message is printed to the standard error output.
      * <p>
+     * TheFrog only runs on Windows. On other systems, or with {@code -Dfrog.simulator=true},
+     * a {@link FrogSimulator} is started in this JVM instead.
+     * <p>
      * Note: The path to the executable is relative and should be valid at runtime.
      */
     public static void startFrogApp() {
-        new Thread(() -> {
+        if (useSimulator()) {
+            startSimulator();
+            return;
+        }
+        Tasks.start("FrogAppLauncher", () -> {
             try {
                 String frogApp = "resources/frog/winfrog/TheFrog.exe";
                 ProcessBuilder frogProcess = new ProcessBuilder(frogApp);
@@ -24,6 +37,22 @@ public class StartFrogApp {
             } catch (IOException e) {
                 System.err.println("Error starting FrogApp: " + e.getMessage());
             }
-        }).start();
+        });
+    }
+
+    private static boolean useSimulator() {
+        return Boolean.getBoolean(SIMULATOR_PROPERTY)
+                || !System.getProperty("os.name", "").toLowerCase().startsWith("windows");
+    }
+
+    private static synchronized void startSimulator() {
+        if (simulator != null) {
+            return;
+        }
+        try {
+            simulator = new FrogSimulator(FrogSimulator.Settings.DEFAULT);
+        } catch (IOException e) {
+            System.err.println("Error starting the simulated Frog: " + e.getMessage());
+        }
     }
 }
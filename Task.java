@@ -0,0 +1,84 @@
+package nl.saxion.ptbc.classes;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A piece of background work started with {@link Tasks#start}, running on its own virtual thread.
+ * <p>
+ * Cancelling a task interrupts its thread; the work is expected to stop soon after, but may still be
+ * running when {@link #cancel()} returns. Use {@link #await} to wait until it has really stopped.
+ */
+public final class Task {
+    private final String name;
+    private final CountDownLatch finished = new CountDownLatch(1);
+    // set by whoever comes first: the thread that runs the task, or a cancel before it ran
+    private final AtomicBoolean claimed = new AtomicBoolean();
+    private volatile Future<?> future;
+    private volatile boolean cancelled = false;
+
+    Task(String name) {
+        this.name = name;
+    }
+
+    void setFuture(Future<?> future) {
+        this.future = future;
+        if (cancelled) {
+            // cancelled while it was being submitted, before there was a future to cancel
+            cancel();
+        }
+    }
+
+    boolean claim() {
+        return claimed.compareAndSet(false, true);
+    }
+
+    void finished() {
+        finished.countDown();
+    }
+
+    /**
+     * Interrupts the task. Does nothing if it already finished.
+     */
+    public void cancel() {
+        cancelled = true;
+        Future<?> current = future;
+        if (current != null && current.cancel(true) && claim()) {
+            // cancelled before it started, the executor will never run it
+            Tasks.finished(this);
+        }
+    }
+
+    /**
+     * Waits until the task has finished, also after it was cancelled.
+     *
+     * @return {@code true} if the task finished within the timeout
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        return finished.await(timeout, unit);
+    }
+
+    /**
+     * Waits until the task has finished, without a timeout.
+     *
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    public void await() throws InterruptedException {
+        finished.await();
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public boolean isRunning() {
+        return finished.getCount() > 0;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
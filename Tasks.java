@@ -0,0 +1,99 @@
+package nl.saxion.ptbc.classes;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The one place where the Pilot starts background work.
+ * <p>
+ * Every {@link Task} runs on its own virtual thread of a shared executor, named after the task so it
+ * can be found in a thread dump. Tasks that throw are reported on {@code System.err} instead of
+ * disappearing silently. All tasks that are still running are known, so {@link #shutdown} can stop
+ * them in an orderly way when the application closes.
+ * <p>
+ * Services that have to flush data when they stop, like the {@link CommandDispatcher}, must be closed
+ * before calling {@link #shutdown}; it only interrupts what is left.
+ */
+public final class Tasks {
+    private static final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private static final Set<Task> running = ConcurrentHashMap.newKeySet();
+
+    private Tasks() {
+    }
+
+    /**
+     * Starts work on a new virtual thread.
+     *
+     * @param name the name of the task and its thread
+     * @param work the work to run
+     * @return the running task
+     * @throws RejectedExecutionException if {@link #shutdown} was already called
+     */
+    public static Task start(String name, Runnable work) {
+        Task task = new Task(name);
+        running.add(task);
+        try {
+            task.setFuture(executor.submit(() -> run(task, work)));
+        } catch (RejectedExecutionException e) {
+            finished(task);
+            throw e;
+        }
+        return task;
+    }
+
+    /**
+     * Interrupts all running tasks, waits for them to finish and stops the executor.
+     *
+     * @param timeout how long to wait for the tasks together
+     * @param unit    the unit of {@code timeout}
+     */
+    public static void shutdown(long timeout, TimeUnit unit) {
+        executor.shutdown();
+        for (Task task : running) {
+            task.cancel();
+        }
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        try {
+            for (Task task : running) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0 || !task.await(left, TimeUnit.NANOSECONDS)) {
+                    System.err.println("Task " + task.getName() + " did not stop in time");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Number of tasks that have not finished yet
+    public static int getRunningCount() {
+        return running.size();
+    }
+
+    static void finished(Task task) {
+        running.remove(task);
+        task.finished();
+    }
+
+    private static void run(Task task, Runnable work) {
+        if (!task.claim()) {
+            return;
+        }
+        Thread.currentThread().setName(task.getName());
+        try {
+            if (task.isCancelled()) {
+                return;
+            }
+            work.run();
+        } catch (Throwable e) {
+            System.err.println("Task " + task.getName() + " failed: " + e);
+            e.printStackTrace();
+        } finally {
+            finished(task);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package nl.saxion.ptbc.benchmark;
+
+import nl.saxion.ptbc.pilot.FrogMessageDecoder;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@link FrogMessageDecoder} with the old {@code String.split} based parsing of
+ * {@code PilotApp.receive}.
+ * <p>
+ * Every invocation parses one radar sweep: a status message, a radar start and {@code blips}
+ * radar blips, which is the message mix the Pilot sees while driving.
+ * <p>
+ * Run with: {@code mvn -P benchmark package && java -jar target/benchmarks.jar FrogMessageDecoder}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrogMessageDecoderBenchmark {
+
+    @Param({"50", "500"})
+    private int blips;
+
+    private String[] messages;
+    private FrogMessageDecoder decoder;
+
+    @Setup
+    public void setUp() {
+        messages = new String[blips + 2];
+        messages[0] = "FROG STATUS 168.53 0.12 -92.36 79.96 0.98 0.00";
+        messages[1] = "FROG RADAR START 168.53 0.12 -92.36 79.96";
+        for (int i = 0; i < blips; i++) {
+            double angle = Math.toRadians(i * 360.0 / blips);
+            double distance = 5 + (i % 40);
+            messages[i + 2] = String.format(Locale.ROOT, "FROG RADAR BLIP %.2f %.2f %.2f",
+                    Math.cos(angle) * distance, 0.25, Math.sin(angle) * distance);
+        }
+        decoder = new FrogMessageDecoder();
+    }
+
+    @Benchmark
+    public void decoder(Blackhole blackhole) {
+        for (String message : messages) {
+            switch (decoder.decode(message)) {
+                case STATUS -> {
+                    FrogMessageDecoder.StatusEvent status = decoder.getStatusEvent();
+                    blackhole.consume(status.getX());
+                    blackhole.consume(status.getZ());
+                    blackhole.consume(status.getAngle());
+                    blackhole.consume(status.getEnergy());
+                }
+                case RADAR_START -> blackhole.consume(decoder.getRadarStartEvent().getAngle());
+                case RADAR_BLIP -> {
+                    blackhole.consume(decoder.getRadarBlipEvent().getX());
+                    blackhole.consume(decoder.getRadarBlipEvent().getZ());
+                }
+                default -> blackhole.consume(message);
+            }
+        }
+    }
+
+    // The parsing that PilotApp.receive used before the decoder was introduced
+    @Benchmark
+    public void splitBaseline(Blackhole blackhole) {
+        for (String message : messages) {
+            String[] parts = message.split(" ", 3);
+            if (parts.length < 3) continue;
+
+            if (message.startsWith("FROG STATUS")) {
+                String[] parts1 = message.split(" ");
+                blackhole.consume(Double.parseDouble(parts1[2]));
+                blackhole.consume(Double.parseDouble(parts1[4]));
+                blackhole.consume(Double.parseDouble(parts1[5]));
+                blackhole.consume(Double.parseDouble(parts1[6]));
+            }
+            if (message.startsWith("FROG RADAR START")) {
+                String[] parts1 = message.split(" ");
+                blackhole.consume(Double.parseDouble(parts1[6]));
+            }
+            if (message.startsWith("FROG RADAR BLIP")) {
+                String[] parts2 = message.split(" ");
+                blackhole.consume(Double.parseDouble(parts2[3]));
+                blackhole.consume(Double.parseDouble(parts2[5]));
+            }
+        }
+    }
+}
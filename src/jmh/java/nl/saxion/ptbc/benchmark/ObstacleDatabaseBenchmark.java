@@ -0,0 +1,83 @@
+package nl.saxion.ptbc.benchmark;
+
+import nl.saxion.ptbc.classes.Location;
+import nl.saxion.ptbc.classes.Obstacle;
+import nl.saxion.ptbc.database.Database;
+import nl.saxion.ptbc.database.ObstacleDatabaseHandler;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures saving the obstacles of one radar sweep with {@link ObstacleDatabaseHandler#saveObstacles}
+ * and loading all stored obstacles with {@link ObstacleDatabaseHandler#loadObstacles()}.
+ * <p>
+ * The benchmark uses its own database in {@code target/benchmark.db}, which is deleted before every
+ * trial. Every invocation of {@code saveObstacles} saves obstacles that are not stored yet, so all
+ * rows are really inserted. {@code loadObstacles} loads {@code storedObstacles} rows.
+ * <p>
+ * Run with: {@code mvn -P benchmark package && java -jar target/benchmarks.jar ObstacleDatabase}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dsasa.db.url=jdbc:sqlite:target/benchmark.db")
+public class ObstacleDatabaseBenchmark {
+    private static final String DB_FILE = "target/benchmark.db";
+
+    @Param({"50", "500", "5000"})
+    private int blips;
+
+    @Param({"10000", "100000"})
+    private int storedObstacles;
+
+    private List<Obstacle> sweep;
+    // moves every saved sweep to a new place, so its obstacles are new
+    private double offset;
+
+    @Setup(Level.Trial)
+    public void createDatabase() {
+        Database.shutdown();
+        for (String suffix : new String[]{"", "-wal", "-shm"}) {
+            new File(DB_FILE + suffix).delete();
+        }
+        new File(DB_FILE).getParentFile().mkdirs();
+
+        List<Obstacle> stored = new ArrayList<>(storedObstacles);
+        for (int i = 0; stored.size() < storedObstacles; i++) {
+            for (Obstacle obstacle : SyntheticSweeps.generate(1000, i).toObstacles()) {
+                Location location = obstacle.getLocation();
+                stored.add(new Obstacle(new Location(location.getX(), location.getZ() + i * 1000)));
+                if (stored.size() == storedObstacles) break;
+            }
+        }
+        ObstacleDatabaseHandler.saveObstacles(stored);
+        sweep = SyntheticSweeps.generate(blips, -1).toObstacles();
+        offset = -1_000_000;
+    }
+
+    @TearDown(Level.Trial)
+    public void closeDatabase() {
+        Database.shutdown();
+    }
+
+    @Benchmark
+    public int saveObstacles() {
+        offset -= 1000;
+        List<Obstacle> moved = new ArrayList<>(sweep.size());
+        for (Obstacle obstacle : sweep) {
+            moved.add(new Obstacle(new Location(obstacle.getLocation().getX() + offset, obstacle.getLocation().getZ())));
+        }
+        return ObstacleDatabaseHandler.saveObstacles(moved);
+    }
+
+    @Benchmark
+    public int loadObstacles() {
+        return ObstacleDatabaseHandler.loadObstacles().size();
+    }
+}
@@ -0,0 +1,78 @@
+package nl.saxion.ptbc.benchmark;
+
+import nl.saxion.ptbc.classes.Map;
+import nl.saxion.ptbc.classes.Obstacle;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link Map#addObstacle(double, double)} for the obstacles of one {@code OBSTACLES} frame,
+ * the way Ground Control adds the obstacles the Pilot sends. The radar path of the Pilot itself is
+ * measured by {@link OccupancyMapBenchmark}.
+ * <ul>
+ *     <li>{@code newObstacles}: every obstacle is new, the map is emptied before every invocation.</li>
+ *     <li>{@code knownObstacles}: every obstacle is a duplicate, e.g. a frame that is received again.</li>
+ * </ul>
+ * <p>
+ * Run with: {@code mvn -P benchmark package && java -jar target/benchmarks.jar ObstacleMap}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ObstacleMapBenchmark {
+    // obstacles the map already knows from earlier frames
+    private static final int KNOWN_FRAMES = 20;
+
+    @Param({"50", "500", "5000"})
+    private int obstacles;
+
+    private double[] xs;
+    private double[] zs;
+    private Map knownMap;
+    private Map emptyMap;
+
+    @Setup(Level.Trial)
+    public void createFrames() {
+        List<Obstacle> frame = SyntheticSweeps.generate(obstacles, 0).toObstacles();
+        xs = new double[frame.size()];
+        zs = new double[frame.size()];
+        for (int i = 0; i < frame.size(); i++) {
+            xs[i] = frame.get(i).getLocation().getX();
+            zs[i] = frame.get(i).getLocation().getZ();
+        }
+        knownMap = new Map();
+        for (int i = 0; i < KNOWN_FRAMES; i++) {
+            for (Obstacle obstacle : SyntheticSweeps.generate(obstacles, i).toObstacles()) {
+                knownMap.addObstacle(obstacle.getLocation().getX(), obstacle.getLocation().getZ());
+            }
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void emptyMap() {
+        emptyMap = new Map();
+    }
+
+    @Benchmark
+    public int newObstacles() {
+        return addFrame(emptyMap);
+    }
+
+    @Benchmark
+    public int knownObstacles() {
+        return addFrame(knownMap);
+    }
+
+    private int addFrame(Map map) {
+        int added = 0;
+        for (int i = 0; i < xs.length; i++) {
+            if (map.addObstacle(xs[i], zs[i]) != null) added++;
+        }
+        return added;
+    }
+}
@@ -0,0 +1,76 @@
+package nl.saxion.ptbc.benchmark;
+
+import nl.saxion.ptbc.classes.OccupancyMap;
+import nl.saxion.ptbc.classes.RadarTransform;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link OccupancyMap#addSweep}, the work the Pilot does to put a radar sweep on its map.
+ * <ul>
+ *     <li>{@code sameSweep}: the same sweep every time, like a Frog that stands still; the cells
+ *     are known and the hits and misses are clamped.</li>
+ *     <li>{@code nextSweep}: the next sweep of a small set, every one from another position, so
+ *     cells become occupied and free again.</li>
+ * </ul>
+ * The sweeps come from {@link SyntheticSweeps} and are converted to absolute positions up front, like
+ * the {@code RadarSweepBuffer} does when a sweep is published. All tiles stay in memory.
+ * <p>
+ * Run with: {@code mvn -P benchmark package && java -jar target/benchmarks.jar OccupancyMap}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OccupancyMapBenchmark {
+    private static final int SWEEPS = 16;
+    private static final double CELL_SIZE = 0.5;
+    private static final double MAX_CLEARING_DISTANCE = 100.0;
+
+    @Param({"50", "500", "5000"})
+    private int blips;
+
+    private SyntheticSweeps.Sweep[] sweeps;
+    private double[][] worldXs;
+    private double[][] worldZs;
+    private OccupancyMap map;
+    private int changes;
+    private final OccupancyMap.CellVisitor counter = (x, z) -> changes++;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        sweeps = new SyntheticSweeps.Sweep[SWEEPS];
+        worldXs = new double[SWEEPS][blips];
+        worldZs = new double[SWEEPS][blips];
+        RadarTransform transform = new RadarTransform();
+        map = new OccupancyMap(CELL_SIZE, MAX_CLEARING_DISTANCE);
+        for (int i = 0; i < SWEEPS; i++) {
+            sweeps[i] = SyntheticSweeps.generate(blips, i);
+            transform.set(sweeps[i].radarX(), sweeps[i].radarZ(), sweeps[i].radarAngle());
+            transform.transform(sweeps[i].xs(), sweeps[i].zs(), blips, worldXs[i], worldZs[i]);
+            addSweep(i);
+        }
+    }
+
+    @Benchmark
+    public int sameSweep() {
+        return addSweep(0);
+    }
+
+    @Benchmark
+    public int nextSweep() {
+        next = (next + 1) % SWEEPS;
+        return addSweep(next);
+    }
+
+    private int addSweep(int sweep) {
+        changes = 0;
+        map.addSweep(sweeps[sweep].radarX(), sweeps[sweep].radarZ(), worldXs[sweep], worldZs[sweep], blips,
+                counter, counter);
+        return changes;
+    }
+}
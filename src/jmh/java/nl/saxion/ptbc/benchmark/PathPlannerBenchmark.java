@@ -0,0 +1,110 @@
+package nl.saxion.ptbc.benchmark;
+
+import nl.saxion.ptbc.classes.Location;
+import nl.saxion.ptbc.classes.OccupancyGrid;
+import nl.saxion.ptbc.classes.PathPlanner;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the planning latency of the {@link PathPlanner} on large grids.
+ * <p>
+ * The field has random rocks and a concave wall between the start and the destination, the case
+ * the old greedy autoDrive could not get out of. {@code initialPlan} puts all obstacles into a new
+ * grid and plans the whole route from scratch, {@code replanAfterSweep} adds the obstacles of one
+ * radar sweep on the route just ahead of the Frog and repairs the route.
+ * <p>
+ * Both are single shot measurements, every iteration starts from a freshly planned route.
+ * <p>
+ * Run with: {@code mvn -P benchmark package && java -jar target/benchmarks.jar PathPlanner}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+public class PathPlannerBenchmark {
+    private static final double CELL_SIZE = 1.0;
+    private static final double CLEARANCE = 2.0;
+    private static final int SWEEP_BLIPS = 100;
+
+    @Param({"1000", "2000"})
+    private int size;
+
+    private double[] rockXs, rockZs;
+    private double[] sweepXs, sweepZs;
+    private Location destination;
+    private double startX, startZ;
+    private PathPlanner planner;
+
+    @Setup(Level.Trial)
+    public void createField() {
+        Random random = new Random(42);
+        double half = size * CELL_SIZE / 2;
+        int rocks = size * 20;
+
+        // random rocks plus a U shaped wall that opens away from the destination
+        int wall = size;
+        rockXs = new double[rocks + wall * 3];
+        rockZs = new double[rocks + wall * 3];
+        for (int i = 0; i < rocks; i++) {
+            rockXs[i] = random.nextDouble() * 2 * half - half;
+            rockZs[i] = random.nextDouble() * 2 * half - half;
+        }
+        double wallSize = half / 2;
+        for (int i = 0; i < wall; i++) {
+            double t = -wallSize + 2 * wallSize * i / wall;
+            rockXs[rocks + i] = t;
+            rockZs[rocks + i] = wallSize;
+            rockXs[rocks + wall + i] = -wallSize;
+            rockZs[rocks + wall + i] = t;
+            rockXs[rocks + 2 * wall + i] = wallSize;
+            rockZs[rocks + 2 * wall + i] = t;
+        }
+
+        startX = 0;
+        startZ = 0;
+        destination = new Location(0, half - 10);
+
+        // one sweep of blips in a half circle 15 meters ahead of the Frog
+        sweepXs = new double[SWEEP_BLIPS];
+        sweepZs = new double[SWEEP_BLIPS];
+        for (int i = 0; i < SWEEP_BLIPS; i++) {
+            double angle = Math.PI * i / SWEEP_BLIPS;
+            sweepXs[i] = startX + Math.cos(angle) * 15;
+            sweepZs[i] = startZ + 5 + Math.sin(angle) * 15;
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void planRoute() {
+        planner = newPlanner();
+        planner.setDestination(destination, startX, startZ);
+    }
+
+    @Benchmark
+    public boolean initialPlan() {
+        PathPlanner fresh = newPlanner();
+        return fresh.setDestination(destination, startX, startZ);
+    }
+
+    @Benchmark
+    public Location replanAfterSweep() {
+        for (int i = 0; i < SWEEP_BLIPS; i++) {
+            planner.addObstacle(sweepXs[i], sweepZs[i]);
+        }
+        return planner.nextWaypoint(startX + 1, startZ);
+    }
+
+    private PathPlanner newPlanner() {
+        double half = size * CELL_SIZE / 2;
+        PathPlanner pathPlanner = new PathPlanner(new OccupancyGrid(-half, -half, size, size, CELL_SIZE), CLEARANCE);
+        for (int i = 0; i < rockXs.length; i++) {
+            pathPlanner.addObstacle(rockXs[i], rockZs[i]);
+        }
+        return pathPlanner;
+    }
+}
@@ -0,0 +1,111 @@
+package nl.saxion.ptbc.benchmark;
+
+import nl.saxion.ptbc.classes.Frog;
+import nl.saxion.ptbc.classes.Location;
+import nl.saxion.ptbc.classes.RadarSweep;
+import nl.saxion.ptbc.classes.RadarTransform;
+import nl.saxion.ptbc.pilot.PilotApp;
+import nl.saxion.ptbc.pilot.RadarSystem;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the work the Pilot does per radar sweep, for sweeps of different densities.
+ * <ul>
+ *     <li>{@code convertToAbsolute}: turning every blip into an absolute position, one {@code Location} per blip.</li>
+ *     <li>{@code transformSweep}: the same with a {@link RadarTransform}, into reused arrays.</li>
+ *     <li>{@code scan}: the check for obstacles close to the Frog.</li>
+ *     <li>{@code scanObstaclesAhead}: choosing a free heading on a sweep that was seen before,
+ *     {@code scanObstaclesAheadNewSweep} includes building the blocked bearings of a new sweep.</li>
+ *     <li>{@code getFilteredPoints}: the points the radar view draws.</li>
+ * </ul>
+ * The sweeps come from {@link SyntheticSweeps}, every invocation uses the next one of a small set.
+ * Parsing the messages of a sweep is measured by {@link FrogMessageDecoderBenchmark}.
+ * <p>
+ * Run with: {@code mvn -P benchmark package && java -jar target/benchmarks.jar RadarSweep}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RadarSweepBenchmark {
+    private static final int SWEEPS = 16;
+
+    @Param({"50", "500", "5000"})
+    private int blips;
+
+    private SyntheticSweeps.Sweep[] sweeps;
+    private RadarSweep[] radarSweeps;
+    private RadarSystem[] radarSystems;
+    private Frog frog;
+    private final RadarTransform transform = new RadarTransform();
+    private double[] worldXs, worldZs;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        sweeps = new SyntheticSweeps.Sweep[SWEEPS];
+        radarSweeps = new RadarSweep[SWEEPS];
+        radarSystems = new RadarSystem[SWEEPS];
+        for (int i = 0; i < SWEEPS; i++) {
+            sweeps[i] = SyntheticSweeps.generate(blips, i);
+            radarSweeps[i] = sweeps[i].toRadarSweep();
+            radarSystems[i] = new RadarSystem();
+            for (int j = 0; j < blips; j++) {
+                radarSystems[i].addRadarBlip(sweeps[i].xs()[j], sweeps[i].zs()[j]);
+            }
+        }
+        frog = new Frog();
+        worldXs = new double[blips];
+        worldZs = new double[blips];
+    }
+
+    private int nextSweep() {
+        next = (next + 1) % SWEEPS;
+        return next;
+    }
+
+    @Benchmark
+    public void convertToAbsolute(Blackhole blackhole) {
+        SyntheticSweeps.Sweep sweep = sweeps[nextSweep()];
+        double[] xs = sweep.xs();
+        double[] zs = sweep.zs();
+        for (int i = 0; i < xs.length; i++) {
+            Location location = PilotApp.convertToAbsolute(sweep.radarX(), sweep.radarZ(), sweep.radarAngle(), xs[i], zs[i]);
+            blackhole.consume(location);
+        }
+    }
+
+    @Benchmark
+    public double[] transformSweep() {
+        SyntheticSweeps.Sweep sweep = sweeps[nextSweep()];
+        transform.set(sweep.radarX(), sweep.radarZ(), sweep.radarAngle());
+        transform.transform(sweep.xs(), sweep.zs(), sweep.xs().length, worldXs, worldZs);
+        return worldXs;
+    }
+
+    @Benchmark
+    public boolean scan() {
+        return frog.scan(radarSweeps[nextSweep()]);
+    }
+
+    @Benchmark
+    public double scanObstaclesAhead() {
+        // the same sweep every time, like the control rounds between two sweeps
+        return frog.scanObstaclesAhead(0, radarSweeps[0]);
+    }
+
+    @Benchmark
+    public double scanObstaclesAheadNewSweep() {
+        return frog.scanObstaclesAhead(0, radarSweeps[nextSweep()]);
+    }
+
+    @Benchmark
+    public int getFilteredPoints() {
+        return radarSystems[nextSweep()].getFilteredPoints().size();
+    }
+}
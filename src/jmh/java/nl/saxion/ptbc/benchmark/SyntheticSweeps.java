@@ -0,0 +1,120 @@
+package nl.saxion.ptbc.benchmark;
+
+import nl.saxion.ptbc.classes.Location;
+import nl.saxion.ptbc.classes.Obstacle;
+import nl.saxion.ptbc.classes.RadarSweep;
+import nl.saxion.ptbc.classes.RadarSweepBuffer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generates radar sweeps for the benchmarks, so they do not need TheFrog.
+ * <p>
+ * The blips of a sweep are generated in the order of the radar beam, like the Frog sends them:
+ * the bearing goes round once and every blip is a point on a rock between 2 and 150 meters away.
+ * A few rocks are closer than 10 meters, so the obstacle avoidance of the autoDrive has work to do.
+ * The same seed always gives the same sweep.
+ */
+public final class SyntheticSweeps {
+    private static final double MIN_DISTANCE = 2.0;
+    private static final double MAX_DISTANCE = 150.0;
+    private static final double NEAR_DISTANCE = 10.0;
+
+    private SyntheticSweeps() {
+    }
+
+    /**
+     * One sweep with the radar pose and the blips relative to the radar.
+     */
+    public record Sweep(double radarX, double radarZ, double radarAngle, double[] xs, double[] zs) {
+
+        public int size() {
+            return xs.length;
+        }
+
+        /**
+         * Returns the sweep as the Pilot publishes it to the autoDrive loop.
+         */
+        public RadarSweep toRadarSweep() {
+            RadarSweepBuffer buffer = new RadarSweepBuffer();
+            buffer.start(radarX, radarZ, radarAngle);
+            for (int i = 0; i < xs.length; i++) {
+                buffer.add(xs[i], zs[i]);
+            }
+            return buffer.publish();
+        }
+
+        /**
+         * Returns the obstacles of the sweep at their absolute positions.
+         */
+        public List<Obstacle> toObstacles() {
+            double angle = Math.toRadians(radarAngle);
+            double cos = Math.cos(angle);
+            double sin = Math.sin(angle);
+            List<Obstacle> obstacles = new ArrayList<>(xs.length);
+            for (int i = 0; i < xs.length; i++) {
+                obstacles.add(new Obstacle(new Location(
+                        radarX + xs[i] * cos + zs[i] * sin,
+                        radarZ + zs[i] * cos - xs[i] * sin)));
+            }
+            return obstacles;
+        }
+
+        /**
+         * Returns the messages of the Frog for this sweep: a status, a radar start and the blips.
+         */
+        public String[] toMessages() {
+            String[] messages = new String[xs.length + 2];
+            messages[0] = String.format(Locale.ROOT, "FROG STATUS %.2f 0.12 %.2f %.2f 0.98 0.00", radarX, radarZ, radarAngle);
+            messages[1] = String.format(Locale.ROOT, "FROG RADAR START %.2f 0.12 %.2f %.2f", radarX, radarZ, radarAngle);
+            for (int i = 0; i < xs.length; i++) {
+                messages[i + 2] = String.format(Locale.ROOT, "FROG RADAR BLIP %.2f 0.25 %.2f", xs[i], zs[i]);
+            }
+            return messages;
+        }
+    }
+
+    /**
+     * Generates a sweep.
+     *
+     * @param blips the number of blips, the density of the sweep
+     * @param seed  the seed of the random generator
+     * @return the sweep
+     */
+    public static Sweep generate(int blips, long seed) {
+        Random random = new Random(seed);
+        double radarX = random.nextDouble() * 400 - 200;
+        double radarZ = random.nextDouble() * 400 - 200;
+        double radarAngle = random.nextDouble() * 360 - 180;
+
+        double[] xs = new double[blips];
+        double[] zs = new double[blips];
+        double distance = randomDistance(random);
+        for (int i = 0; i < blips; i++) {
+            // a rock spans a few neighbouring blips, then the beam hits the next rock
+            if (random.nextInt(4) == 0) {
+                distance = randomDistance(random);
+            }
+            double bearing = 2 * Math.PI * (i + random.nextDouble()) / blips;
+            double d = distance + random.nextGaussian() * 0.2;
+            xs[i] = round(Math.cos(bearing) * d);
+            zs[i] = round(Math.sin(bearing) * d);
+        }
+        return new Sweep(round(radarX), round(radarZ), round(radarAngle), xs, zs);
+    }
+
+    private static double randomDistance(Random random) {
+        if (random.nextInt(10) == 0) {
+            return MIN_DISTANCE + random.nextDouble() * (NEAR_DISTANCE - MIN_DISTANCE);
+        }
+        return NEAR_DISTANCE + random.nextDouble() * (MAX_DISTANCE - NEAR_DISTANCE);
+    }
+
+    // The Frog sends two decimals
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
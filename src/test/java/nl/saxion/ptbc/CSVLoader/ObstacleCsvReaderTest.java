@@ -0,0 +1,98 @@
+package nl.saxion.ptbc.CSVLoader;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ObstacleCsvReaderTest {
+    @TempDir
+    Path directory;
+
+    private final List<double[]> obstacles = new ArrayList<>();
+
+    private ObstacleCsvReader.Result read(String content, int batchSize) throws IOException, InterruptedException {
+        Path file = directory.resolve("obstacles.csv");
+        Files.writeString(file, content, StandardCharsets.US_ASCII);
+        return ObstacleCsvReader.read(file, batchSize, (xs, zs, count) -> {
+            for (int i = 0; i < count; i++) {
+                obstacles.add(new double[]{xs[i], zs[i]});
+            }
+        }, (bytesRead, size) -> {
+        });
+    }
+
+    @Test
+    void headerAndPlainNumbers() throws Exception {
+        ObstacleCsvReader.Result result = read("x,z\n1.5,-2.25\n10,20\n", 16);
+
+        assertEquals(new ObstacleCsvReader.Result(2, 0), result);
+        assertArrayEquals(new double[]{1.5, -2.25}, obstacles.get(0));
+        assertArrayEquals(new double[]{10, 20}, obstacles.get(1));
+    }
+
+    @Test
+    void signsExponentsAndSpaces() throws Exception {
+        read("+1.5E2, -2e-3\r\n 1.5e+1 ,.5\n-0.0,3.\n", 16);
+
+        assertArrayEquals(new double[]{150, -0.002}, obstacles.get(0));
+        assertArrayEquals(new double[]{15, 0.5}, obstacles.get(1));
+        assertArrayEquals(new double[]{-0.0, 3}, obstacles.get(2));
+    }
+
+    @Test
+    void moreDigitsThanADoubleHolds() throws Exception {
+        read("12345678901234567890.5,0.000000000000000000001234\n"
+                + "1.23456789012345678901234,-98765432109876543210e-20\n", 16);
+
+        assertEquals(12345678901234567890.5, obstacles.get(0)[0], 1e5);
+        assertEquals(1.234e-21, obstacles.get(0)[1], 1e-35);
+        assertEquals(1.23456789012345678901234, obstacles.get(1)[0], 1e-15);
+        assertEquals(-0.9876543210987654, obstacles.get(1)[1], 1e-15);
+    }
+
+    @Test
+    void linesThatAreNoCoordinatesAreSkipped() throws Exception {
+        ObstacleCsvReader.Result result = read("1,2\n\n1;2\n1,2,3\nabc,1\n1e,2\n-,2\n3,4", 16);
+
+        assertEquals(new ObstacleCsvReader.Result(2, 6), result);
+        assertArrayEquals(new double[]{3, 4}, obstacles.get(1));
+    }
+
+    @Test
+    void batchesCoverAllLines() throws Exception {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 10; i++) {
+            content.append(i).append(',').append(-i).append('\n');
+        }
+
+        assertEquals(new ObstacleCsvReader.Result(10, 0), read(content.toString(), 3));
+        for (int i = 0; i < 10; i++) {
+            assertArrayEquals(new double[]{i, -i}, obstacles.get(i));
+        }
+    }
+
+    @Test
+    void tooLongLineIsRejected() {
+        String content = "1,2\n" + "1".repeat(5000) + ",2\n";
+
+        assertThrows(CSVLoaderException.class, () -> read(content, 16));
+    }
+
+    @Test
+    void singleLineThatFillsTheBufferIsRejected() {
+        // one byte longer than the longest line, without newline
+        String content = "1".repeat(4097);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> assertThrows(CSVLoaderException.class, () -> read(content, 16)));
+    }
+}
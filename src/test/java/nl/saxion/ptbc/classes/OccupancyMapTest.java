@@ -0,0 +1,101 @@
+package nl.saxion.ptbc.classes;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OccupancyMapTest {
+    private static final double CELL_SIZE = 0.5;
+
+    private final OccupancyMap map = new OccupancyMap(CELL_SIZE, 100);
+    private final List<double[]> occupied = new ArrayList<>();
+    private final List<double[]> freed = new ArrayList<>();
+
+    // One sweep of the radar at the origin with a single blip
+    private void sweep(double x, double z) {
+        map.addSweep(0, 0, new double[]{x}, new double[]{z}, 1,
+                (cx, cz) -> occupied.add(new double[]{cx, cz}),
+                (cx, cz) -> freed.add(new double[]{cx, cz}));
+    }
+
+    @Test
+    void singleHitIsNoObstacle() {
+        sweep(5.1, 0.1);
+
+        assertFalse(map.isOccupied(5.1, 0.1));
+        assertTrue(occupied.isEmpty());
+        assertEquals(0, map.getOccupiedCount());
+    }
+
+    @Test
+    void secondHitReportsTheCellOnce() {
+        sweep(5.1, 0.1);
+        sweep(5.2, 0.2);
+        sweep(5.1, 0.1);
+
+        assertTrue(map.isOccupied(5.1, 0.1));
+        assertEquals(1, occupied.size());
+        assertArrayEquals(new double[]{5.25, 0.25}, occupied.get(0));
+        assertEquals(1, map.getOccupiedCount());
+    }
+
+    @Test
+    void rayThroughCellHitTwiceClearsIt() {
+        sweep(5.1, 0.1);
+        sweep(5.1, 0.1);
+        assertTrue(map.isOccupied(5.1, 0.1));
+
+        // the radar looks through the cell at a rock behind it
+        sweep(20.1, 0.1);
+
+        assertFalse(map.isOccupied(5.1, 0.1));
+        assertEquals(1, freed.size());
+        assertArrayEquals(new double[]{5.25, 0.25}, freed.get(0));
+        assertEquals(0, map.getOccupiedCount());
+    }
+
+    @Test
+    void clearedCellIsOccupiedAgainOnceHitsOutnumberMissesByTwo() {
+        sweep(5.1, 0.1);
+        sweep(5.1, 0.1);
+        sweep(20.1, 0.1);
+        sweep(20.1, 0.1);
+        occupied.clear();
+
+        // so far two hits and two misses
+        sweep(5.1, 0.1);
+        assertFalse(map.isOccupied(5.1, 0.1));
+        sweep(5.1, 0.1);
+        assertTrue(map.isOccupied(5.1, 0.1));
+        assertEquals(1, occupied.size());
+    }
+
+    @Test
+    void lostTileIsUncounted() {
+        OccupancyMap.TileStore lossy = new OccupancyMap.TileStore() {
+            @Override
+            public boolean save(int tileX, int tileZ, float[] logOdds) {
+                return true;
+            }
+
+            @Override
+            public float[] load(int tileX, int tileZ) {
+                return null;
+            }
+        };
+        OccupancyMap small = new OccupancyMap(CELL_SIZE, 100, 1, lossy);
+        small.addSweep(0, 0, new double[]{5.1}, new double[]{0.1}, 1, null, null);
+        small.addSweep(0, 0, new double[]{5.1}, new double[]{0.1}, 1, null, null);
+        assertEquals(1, small.getOccupiedCount());
+
+        // a tile far away pushes the first one to the store, reading it back fails
+        small.addSweep(500, 500, new double[]{500.1}, new double[]{500.1}, 1, null, null);
+        assertFalse(small.isOccupied(5.1, 0.1));
+
+        assertEquals(0, small.getOccupiedCount());
+        assertEquals(1, small.getLostTileCount());
+    }
+}
@@ -0,0 +1,99 @@
+package nl.saxion.ptbc.classes;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PathPlannerTest {
+    private static final double START_X = -20.5;
+    private static final double START_Z = 0.5;
+    private static final Location DESTINATION = new Location(20.5, 0.5);
+
+    private OccupancyGrid grid;
+    private PathPlanner pathPlanner;
+
+    @BeforeEach
+    void createPlanner() {
+        grid = new OccupancyGrid(-50, -50, 100, 100, 1.0);
+        pathPlanner = new PathPlanner(grid, 1.0);
+    }
+
+    // A wall across the straight route, from z = -10 to z = 10
+    private void addWall() {
+        for (int z = -10; z <= 10; z++) {
+            pathPlanner.addObstacle(0.5, z + 0.5);
+        }
+    }
+
+    // Follows the route from the start cell and returns the largest distance from the straight line
+    private double followRoute() {
+        DStarLitePlanner planner = pathPlanner.getPlanner();
+        int cell = planner.getStart();
+        double maxOffset = 0;
+        for (int i = 0; i < grid.getCellCount() && cell != planner.getGoal(); i++) {
+            cell = planner.nextCell(cell);
+            assertTrue(cell >= 0, "route ends before the destination");
+            assertFalse(grid.isBlocked(cell), "route crosses a blocked cell");
+            maxOffset = Math.max(maxOffset, Math.abs(grid.getCenterZ(cell) - START_Z));
+        }
+        assertEquals(planner.getGoal(), cell);
+        return maxOffset;
+    }
+
+    @Test
+    void straightRouteWithoutObstacles() {
+        assertTrue(pathPlanner.setDestination(DESTINATION, START_X, START_Z));
+        assertEquals(0, followRoute());
+    }
+
+    @Test
+    void replansAroundCellThatBecomesBlocked() {
+        assertTrue(pathPlanner.setDestination(DESTINATION, START_X, START_Z));
+        assertEquals(0, followRoute());
+
+        addWall();
+        assertNotNull(pathPlanner.nextWaypoint(START_X, START_Z));
+
+        assertTrue(followRoute() > 10);
+    }
+
+    @Test
+    void replansThroughCellThatBecomesFreeAgain() {
+        addWall();
+        assertTrue(pathPlanner.setDestination(DESTINATION, START_X, START_Z));
+        assertTrue(followRoute() > 10);
+
+        for (int z = -10; z <= 10; z++) {
+            pathPlanner.removeObstacle(0.5, z + 0.5);
+        }
+        pathPlanner.nextWaypoint(START_X, START_Z);
+
+        assertEquals(0, followRoute());
+    }
+
+    @Test
+    void obstacleReportedTwiceIsRemovedOnce() {
+        pathPlanner.addObstacle(0.5, 0.5);
+        pathPlanner.addObstacle(0.5, 0.5);
+        pathPlanner.setDestination(DESTINATION, START_X, START_Z);
+        assertTrue(grid.isBlocked(grid.cellAt(0.5, 0.5)));
+
+        pathPlanner.removeObstacle(0.5, 0.5);
+        pathPlanner.nextWaypoint(START_X, START_Z);
+
+        assertFalse(grid.isBlocked(grid.cellAt(0.5, 0.5)));
+    }
+
+    @Test
+    void unreachableDestination() {
+        // a closed ring around the destination
+        for (int angle = 0; angle < 360; angle += 2) {
+            double radians = Math.toRadians(angle);
+            pathPlanner.addObstacle(DESTINATION.getX() + 5 * Math.cos(radians), DESTINATION.getZ() + 5 * Math.sin(radians));
+        }
+
+        assertFalse(pathPlanner.setDestination(DESTINATION, START_X, START_Z));
+        assertNull(pathPlanner.nextWaypoint(START_X, START_Z));
+    }
+}
@@ -0,0 +1,80 @@
+package nl.saxion.ptbc.classes;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpatialHashGridTest {
+    private static final double CELL_SIZE = 5.0;
+
+    private final SpatialHashGrid grid = new SpatialHashGrid(CELL_SIZE);
+
+    private static Obstacle obstacle(double x, double z) {
+        return new Obstacle(new Location(x, z));
+    }
+
+    @Test
+    void duplicateWithinQuantumIsRejected() {
+        assertTrue(grid.add(obstacle(1.001, 2.001)));
+        assertFalse(grid.add(obstacle(1.004, 1.996)));
+        assertEquals(1, grid.size());
+    }
+
+    @Test
+    void removeAcrossCellBoundary() {
+        Obstacle stored = obstacle(5.001, -5.001);
+        grid.add(stored);
+
+        // same quantized position, but in the cell on the other side of the boundary
+        assertSame(stored, grid.remove(4.999, -4.999));
+
+        assertEquals(0, grid.size());
+        assertFalse(grid.contains(5.001, -5.001));
+        assertTrue(grid.findWithin(5, -5, 1).isEmpty());
+    }
+
+    @Test
+    void addAgainAfterRemoveAcrossCellBoundary() {
+        grid.add(obstacle(4.996, 0));
+        assertNotNull(grid.remove(5.004, 0));
+
+        assertTrue(grid.add(obstacle(5.004, 0)));
+
+        assertEquals(1, grid.size());
+        assertEquals(1, grid.findWithin(5, 0, 1).size());
+    }
+
+    @Test
+    void removeOnlyTheObstacleAtThePosition() {
+        grid.add(obstacle(4.99, 0));
+        grid.add(obstacle(5.00, 0));
+        grid.add(obstacle(5.01, 0));
+
+        assertNotNull(grid.remove(5.001, 0));
+
+        assertEquals(2, grid.size());
+        assertTrue(grid.contains(4.99, 0));
+        assertFalse(grid.contains(5.00, 0));
+        assertTrue(grid.contains(5.01, 0));
+        assertEquals(2, grid.findInRectangle(4, -1, 6, 1).size());
+    }
+
+    @Test
+    void removeUnknownPosition() {
+        grid.add(obstacle(1, 1));
+
+        assertNull(grid.remove(1.02, 1));
+        assertEquals(1, grid.size());
+    }
+
+    @Test
+    void queriesAtCellBoundaries() {
+        grid.add(obstacle(-0.01, 0));
+        grid.add(obstacle(0.01, 0));
+        grid.add(obstacle(-5.0, -5.0));
+
+        assertEquals(2, grid.findWithin(0, 0, 0.011).size());
+        assertEquals(1, grid.findInRectangle(-5.0, -5.0, -5.0, -5.0).size());
+        assertEquals(3, grid.findInRectangle(-10, -10, 10, 10).size());
+    }
+}
@@ -0,0 +1,88 @@
+package nl.saxion.ptbc.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistogramTest {
+
+    // Checks that the value lies in its bucket and that the bucket is at most 1/32 of its values wide
+    private static void assertBucketHolds(long value) {
+        int bucket = Histogram.bucketOf(value);
+        long highest = Histogram.highestValueOf(bucket);
+        long lowest = bucket == 0 ? 0 : Histogram.highestValueOf(bucket - 1) + 1;
+        assertTrue(lowest <= value && value <= highest, value + " not in [" + lowest + ", " + highest + "]");
+        assertTrue(highest - lowest <= Math.max(0, lowest / 32), "bucket of " + value + " is too wide");
+    }
+
+    @Test
+    void smallValuesHaveABucketEach() {
+        for (long value = 0; value < 64; value++) {
+            assertEquals(value, Histogram.bucketOf(value));
+            assertEquals(value, Histogram.highestValueOf((int) value));
+        }
+        assertEquals(Histogram.bucketOf(64), Histogram.bucketOf(65));
+        assertNotEquals(Histogram.bucketOf(65), Histogram.bucketOf(66));
+    }
+
+    @Test
+    void everyValueLiesInItsBucket() {
+        for (long value = 0; value < 100_000; value++) {
+            assertBucketHolds(value);
+        }
+        for (int bit = 6; bit < 63; bit++) {
+            long power = 1L << bit;
+            assertBucketHolds(power - 1);
+            assertBucketHolds(power);
+            assertBucketHolds(power + 1);
+        }
+        assertBucketHolds(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, Histogram.highestValueOf(Histogram.bucketOf(Long.MAX_VALUE)));
+    }
+
+    @Test
+    void bucketsFollowTheValues() {
+        int previous = Histogram.bucketOf(0);
+        for (long value = 1; value > 0 && value < Long.MAX_VALUE / 2; value += value / 7 + 1) {
+            int bucket = Histogram.bucketOf(value);
+            assertTrue(bucket >= previous, "bucket of " + value + " goes back");
+            previous = bucket;
+        }
+    }
+
+    @Test
+    void percentilesAreWithinTheBucketError() {
+        Histogram histogram = new Histogram("test", Histogram.Unit.COUNT);
+        for (long value = 1; value <= 10_000; value++) {
+            histogram.record(value);
+        }
+
+        HistogramSnapshot snapshot = histogram.snapshot();
+        assertEquals(10_000, snapshot.count());
+        assertEquals(5000.5, snapshot.mean(), 1e-9);
+        assertEquals(5000, snapshot.p50(), 5000 / 32.0);
+        assertEquals(9000, snapshot.p90(), 9000 / 32.0);
+        assertEquals(9900, snapshot.p99(), 9900 / 32.0);
+        assertEquals(10_000, snapshot.max());
+    }
+
+    @Test
+    void negativeValuesAreRecordedAsZero() {
+        Histogram histogram = new Histogram("test", Histogram.Unit.NANOSECONDS);
+        histogram.record(-5);
+
+        HistogramSnapshot snapshot = histogram.snapshot();
+        assertEquals(1, snapshot.count());
+        assertEquals(0, snapshot.p50());
+        assertEquals(0, snapshot.max());
+    }
+
+    @Test
+    void emptySnapshot() {
+        HistogramSnapshot snapshot = new Histogram("test", Histogram.Unit.COUNT).snapshot();
+
+        assertEquals(0, snapshot.count());
+        assertEquals(0, snapshot.mean());
+        assertEquals(0, snapshot.p99());
+    }
+}
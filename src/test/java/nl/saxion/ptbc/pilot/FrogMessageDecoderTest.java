@@ -0,0 +1,79 @@
+package nl.saxion.ptbc.pilot;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrogMessageDecoderTest {
+    private final FrogMessageDecoder decoder = new FrogMessageDecoder();
+
+    // Decodes the number as the X of a radar blip
+    private double decodeNumber(String number) {
+        assertEquals(FrogMessageDecoder.MessageType.RADAR_BLIP, decoder.decode("FROG RADAR BLIP " + number + " 0 0"), number);
+        return decoder.getRadarBlipEvent().getX();
+    }
+
+    @Test
+    void statusMessage() {
+        assertEquals(FrogMessageDecoder.MessageType.STATUS,
+                decoder.decode("FROG STATUS 168.53 0.12 -92.36 79.96 0.98 0.00"));
+
+        FrogMessageDecoder.StatusEvent status = decoder.getStatusEvent();
+        assertEquals(168.53, status.getX());
+        assertEquals(0.12, status.getY());
+        assertEquals(-92.36, status.getZ());
+        assertEquals(79.96, status.getAngle());
+        assertEquals(0.98, status.getEnergy());
+        assertEquals(0.0, status.getSolar());
+    }
+
+    @Test
+    void numbersAreParsedLikeDoubleParseDouble() {
+        String[] numbers = {
+                "0", "-0.0", "+1.5", "123.456", "-0.000123", "000123.4500", "5.", ".5",
+                // 15 significant digits, the most the fast path takes
+                "999999999999999", "0.123456789012345", "-12345.6789012345",
+                // more digits, exponents and NaN go through Double.parseDouble
+                "1234567890123456", "0.1234567890123456789", "98765432109876543210.123",
+                "1e3", "-2.5E-2", "+7.1e+2", "NaN"
+        };
+        for (String number : numbers) {
+            assertEquals(Double.parseDouble(number), decodeNumber(number), number);
+        }
+    }
+
+    @Test
+    void invalidNumbersAreMalformed() {
+        String[] messages = {
+                "FROG RADAR BLIP 1.2.3 0 0",
+                "FROG RADAR BLIP abc 0 0",
+                "FROG RADAR BLIP - 0 0",
+                "FROG RADAR BLIP 1e 0 0",
+                "FROG RADAR BLIP 1,5 0 0",
+                "FROG STATUS 1,5 0 0 0 0 0",
+                "FROG RADAR BLIP 1 0",
+                "FROG RADAR"
+        };
+        for (String message : messages) {
+            assertEquals(FrogMessageDecoder.MessageType.MALFORMED, decoder.decode(message), message);
+        }
+    }
+
+    @Test
+    void goToAcceptsDecimalComma() {
+        assertEquals(FrogMessageDecoder.MessageType.GO_TO, decoder.decode("GROUND_CONTROL GO TO 1,5 -2,25"));
+        assertEquals(1.5, decoder.getGoToEvent().getX());
+        assertEquals(-2.25, decoder.getGoToEvent().getZ());
+
+        assertEquals(FrogMessageDecoder.MessageType.GO_TO, decoder.decode("GROUND_CONTROL GO TO 12345678,123456789 1e1"));
+        assertEquals(12345678.123456789, decoder.getGoToEvent().getX());
+        assertEquals(10, decoder.getGoToEvent().getZ());
+    }
+
+    @Test
+    void otherMessages() {
+        assertEquals(FrogMessageDecoder.MessageType.PILOT_DRIVE, decoder.decode("PILOT DRIVE 500 0 1"));
+        assertEquals(FrogMessageDecoder.MessageType.OTHER, decoder.decode("FROG SOMETHING ELSE"));
+        assertEquals(FrogMessageDecoder.MessageType.MALFORMED, decoder.decode("FROG"));
+    }
+}